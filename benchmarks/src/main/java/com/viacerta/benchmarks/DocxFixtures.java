@@ -0,0 +1,136 @@
+package com.viacerta.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.util.Units;
+import org.apache.poi.wp.usermodel.HeaderFooterType;
+import org.apache.poi.xwpf.usermodel.Document;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFHeader;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+
+/**
+ * Gera templates .docx sintéticos com a forma dos templates reais: parágrafos com placeholders
+ * (alguns divididos entre runs, como o Word faz), tabelas, diretivas FreeMarker e imagens no cabeçalho.
+ */
+public final class DocxFixtures {
+    private static final int TABLE_ROWS = 5;
+    private static final int TABLE_COLUMNS = 3;
+
+    private DocxFixtures() {
+    }
+
+    public static byte[] template(int paragraphs, int tables, int fields, int headerImages) throws IOException {
+        try (XWPFDocument document = new XWPFDocument()) {
+            XWPFHeader header = document.createHeader(HeaderFooterType.DEFAULT);
+            XWPFParagraph headerParagraph = header.createParagraph();
+            headerParagraph.createRun().setText("Relatório ${" + field(0, fields) + "}");
+            byte[] image = headerImages > 0 ? png(200, 80) : null;
+            for (int i = 0; i < headerImages; i++) {
+                try {
+                    headerParagraph.createRun().addPicture(new ByteArrayInputStream(image), Document.PICTURE_TYPE_PNG,
+                            "logo-" + i + ".png", Units.toEMU(100), Units.toEMU(40));
+                } catch (InvalidFormatException e) {
+                    throw new IOException(e);
+                }
+            }
+
+            for (int i = 0; i < paragraphs; i++) {
+                XWPFParagraph paragraph = document.createParagraph();
+                String name = field(i, fields);
+                if (i % 10 == 9) {
+                    // Parágrafo que precisa do FreeMarker completo
+                    paragraph.createRun().setText("<#if " + name + "??>Informado: ${" + name + "}<#else>-</#if>");
+                } else if (i % 3 == 0) {
+                    // Placeholder dividido entre runs com formatação diferente
+                    paragraph.createRun().setText("Linha " + i + ": ${");
+                    XWPFRun bold = paragraph.createRun();
+                    bold.setBold(true);
+                    bold.setText(name + "} fim.");
+                } else {
+                    paragraph.createRun().setText("Linha " + i + " com o valor ${" + name + "} no meio do texto.");
+                }
+            }
+
+            for (int t = 0; t < tables; t++) {
+                XWPFTable table = document.createTable(TABLE_ROWS, TABLE_COLUMNS);
+                for (int row = 0; row < TABLE_ROWS; row++) {
+                    for (int column = 0; column < TABLE_COLUMNS; column++) {
+                        int index = t * TABLE_ROWS * TABLE_COLUMNS + row * TABLE_COLUMNS + column;
+                        table.getRow(row).getCell(column).setText("${" + field(index, fields) + "}");
+                    }
+                }
+            }
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.write(output);
+            return output.toByteArray();
+        }
+    }
+
+    public static Map<String, Object> fields(int fields) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < fields; i++) {
+            values.put(field(i, fields), "valor " + i);
+        }
+        return values;
+    }
+
+    public static Map<String, String> stringFields(int fields) {
+        Map<String, String> values = new LinkedHashMap<>();
+        fields(fields).forEach((key, value) -> values.put(key, String.valueOf(value)));
+        return values;
+    }
+
+    public static byte[] pdf(int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 12);
+                    content.newLineAtOffset(72, 720);
+                    content.showText("Página " + (i + 1));
+                    content.endText();
+                }
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            return output.toByteArray();
+        }
+    }
+
+    private static String field(int index, int fields) {
+        return "campo" + index % Math.max(1, fields);
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.BLUE);
+        graphics.fillOval(10, 10, width - 20, height - 20);
+        graphics.dispose();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,27 @@
+package com.viacerta.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Grava um template sintético e o fieldsJson correspondente, usados pelo startup/time-to-first-pdf.sh.
+ *
+ * Uso: java -cp target/benchmarks.jar com.viacerta.benchmarks.FixtureWriter [diretório] [parágrafos]
+ */
+public final class FixtureWriter {
+    private FixtureWriter() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Path.of(args.length > 0 ? args[0] : ".");
+        int paragraphs = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        Files.createDirectories(directory);
+        Files.write(directory.resolve("template.docx"), DocxFixtures.template(paragraphs, 2, 20, 1));
+        Files.writeString(directory.resolve("fields.json"),
+                new ObjectMapper().writeValueAsString(DocxFixtures.fields(20)));
+        System.out.println("Fixtures gravadas em " + directory.toAbsolutePath());
+    }
+}
@@ -0,0 +1,53 @@
+package com.viacerta.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.viacerta.cache.Fingerprint;
+import com.viacerta.service.BenchmarkServices;
+import com.viacerta.service.ProcessDocumentWithFreemarkerService;
+
+/**
+ * Etapa FreeMarker: ProcessDocumentWithFreemarkerService.processDocumentWithFreemarker,
+ * com o plano compilado em cache (template registrado) ou compilado a cada chamada, e com a
+ * avaliação dos parágrafos sequencial ou em paralelo.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FreemarkerBenchmark {
+    @Param({ "true", "false" })
+    public boolean planCache;
+
+    @Param({ "false", "true" })
+    public boolean parallel;
+
+    private ProcessDocumentWithFreemarkerService service;
+    private String fingerprint;
+
+    @Setup
+    public void setup(TemplateState template) {
+        service = BenchmarkServices.freemarker(parallel);
+        fingerprint = planCache ? Fingerprint.sha256(template.templateBytes) : null;
+    }
+
+    @Benchmark
+    public Object process(TemplateState template, FreshDocument fresh) throws Exception {
+        service.processDocumentWithFreemarker(fresh.document, template.fieldsJson, fingerprint);
+        return fresh.document;
+    }
+}
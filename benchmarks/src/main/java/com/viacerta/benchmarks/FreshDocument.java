@@ -0,0 +1,30 @@
+package com.viacerta.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Documento recém-lido a cada invocação, para as etapas que alteram o documento.
+ * A leitura fica fora do tempo medido.
+ */
+@State(Scope.Thread)
+public class FreshDocument {
+    public XWPFDocument document;
+
+    @Setup(Level.Invocation)
+    public void parse(TemplateState template) throws IOException {
+        document = new XWPFDocument(new ByteArrayInputStream(template.templateBytes));
+    }
+
+    @TearDown(Level.Invocation)
+    public void close() throws IOException {
+        document.close();
+    }
+}
@@ -0,0 +1,42 @@
+package com.viacerta.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.viacerta.service.BenchmarkServices;
+import com.viacerta.service.FreemarkerProcessorService;
+
+/**
+ * Etapa de substituição simples: FreemarkerProcessorService.processTemplate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LegacyProcessorBenchmark {
+    private FreemarkerProcessorService service;
+
+    @Setup
+    public void setup() {
+        service = BenchmarkServices.legacyProcessor();
+    }
+
+    @Benchmark
+    public Object process(TemplateState template, FreshDocument fresh) {
+        service.processTemplate(fresh.document, template.stringFields, Map.of());
+        return fresh.document;
+    }
+}
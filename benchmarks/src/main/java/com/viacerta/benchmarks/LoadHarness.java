@@ -0,0 +1,111 @@
+package com.viacerta.benchmarks;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.viacerta.cache.Fingerprint;
+import com.viacerta.service.BenchmarkServices;
+import com.viacerta.service.RenderRequest;
+import com.viacerta.service.RenderedDocument;
+import com.viacerta.service.ReportRenderService;
+import com.viacerta.service.StageTimings;
+import com.viacerta.service.TemplateSource;
+
+/**
+ * Carga ponta a ponta no ReportRenderService com conversor stub: mede a vazão do lado Java
+ * (leitura, FreeMarker, escrita do .docx, junção e envio) sem depender do LibreOffice.
+ *
+ * Uso: java -cp target/benchmarks.jar com.viacerta.benchmarks.LoadHarness [threads] [segundos] [parágrafos] [partes]
+ */
+public final class LoadHarness {
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int paragraphs = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int partCount = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+
+        Path workDir = Files.createTempDirectory("load-harness");
+        ReportRenderService renderService = BenchmarkServices.renderService(
+                BenchmarkServices.stubConverter(workDir, DocxFixtures.pdf(2)), true);
+
+        byte[] templateBytes = DocxFixtures.template(paragraphs, 5, 50, 1);
+        List<TemplateSource> parts = new ArrayList<>();
+        for (int i = 0; i < partCount; i++) {
+            parts.add(new TemplateSource(templateBytes, Fingerprint.sha256(templateBytes)));
+        }
+        Map<String, Object> fieldsJson = DocxFixtures.fields(50);
+
+        // Aquecimento do JIT e do cache de planos antes da medição
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(1, seconds / 5));
+        while (System.nanoTime() < warmupEnd) {
+            renderOnce(renderService, parts, fieldsJson, new StageTimings());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<Worker>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                Worker worker = new Worker();
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    renderOnce(renderService, parts, fieldsJson, worker.timings);
+                    worker.latencies.add(System.nanoTime() - start);
+                }
+                return worker;
+            }));
+        }
+
+        List<Long> latencies = new ArrayList<>();
+        Map<String, Long> stageMillis = new TreeMap<>();
+        for (Future<Worker> future : futures) {
+            Worker worker = future.get();
+            latencies.addAll(worker.latencies);
+            worker.timings.toMillis().forEach((stage, millis) -> stageMillis.merge(stage, millis, Long::sum));
+        }
+        executor.shutdown();
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        int requests = sorted.length;
+        System.out.printf("threads=%d partes=%d parágrafos=%d duração=%ds%n", threads, partCount, paragraphs, seconds);
+        System.out.printf("requisições=%d vazão=%.1f req/s%n", requests, requests / (double) seconds);
+        System.out.printf("latência ms: p50=%.1f p95=%.1f p99=%.1f máx=%.1f%n",
+                percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99), percentile(sorted, 100));
+        stageMillis.forEach((stage, millis) ->
+                System.out.printf("etapa %-10s média=%.2f ms%n", stage, millis / (double) Math.max(1, requests)));
+    }
+
+    private static void renderOnce(ReportRenderService renderService, List<TemplateSource> parts,
+            Map<String, Object> fieldsJson, StageTimings timings) throws Exception {
+        try (RenderedDocument rendered = renderService.render(RenderRequest.of(parts, fieldsJson), timings)) {
+            rendered.writeTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static double percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static final class Worker {
+        private final List<Long> latencies = new ArrayList<>();
+        private final StageTimings timings = new StageTimings();
+    }
+}
@@ -0,0 +1,72 @@
+package com.viacerta.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.viacerta.service.BenchmarkServices;
+import com.viacerta.service.LibreOfficeConverterService;
+
+/**
+ * Etapa de junção: LibreOfficeConverterService.unifyDocuments sobre PDFs gerados com o PDFBox.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MergeBenchmark {
+    @Param({ "2", "5" })
+    public int parts;
+
+    @Param({ "1", "50" })
+    public int pagesPerPart;
+
+    private Path workDir;
+    private List<File> pdfFiles;
+    private LibreOfficeConverterService converter;
+
+    @Setup
+    public void setup() throws IOException {
+        workDir = Files.createTempDirectory("merge-benchmark");
+        converter = BenchmarkServices.converter(workDir);
+        byte[] pdf = DocxFixtures.pdf(pagesPerPart);
+        pdfFiles = new ArrayList<>();
+        for (int i = 0; i < parts; i++) {
+            Path file = workDir.resolve("part-" + i + ".pdf");
+            Files.write(file, pdf);
+            pdfFiles.add(file.toFile());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (File file : pdfFiles) {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    @Benchmark
+    public void merge() throws IOException {
+        converter.unifyDocuments(pdfFiles, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,40 @@
+package com.viacerta.benchmarks;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Template sintético e dados compartilhados pelos benchmarks de etapa. Os valores padrão
+ * dos parâmetros podem ser trocados na linha de comando com -p (ex.: -p paragraphs=2000).
+ */
+@State(Scope.Benchmark)
+public class TemplateState {
+    @Param({ "50", "500" })
+    public int paragraphs;
+
+    @Param({ "0", "10" })
+    public int tables;
+
+    @Param({ "20", "200" })
+    public int fields;
+
+    @Param({ "0", "2" })
+    public int headerImages;
+
+    public byte[] templateBytes;
+    public Map<String, Object> fieldsJson;
+    public Map<String, String> stringFields;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        templateBytes = DocxFixtures.template(paragraphs, tables, fields, headerImages);
+        fieldsJson = DocxFixtures.fields(fields);
+        stringFields = DocxFixtures.stringFields(fields);
+    }
+}
@@ -0,0 +1,107 @@
+package com.viacerta.service;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.runtime.configuration.MemorySize;
+
+/**
+ * Monta os serviços fora do CDI para os benchmarks. Fica no pacote dos serviços para poder
+ * preencher os campos de configuração, que são package-private.
+ */
+public final class BenchmarkServices {
+    private BenchmarkServices() {
+    }
+
+    public static ProcessDocumentWithFreemarkerService freemarker() {
+        return freemarker(false);
+    }
+
+    // Em paralelo sem limite mínimo, para comparar com o caminho sequencial no mesmo template
+    public static ProcessDocumentWithFreemarkerService freemarker(boolean parallel) {
+        return new ProcessDocumentWithFreemarkerService(new PlaceholderEngine(), images(), 64, Duration.ofHours(1),
+                parallel, 0);
+    }
+
+    public static ImageAssetService images() {
+        return new ImageAssetService(System.getProperty("java.io.tmpdir") + "/image-assets", 256, Duration.ofHours(6),
+                150);
+    }
+
+    public static FreemarkerProcessorService legacyProcessor() {
+        PlaceholderEngine placeholderEngine = new PlaceholderEngine();
+        return new FreemarkerProcessorService(placeholderEngine, rules(placeholderEngine));
+    }
+
+    public static RuleEvaluatorService rules(PlaceholderEngine placeholderEngine) {
+        return new RuleEvaluatorService(placeholderEngine, 64, Duration.ofHours(1));
+    }
+
+    public static LibreOfficeConverterService converter(Path workDir) {
+        LibreOfficeConverterService converter = new LibreOfficeConverterService(null);
+        configure(converter, workDir);
+        return converter;
+    }
+
+    /**
+     * Conversor que grava o .docx como o real, mas devolve um PDF fixo em vez de chamar o LibreOffice.
+     */
+    public static LibreOfficeConverterService stubConverter(Path workDir, byte[] pdf) {
+        LibreOfficeConverterService converter = new LibreOfficeConverterService(null) {
+            @Override
+            public ConversionResult convert(XWPFDocument document, OutputOptions output, StageTimings timings)
+                    throws Exception {
+                Files.createDirectories(workDir);
+                Path conversionDir = Files.createTempDirectory(workDir, "conv-");
+                Path docxFile = conversionDir.resolve("document.docx");
+                Path pdfFile = conversionDir.resolve("document.pdf");
+                timings.time("serialize", () -> {
+                    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(docxFile))) {
+                        document.write(out);
+                    }
+                    return null;
+                });
+                Files.write(pdfFile, pdf);
+                return new ConversionResult(conversionDir, pdfFile);
+            }
+        };
+        configure(converter, workDir);
+        return converter;
+    }
+
+    public static ReportRenderService renderService(LibreOfficeConverterService converter, boolean parallelParts) {
+        return new ReportRenderService(freemarker(), converter, new PdfBoxConverterService(converter),
+                rules(new PlaceholderEngine()), scheduler(), localQueue(), parallelParts, "libreoffice");
+    }
+
+    // Papel all: a fila não é usada e a geração roda no próprio processo
+    public static RenderQueueService localQueue() {
+        String tmp = System.getProperty("java.io.tmpdir");
+        return new RenderQueueService(new ObjectMapper(), List.of("all"), "memory", tmp + "/render-queue",
+                Duration.ofMillis(200), Duration.ofMinutes(10), tmp + "/render-blobs", Duration.ofMinutes(5),
+                Duration.ofHours(1));
+    }
+
+    // Um tenant só e sem limite de gerações simultâneas; slots pelo número de processadores
+    public static TenantScheduler scheduler() {
+        return new TenantScheduler(new SimpleMeterRegistry(), Integer.MAX_VALUE, 0, false, 0, 4,
+                Duration.ofMinutes(10), Optional.empty(), Optional.empty());
+    }
+
+    private static void configure(LibreOfficeConverterService converter, Path workDir) {
+        converter.workDirectory = workDir.toString();
+        converter.commandTimeout = Duration.ofMinutes(2);
+        converter.mergeMaxHeap = new MemorySize(BigInteger.valueOf(32L * 1024 * 1024));
+    }
+}
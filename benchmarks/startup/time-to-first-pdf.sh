@@ -0,0 +1,59 @@
+#!/usr/bin/env bash
+# Mede o tempo entre iniciar a aplicação e receber o primeiro PDF de /generateV2 (mediana de N execuções).
+#
+# Uso: benchmarks/startup/time-to-first-pdf.sh jvm|native [execuções]
+#   jvm    -> java -jar target/quarkus-app/quarkus-run.jar   (./mvnw package)
+#   native -> target/*-runner                                (./mvnw package -Dnative)
+# Requer o LibreOffice no PATH (converter.libreoffice.command) e o benchmarks.jar já empacotado.
+set -euo pipefail
+
+MODE=${1:-jvm}
+RUNS=${2:-5}
+PORT=${PORT:-8089}
+ROOT=$(cd "$(dirname "$0")/../.." && pwd)
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+
+# Propriedades de sistema: na JVM precisam vir antes do -jar (depois dele viram argumentos da aplicação);
+# o executável nativo aceita -D como argumento
+PROPS=(-Dquarkus.http.port="$PORT" -Dpdfbox.fontcache="$WORK")
+case "$MODE" in
+    jvm) COMMAND=(java "${PROPS[@]}" -jar "$ROOT/target/quarkus-app/quarkus-run.jar") ;;
+    native) COMMAND=("$(ls "$ROOT"/target/*-runner | head -n 1)" "${PROPS[@]}") ;;
+    *) echo "Modo inválido: $MODE (use jvm ou native)" >&2; exit 1 ;;
+esac
+
+java -cp "$ROOT/benchmarks/target/benchmarks.jar" com.viacerta.benchmarks.FixtureWriter "$WORK" > /dev/null
+
+now_ms() {
+    date +%s%3N
+}
+
+results=()
+for run in $(seq 1 "$RUNS"); do
+    start=$(now_ms)
+    "${COMMAND[@]}" > "$WORK/app-$run.log" 2>&1 &
+    pid=$!
+
+    # Repete a requisição até o primeiro PDF válido; conexões recusadas durante o boot são esperadas
+    until status=$(curl -s -o "$WORK/out.pdf" -w '%{http_code}' \
+            -F "file=@$WORK/template.docx" -F "fieldsJson=<$WORK/fields.json" \
+            "http://localhost:$PORT/generateV2") \
+            && [ "$status" = "200" ] && head -c 4 "$WORK/out.pdf" | grep -q '%PDF'; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "A aplicação terminou antes de responder:" >&2
+            tail -n 20 "$WORK/app-$run.log" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    elapsed=$(( $(now_ms) - start ))
+
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    results+=("$elapsed")
+    echo "$MODE execução $run: ${elapsed} ms"
+done
+
+median=$(printf '%s\n' "${results[@]}" | sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }')
+echo "$MODE tempo até o primeiro PDF (mediana de $RUNS): ${median} ms"
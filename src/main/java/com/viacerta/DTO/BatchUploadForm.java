@@ -0,0 +1,44 @@
+package com.viacerta.DTO;
+
+import java.io.InputStream;
+
+import jakarta.ws.rs.FormParam;
+import jakarta.ws.rs.core.MediaType;
+
+import org.jboss.resteasy.annotations.providers.multipart.PartType;
+
+public class BatchUploadForm {
+    @FormParam("file")
+    @PartType(MediaType.APPLICATION_OCTET_STREAM)
+    public InputStream docFile;
+
+    // Array JSON ou NDJSON com um mapa de campos por registro
+    @FormParam("recordsJson")
+    @PartType(MediaType.APPLICATION_OCTET_STREAM)
+    public InputStream recordsJson;
+
+    // Mapa JSON de regras, o mesmo para todos os registros
+    @FormParam("rulesJson")
+    @PartType(MediaType.TEXT_PLAIN)
+    public String rulesJson;
+
+    @FormParam("split")
+    @PartType(MediaType.TEXT_PLAIN)
+    public String split;
+
+    public InputStream getDocFile() {
+        return docFile;
+    }
+
+    public InputStream getRecordsJson() {
+        return recordsJson;
+    }
+
+    public String getRulesJson() {
+        return rulesJson;
+    }
+
+    public boolean isSplit() {
+        return Boolean.parseBoolean(split);
+    }
+}
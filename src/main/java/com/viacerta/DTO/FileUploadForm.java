@@ -1,36 +1,41 @@
 package com.viacerta.DTO;
 
-import java.io.InputStream;
-
-import jakarta.ws.rs.FormParam;
-import jakarta.ws.rs.core.MediaType;
 import java.util.Map;
 
-import org.jboss.resteasy.annotations.providers.multipart.PartType;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
 
+import com.viacerta.service.UploadedFile;
 
-public class FileUploadForm  {
-    @FormParam("file")
-    @PartType(MediaType.APPLICATION_OCTET_STREAM)
-    public InputStream docFile;
+/**
+ * Partes do formulário multipart de geração, lidas em streaming pelo MultipartUploadReader.
+ * Arquivos ausentes ou enviados vazios ficam null; close apaga os que foram para arquivo temporário.
+ */
+public class FileUploadForm implements AutoCloseable {
+    @Schema(name = "file", type = SchemaType.STRING, format = "binary")
+    public UploadedFile docFile;
 
-    @FormParam("fileSubReport")
-    @PartType(MediaType.APPLICATION_OCTET_STREAM)
-    public InputStream docFileSubReport;
+    @Schema(name = "fileSubReport", type = SchemaType.STRING, format = "binary")
+    public UploadedFile docFileSubReport;
 
-    @FormParam("fieldsJson")
-    @PartType(MediaType.APPLICATION_JSON)
     public Map<String, Object> fieldsJson;
 
-    @FormParam("rulesJson")
-    @PartType(MediaType.APPLICATION_JSON)
     public Map<String, Boolean> rulesJson;
 
-    public InputStream getDocFile() {
+    // libreoffice ou pdfbox; vazio usa o do template ou o padrão
+    public String converter;
+
+    // docx, pdf ou pdf-a; vazio gera pdf
+    public String output;
+
+    // Compressão das imagens no PDF: lossless, low, medium ou high; vazio mantém a do LibreOffice
+    public String compression;
+
+    public UploadedFile getDocFile() {
         return docFile;
     }
 
-    public InputStream getDocFileSubReport() {
+    public UploadedFile getDocFileSubReport() {
         return docFileSubReport;
     }
 
@@ -41,4 +46,26 @@ public class FileUploadForm  {
     public Map<String, Boolean> getRulesJson() {
         return rulesJson;
     }
+
+    public String getConverter() {
+        return converter;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    @Override
+    public void close() {
+        if (docFile != null) {
+            docFile.close();
+        }
+        if (docFileSubReport != null) {
+            docFileSubReport.close();
+        }
+    }
 }
@@ -0,0 +1,38 @@
+package com.viacerta.DTO;
+
+import java.time.Instant;
+import java.util.Map;
+
+import com.viacerta.service.RenderJob;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+@RegisterForReflection
+public class RenderJobStatus {
+    public String id;
+
+    public String status;
+
+    public Instant createdAt;
+
+    public Instant startedAt;
+
+    public Instant finishedAt;
+
+    public String error;
+
+    // Milissegundos por etapa: queue, parse, freemarker, convert, merge
+    public Map<String, Long> stageMillis;
+
+    public static RenderJobStatus of(RenderJob job) {
+        RenderJobStatus status = new RenderJobStatus();
+        status.id = job.getId();
+        status.status = job.getStatus().name();
+        status.createdAt = job.getCreatedAt();
+        status.startedAt = job.getStartedAt();
+        status.finishedAt = job.getFinishedAt();
+        status.error = job.getError();
+        status.stageMillis = job.getTimings().toMillis();
+        return status;
+    }
+}
@@ -0,0 +1,23 @@
+package com.viacerta.DTO;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+@RegisterForReflection
+public class TemplateRegistration {
+    public String id;
+
+    public long size;
+
+    public TemplateRegistration(String id, long size) {
+        this.id = id;
+        this.size = size;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getSize() {
+        return size;
+    }
+}
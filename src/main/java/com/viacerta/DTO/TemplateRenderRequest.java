@@ -0,0 +1,55 @@
+package com.viacerta.DTO;
+
+import java.util.List;
+import java.util.Map;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+@RegisterForReflection
+public class TemplateRenderRequest {
+    public Map<String, Object> fieldsJson;
+
+    public Map<String, Boolean> rulesJson;
+
+    public String subReportId;
+
+    // Subrelatórios adicionais, gerados em paralelo e anexados nesta ordem após subReportId
+    public List<String> subReportIds;
+
+    // libreoffice ou pdfbox; vazio usa o do template ou o padrão
+    public String converter;
+
+    // docx, pdf ou pdf-a; vazio gera pdf
+    public String output;
+
+    // Compressão das imagens no PDF: lossless, low, medium ou high; vazio mantém a do LibreOffice
+    public String compression;
+
+    public Map<String, Object> getFieldsJson() {
+        return fieldsJson;
+    }
+
+    public Map<String, Boolean> getRulesJson() {
+        return rulesJson;
+    }
+
+    public String getSubReportId() {
+        return subReportId;
+    }
+
+    public List<String> getSubReportIds() {
+        return subReportIds;
+    }
+
+    public String getConverter() {
+        return converter;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+}
@@ -0,0 +1,26 @@
+package com.viacerta.cache;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Impressão digital SHA-256 usada como chave de cache de conteúdo.
+ */
+public final class Fingerprint {
+    private Fingerprint() {
+    }
+
+    public static String sha256(byte[] content) {
+        MessageDigest digest = newDigest();
+        return HexFormat.of().formatHex(digest.digest(content));
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível na JVM", e);
+        }
+    }
+}
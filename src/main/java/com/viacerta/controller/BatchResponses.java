@@ -0,0 +1,40 @@
+package com.viacerta.controller;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.viacerta.service.BatchRenderService;
+import com.viacerta.service.ConversionResult;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+/**
+ * Resposta comum dos endpoints de lote: PDF único com as páginas iniciais de cada registro
+ * no cabeçalho X-Record-Pages, ou um ZIP com um PDF por registro.
+ */
+final class BatchResponses {
+    private BatchResponses() {
+    }
+
+    static Response build(BatchRenderService batchRenderService, ConversionResult result,
+            List<Integer> recordStartPages, boolean split) throws Exception {
+        if (split) {
+            StreamingOutput zip = output -> {
+                try (result) {
+                    batchRenderService.splitToZip(result.getPdf().toFile(), recordStartPages, output);
+                }
+            };
+            Response.ResponseBuilder response = Response.ok(zip);
+            response.header("Content-Disposition", "attachment; filename=\"relatorios.zip\"");
+            response.type("application/zip");
+            return response.build();
+        }
+
+        return PdfResponses.attachment(result, "relatorios.pdf")
+                .header("X-Record-Pages", recordStartPages.stream()
+                        .map(String::valueOf)
+                        .collect(Collectors.joining(",")))
+                .build();
+    }
+}
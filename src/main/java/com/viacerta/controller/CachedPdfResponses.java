@@ -0,0 +1,61 @@
+package com.viacerta.controller;
+
+import java.util.concurrent.Callable;
+
+import com.viacerta.service.CachedDocument;
+import com.viacerta.service.RenderCacheService;
+import com.viacerta.service.RenderedDocument;
+import com.viacerta.service.StageTimings;
+
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Geração com o cache de resultados na frente: If-None-Match com a chave da requisição responde 304,
+ * Cache-Control: no-cache ignora o PDF em cache (e o substitui) e no-store também não grava.
+ */
+final class CachedPdfResponses {
+    private CachedPdfResponses() {
+    }
+
+    static Response attachment(RenderCacheService renderCache, String cacheKey, String ifNoneMatch,
+            String cacheControl, Callable<RenderedDocument> render, String fileName, String mediaType,
+            StageTimings timings)
+            throws Exception {
+        if (cacheKey == null) {
+            return PdfResponses.attachment(render.call(), fileName, mediaType, timings).build();
+        }
+
+        EntityTag etag = new EntityTag(cacheKey);
+        // "*" só vale se há uma representação em cache para a chave; sem ela a requisição segue normalmente
+        if (ifNoneMatch != null && (ifNoneMatch.contains("\"" + cacheKey + "\"")
+                || ifNoneMatch.trim().equals("*") && renderCache.contains(cacheKey))) {
+            timings.finish();
+            return Response.notModified(etag).build();
+        }
+
+        boolean noStore = cacheControl != null && cacheControl.contains("no-store");
+        boolean noCache = noStore || cacheControl != null && cacheControl.contains("no-cache");
+        if (!noCache) {
+            CachedDocument cached = renderCache.lookup(cacheKey);
+            if (cached != null) {
+                return PdfResponses.attachment(cached, fileName, mediaType, timings)
+                        .tag(etag)
+                        .header("X-Cache", "HIT")
+                        .build();
+            }
+        }
+
+        RenderedDocument rendered = render.call();
+        if (noStore) {
+            return PdfResponses.attachment(rendered, fileName, mediaType, timings)
+                    .tag(etag)
+                    .header("X-Cache", "BYPASS")
+                    .build();
+        }
+        return PdfResponses.attachment(renderCache.store(cacheKey, rendered), fileName, mediaType, timings)
+                .tag(etag)
+                .header("X-Cache", "MISS")
+                .build();
+    }
+}
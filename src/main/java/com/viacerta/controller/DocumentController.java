@@ -1,21 +1,38 @@
 package com.viacerta.controller;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-
-import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.RequestBody;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
+import com.viacerta.DTO.BatchUploadForm;
 import com.viacerta.DTO.FileUploadForm;
-import com.viacerta.service.LibreOfficeConverterService;
-import com.viacerta.service.ProcessDocumentWithFreemarkerService;
+import com.viacerta.service.BatchRenderService;
+import com.viacerta.service.ConversionResult;
+import com.viacerta.service.ConverterEngine;
+import com.viacerta.service.MultipartUploadReader;
+import com.viacerta.service.OutputOptions;
+import com.viacerta.service.RenderCacheService;
+import com.viacerta.service.RenderMetrics;
+import com.viacerta.service.RenderRequest;
+import com.viacerta.service.ReportRenderService;
+import com.viacerta.service.StageTimings;
+import com.viacerta.service.TenantScheduler;
+import com.viacerta.service.TemplateSource;
 
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
@@ -25,63 +42,110 @@ import org.jboss.resteasy.annotations.providers.multipart.MultipartForm;
 @Tag(name = "Document Generation V2", description = "API para geração de relatórios a partir de templates word exportando em pdf.")
 public class DocumentController {
 
-    private ProcessDocumentWithFreemarkerService serviceFreemarker;
-    private LibreOfficeConverterService libreOfficeConverterService;
+    private ReportRenderService reportRenderService;
+    private BatchRenderService batchRenderService;
+    private RenderCacheService renderCacheService;
+    private RenderMetrics renderMetrics;
+    private MultipartUploadReader multipartUploadReader;
+    private TenantScheduler tenantScheduler;
 
     @Inject
-    public DocumentController(ProcessDocumentWithFreemarkerService serviceFreemarker,
+    public DocumentController(ReportRenderService reportRenderService, BatchRenderService batchRenderService,
+            RenderCacheService renderCacheService, RenderMetrics renderMetrics,
+            MultipartUploadReader multipartUploadReader, TenantScheduler tenantScheduler) {
+        this.reportRenderService = reportRenderService;
+        this.batchRenderService = batchRenderService;
+        this.renderCacheService = renderCacheService;
+        this.renderMetrics = renderMetrics;
+        this.multipartUploadReader = multipartUploadReader;
+        this.tenantScheduler = tenantScheduler;
+    }
 
-            LibreOfficeConverterService libreOfficeConverterService) {
-        this.serviceFreemarker = serviceFreemarker;
-        this.libreOfficeConverterService = libreOfficeConverterService;
+    @POST
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    @RequestBody(content = @Content(mediaType = MediaType.MULTIPART_FORM_DATA,
+            schema = @Schema(implementation = FileUploadForm.class)))
+    public Response generateReport(@HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType,
+            @HeaderParam(HttpHeaders.CONTENT_LENGTH) @DefaultValue("-1") long contentLength,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+            @HeaderParam(HttpHeaders.CACHE_CONTROL) String cacheControl,
+            @HeaderParam(TenantScheduler.TENANT_HEADER) String tenantId,
+            @HeaderParam(TenantScheduler.API_KEY_HEADER) String apiKey, InputStream body) {
+        StageTimings timings = renderMetrics.newTimings("generateReport");
+        try {
+            TenantScheduler.Caller caller = tenantScheduler.caller(tenantId, apiKey);
+            // As partes são lidas do corpo da requisição à medida que chegam
+            FileUploadForm form = timings.time("read",
+                    () -> multipartUploadReader.read(contentType, contentLength, body));
+            try (form) {
+                if (form.getDocFile() == null || form.getFieldsJson() == null) {
+                    timings.finish();
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity("Dados de entrada incompletos")
+                            .build();
+                }
+                ConverterEngine converter = ConverterEngine.fromValue(form.getConverter());
+                OutputOptions output = OutputOptions.of(form.getOutput(), form.getCompression());
+                List<TemplateSource> parts = ReportRenderService.parts(form.getDocFile(), form.getDocFileSubReport());
+                String cacheKey = renderCacheService.isEnabled()
+                        ? renderCacheService.key(parts, form.getFieldsJson(), form.getRulesJson(), converter, output)
+                        : null;
+                try (TenantScheduler.Permit permit = tenantScheduler.enter(caller)) {
+                    return CachedPdfResponses.attachment(renderCacheService, cacheKey, ifNoneMatch, cacheControl,
+                            () -> reportRenderService.render(new RenderRequest(parts, form.getFieldsJson(),
+                                    form.getRulesJson(), converter, output, caller), timings),
+                            output.format().fileName("relatorio"), output.format().mediaType(), timings);
+                }
+            }
+        } catch (MultipartUploadReader.LimitExceededException e) {
+            timings.finish();
+            return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).entity(e.getMessage()).build();
+        } catch (TenantScheduler.TenantLimitExceededException e) {
+            timings.finish();
+            return Response.status(Response.Status.TOO_MANY_REQUESTS).entity(e.getMessage()).build();
+        } catch (IllegalArgumentException e) {
+            timings.finish();
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (Exception e) {
+            timings.finish();
+            e.printStackTrace();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Erro ao gerar o relatório").build();
+        }
     }
 
     @POST
+    @Path("/batch")
     @Consumes(MediaType.MULTIPART_FORM_DATA)
     @Produces(MediaType.APPLICATION_OCTET_STREAM)
-    public Response generateReport(@MultipartForm FileUploadForm form) {
+    public Response generateBatch(@MultipartForm BatchUploadForm form,
+            @HeaderParam(TenantScheduler.TENANT_HEADER) String tenantId,
+            @HeaderParam(TenantScheduler.API_KEY_HEADER) String apiKey) {
         try {
-            if (form.getDocFile() == null || form.getFieldsJson() == null) {
+            TenantScheduler.Caller caller = tenantScheduler.caller(tenantId, apiKey);
+            if (form.getDocFile() == null || form.getRecordsJson() == null) {
                 return Response.status(Response.Status.BAD_REQUEST)
                         .entity("Dados de entrada incompletos")
                         .build();
             }
-            XWPFDocument document = new XWPFDocument(form.getDocFile());
-
-            serviceFreemarker.processDocumentWithFreemarker(document, form.getFieldsJson());
-
-            File pdfFile = libreOfficeConverterService.convertToPDF(document);
-            File subReportPdfFile = new File("subReport.pdf");
-
-            if (form.getDocFileSubReport() == null || form.getDocFileSubReport().available() == 0) {
-                Response.ResponseBuilder response = Response.ok((Object) new FileInputStream(pdfFile));
-                response.header("Content-Disposition", "attachment; filename=\"relatorio.pdf\"");
-                response.type("application/pdf");
-
-                pdfFile.delete();
-                return response.build();
-            }
-            XWPFDocument subReportDocument = new XWPFDocument(form.getDocFileSubReport());
-            //Processar o subrelatório
-            serviceFreemarker.processDocumentWithFreemarker(subReportDocument, form.getFieldsJson());
-            subReportPdfFile = libreOfficeConverterService.convertToPDF(subReportDocument);
-            byte[] mergedPdf = libreOfficeConverterService.unifyDocuments(pdfFile,subReportPdfFile);
-
-            if (mergedPdf == null || mergedPdf.length == 0) {
-                throw new IOException("Falha ao gerar o arquivo PDF");
+            byte[] templateBytes = form.getDocFile().readAllBytes();
+            List<Map<String, Object>> records = batchRenderService.readRecords(form.getRecordsJson());
+            Map<String, Boolean> rulesJson = batchRenderService.readRules(form.getRulesJson());
+
+            List<Integer> recordStartPages = new ArrayList<>();
+            ConversionResult result;
+            try (TenantScheduler.Permit permit = tenantScheduler.enter(caller)) {
+                result = batchRenderService.renderBatch(templateBytes, null, records, rulesJson, recordStartPages,
+                        caller);
             }
-
-            Response.ResponseBuilder response = Response.ok((Object) new FileInputStream(pdfFile));
-            response.header("Content-Disposition", "attachment; filename=\"relatorio.pdf\"");
-            response.type("application/pdf");
-
-            pdfFile.delete();
-            subReportPdfFile.delete();
-
-            return response.build();
+            return BatchResponses.build(batchRenderService, result, recordStartPages, form.isSplit());
+        } catch (TenantScheduler.TenantLimitExceededException e) {
+            return Response.status(Response.Status.TOO_MANY_REQUESTS).entity(e.getMessage()).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         } catch (Exception e) {
             e.printStackTrace();
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Erro ao gerar o relatório").build();
         }
     }
-}
\ No newline at end of file
+}
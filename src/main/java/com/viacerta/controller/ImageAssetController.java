@@ -0,0 +1,68 @@
+package com.viacerta.controller;
+
+import java.io.InputStream;
+
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import com.viacerta.DTO.ImageRegistration;
+import com.viacerta.service.ImageAssetService;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.PUT;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+@Path("/generateV2/images")
+@Tag(name = "Image Registry", description = "Registro de imagens (logos, assinaturas) usadas por ID nos placeholders ${img:...}.")
+public class ImageAssetController {
+
+    private ImageAssetService imageAssetService;
+
+    @Inject
+    public ImageAssetController(ImageAssetService imageAssetService) {
+        this.imageAssetService = imageAssetService;
+    }
+
+    @PUT
+    @Consumes({ MediaType.APPLICATION_OCTET_STREAM, "image/png", "image/jpeg", "image/gif", "image/bmp" })
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response registerImage(InputStream body) {
+        try {
+            byte[] imageBytes = body.readAllBytes();
+            if (imageBytes.length == 0) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Imagem vazia")
+                        .build();
+            }
+            String id = imageAssetService.register(imageBytes);
+            return Response.ok(new ImageRegistration(id, imageBytes.length))
+                    .tag(new EntityTag(id))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @DELETE
+    @Path("/{id}")
+    public Response deleteImage(@PathParam("id") String id) {
+        try {
+            if (!imageAssetService.delete(id)) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            return Response.noContent().build();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.viacerta.controller;
+
+import java.io.IOException;
+
+import com.viacerta.service.RenderedDocument;
+import com.viacerta.service.StageTimings;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+/**
+ * Envia o PDF direto do diretório de trabalho da conversão (ou unificando as partes no próprio stream
+ * da resposta) e apaga os temporários assim que a escrita termina. Na saída docx o documento é escrito
+ * direto no stream, sem conversão.
+ */
+final class PdfResponses {
+    private PdfResponses() {
+    }
+
+    static Response.ResponseBuilder attachment(RenderedDocument result, String fileName) throws IOException {
+        return attachment(result, fileName, new StageTimings());
+    }
+
+    /**
+     * Registra a escrita da resposta como etapa "response" e encerra a geração quando o envio termina.
+     */
+    static Response.ResponseBuilder attachment(RenderedDocument result, String fileName, StageTimings timings)
+            throws IOException {
+        return attachment(result, fileName, "application/pdf", timings);
+    }
+
+    static Response.ResponseBuilder attachment(RenderedDocument result, String fileName, String mediaType,
+            StageTimings timings) throws IOException {
+        StreamingOutput body = output -> {
+            long start = System.nanoTime();
+            try (result) {
+                result.writeTo(output);
+            } finally {
+                timings.record("response", System.nanoTime() - start);
+                timings.finish();
+            }
+        };
+        Response.ResponseBuilder response = Response.ok(body);
+        response.header("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        long size = result.size();
+        if (size >= 0) {
+            response.header("Content-Length", size);
+        }
+        response.type(mediaType);
+        return response;
+    }
+}
@@ -0,0 +1,141 @@
+package com.viacerta.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.RequestBody;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import com.viacerta.DTO.FileUploadForm;
+import com.viacerta.service.ConverterEngine;
+import com.viacerta.service.MultipartUploadReader;
+import com.viacerta.service.OutputOptions;
+import com.viacerta.service.RenderMetrics;
+import com.viacerta.service.RenderRequest;
+import com.viacerta.service.RenderedDocument;
+import com.viacerta.service.ReportRenderService;
+import com.viacerta.service.StageTimings;
+import com.viacerta.service.TemplateSource;
+import com.viacerta.service.TenantScheduler;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Mesma geração de POST /generateV2, sem prender a thread da requisição até o fim: depois da leitura do
+ * formulário a resposta é assíncrona, as etapas de CPU vão para o pool de renderização e a espera pelo
+ * LibreOffice não ocupa thread. O PDF é enviado em streaming a partir de uma thread de worker.
+ */
+@Path("/generateV2/reactive")
+@Tag(name = "Document Generation V2 (reactive)", description = "Geração de relatórios com resposta assíncrona.")
+public class ReactiveDocumentController {
+
+    private ReportRenderService reportRenderService;
+    private RenderMetrics renderMetrics;
+    private MultipartUploadReader multipartUploadReader;
+    private TenantScheduler tenantScheduler;
+
+    @Inject
+    public ReactiveDocumentController(ReportRenderService reportRenderService, RenderMetrics renderMetrics,
+            MultipartUploadReader multipartUploadReader, TenantScheduler tenantScheduler) {
+        this.reportRenderService = reportRenderService;
+        this.renderMetrics = renderMetrics;
+        this.multipartUploadReader = multipartUploadReader;
+        this.tenantScheduler = tenantScheduler;
+    }
+
+    @POST
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    @RequestBody(content = @Content(mediaType = MediaType.MULTIPART_FORM_DATA,
+            schema = @Schema(implementation = FileUploadForm.class)))
+    public Uni<Response> generateReport(@HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType,
+            @HeaderParam(HttpHeaders.CONTENT_LENGTH) @DefaultValue("-1") long contentLength,
+            @HeaderParam(TenantScheduler.TENANT_HEADER) String tenantId,
+            @HeaderParam(TenantScheduler.API_KEY_HEADER) String apiKey, InputStream body) {
+        StageTimings timings = renderMetrics.newTimings("generateReportReactive");
+        TenantScheduler.Caller caller;
+        FileUploadForm form;
+        ConverterEngine converter;
+        OutputOptions output;
+        TenantScheduler.Permit permit;
+        try {
+            caller = tenantScheduler.caller(tenantId, apiKey);
+            form = timings.time("read", () -> multipartUploadReader.read(contentType, contentLength, body));
+        } catch (Exception e) {
+            return Uni.createFrom().item(failed(e, timings));
+        }
+        try {
+            if (form.getDocFile() == null || form.getFieldsJson() == null) {
+                form.close();
+                timings.finish();
+                return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Dados de entrada incompletos")
+                        .build());
+            }
+            converter = ConverterEngine.fromValue(form.getConverter());
+            output = OutputOptions.of(form.getOutput(), form.getCompression());
+            permit = tenantScheduler.enter(caller);
+        } catch (Exception e) {
+            form.close();
+            return Uni.createFrom().item(failed(e, timings));
+        }
+
+        List<TemplateSource> parts = ReportRenderService.parts(form.getDocFile(), form.getDocFileSubReport());
+        return Uni.createFrom()
+                .completionStage(() -> reportRenderService.renderAsync(new RenderRequest(parts, form.getFieldsJson(),
+                        form.getRulesJson(), converter, output, caller), timings))
+                .onTermination().invoke(() -> {
+                    permit.close();
+                    // O template já foi lido: os arquivos temporários do upload podem sair
+                    form.close();
+                })
+                // A escrita do PDF é bloqueante: não pode ficar na thread que concluiu a conversão
+                .emitOn(Infrastructure.getDefaultWorkerPool())
+                .onItem().transform(rendered -> attachment(rendered, output, timings))
+                .onFailure().recoverWithItem(failure -> failed(failure, timings));
+    }
+
+    private static Response attachment(RenderedDocument rendered, OutputOptions output, StageTimings timings) {
+        try {
+            return PdfResponses.attachment(rendered, output.format().fileName("relatorio"),
+                    output.format().mediaType(), timings).build();
+        } catch (IOException e) {
+            rendered.close();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Response failed(Throwable failure, StageTimings timings) {
+        timings.finish();
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause()
+                : failure;
+        if (cause instanceof MultipartUploadReader.LimitExceededException) {
+            return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).entity(cause.getMessage()).build();
+        }
+        if (cause instanceof TenantScheduler.TenantLimitExceededException) {
+            return Response.status(Response.Status.TOO_MANY_REQUESTS).entity(cause.getMessage()).build();
+        }
+        if (cause instanceof IllegalArgumentException) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(cause.getMessage()).build();
+        }
+        cause.printStackTrace();
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Erro ao gerar o relatório").build();
+    }
+}
@@ -0,0 +1,146 @@
+package com.viacerta.controller;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.RequestBody;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import com.viacerta.DTO.FileUploadForm;
+import com.viacerta.DTO.RenderJobStatus;
+import com.viacerta.service.ConverterEngine;
+import com.viacerta.service.MultipartUploadReader;
+import com.viacerta.service.OutputOptions;
+import com.viacerta.service.RenderJob;
+import com.viacerta.service.RenderJobService;
+import com.viacerta.service.TenantScheduler;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+@Path("/generateV2/jobs")
+@Tag(name = "Document Generation Jobs", description = "Geração assíncrona de relatórios com fila limitada.")
+public class RenderJobController {
+
+    private RenderJobService renderJobService;
+    private MultipartUploadReader multipartUploadReader;
+    private TenantScheduler tenantScheduler;
+
+    @Inject
+    public RenderJobController(RenderJobService renderJobService, MultipartUploadReader multipartUploadReader,
+            TenantScheduler tenantScheduler) {
+        this.renderJobService = renderJobService;
+        this.multipartUploadReader = multipartUploadReader;
+        this.tenantScheduler = tenantScheduler;
+    }
+
+    @POST
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @Produces(MediaType.APPLICATION_JSON)
+    @RequestBody(content = @Content(mediaType = MediaType.MULTIPART_FORM_DATA,
+            schema = @Schema(implementation = FileUploadForm.class)))
+    public Response submitJob(@HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType,
+            @HeaderParam(HttpHeaders.CONTENT_LENGTH) @DefaultValue("-1") long contentLength,
+            @HeaderParam(TenantScheduler.TENANT_HEADER) String tenantId,
+            @HeaderParam(TenantScheduler.API_KEY_HEADER) String apiKey, InputStream body) {
+        try {
+            TenantScheduler.Caller caller = tenantScheduler.caller(tenantId, apiKey);
+            FileUploadForm form = multipartUploadReader.read(contentType, contentLength, body);
+            ConverterEngine converter;
+            OutputOptions output;
+            try {
+                if (form.getDocFile() == null || form.getFieldsJson() == null) {
+                    form.close();
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity("Dados de entrada incompletos")
+                            .build();
+                }
+                converter = ConverterEngine.fromValue(form.getConverter());
+                output = OutputOptions.of(form.getOutput(), form.getCompression());
+            } catch (RuntimeException e) {
+                form.close();
+                throw e;
+            }
+
+            // A partir daqui os arquivos do upload são do job, que os apaga ao terminar
+            RenderJob job = renderJobService.submit(form, converter, output, caller);
+            return Response.accepted(RenderJobStatus.of(job))
+                    .location(URI.create("/generateV2/jobs/" + job.getId()))
+                    .build();
+        } catch (MultipartUploadReader.LimitExceededException e) {
+            return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).entity(e.getMessage()).build();
+        } catch (TenantScheduler.TenantLimitExceededException e) {
+            return Response.status(Response.Status.TOO_MANY_REQUESTS).entity(e.getMessage()).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (RejectedExecutionException e) {
+            return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                    .header("Retry-After", renderJobService.estimateRetryAfterSeconds())
+                    .entity("Fila de geração cheia")
+                    .build();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Erro ao enfileirar o relatório").build();
+        }
+    }
+
+    @GET
+    @Path("/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getJob(@PathParam("id") String id) {
+        RenderJob job = renderJobService.get(id);
+        if (job == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.ok(RenderJobStatus.of(job)).build();
+    }
+
+    @GET
+    @Path("/{id}/result")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public Response getResult(@PathParam("id") String id) {
+        try {
+            RenderJob job = renderJobService.get(id);
+            if (job == null) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            if (job.getStatus() != RenderJob.Status.DONE) {
+                return Response.status(Response.Status.CONFLICT)
+                        .entity("Job ainda não concluído: " + job.getStatus())
+                        .build();
+            }
+            Response.ResponseBuilder response = Response.ok((Object) new FileInputStream(job.getResultFile()));
+            response.header("Content-Disposition",
+                    "attachment; filename=\"" + job.getFormat().fileName("relatorio") + "\"");
+            response.type(job.getFormat().mediaType());
+            return response.build();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Erro ao obter o relatório").build();
+        }
+    }
+
+    @DELETE
+    @Path("/{id}")
+    public Response deleteJob(@PathParam("id") String id) {
+        if (!renderJobService.remove(id)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.noContent().build();
+    }
+}
@@ -0,0 +1,202 @@
+package com.viacerta.controller;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import com.viacerta.DTO.TemplateRegistration;
+import com.viacerta.DTO.TemplateRenderRequest;
+import com.viacerta.service.BatchRenderService;
+import com.viacerta.service.ConversionResult;
+import com.viacerta.service.ConverterEngine;
+import com.viacerta.service.OutputOptions;
+import com.viacerta.service.RenderCacheService;
+import com.viacerta.service.RenderMetrics;
+import com.viacerta.service.RenderRequest;
+import com.viacerta.service.ReportRenderService;
+import com.viacerta.service.StageTimings;
+import com.viacerta.service.TemplateRegistryService;
+import com.viacerta.service.TemplateSource;
+import com.viacerta.service.TenantScheduler;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.PUT;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+@Path("/generateV2/templates")
+@Tag(name = "Template Registry", description = "Registro de templates word para geração repetida por ID, sem reenviar o arquivo.")
+public class TemplateRegistryController {
+
+    private TemplateRegistryService templateRegistryService;
+    private ReportRenderService reportRenderService;
+    private BatchRenderService batchRenderService;
+    private RenderCacheService renderCacheService;
+    private RenderMetrics renderMetrics;
+    private TenantScheduler tenantScheduler;
+
+    @Inject
+    public TemplateRegistryController(TemplateRegistryService templateRegistryService,
+            ReportRenderService reportRenderService, BatchRenderService batchRenderService,
+            RenderCacheService renderCacheService, RenderMetrics renderMetrics, TenantScheduler tenantScheduler) {
+        this.templateRegistryService = templateRegistryService;
+        this.reportRenderService = reportRenderService;
+        this.batchRenderService = batchRenderService;
+        this.renderCacheService = renderCacheService;
+        this.renderMetrics = renderMetrics;
+        this.tenantScheduler = tenantScheduler;
+    }
+
+    @PUT
+    @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response registerTemplate(InputStream body) {
+        try {
+            byte[] templateBytes = body.readAllBytes();
+            if (templateBytes.length == 0) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Template vazio")
+                        .build();
+            }
+            String id = templateRegistryService.register(templateBytes);
+            return Response.ok(new TemplateRegistration(id, templateBytes.length))
+                    .tag(new EntityTag(id))
+                    .build();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Response.status(Response.Status.BAD_REQUEST).entity("Template inválido").build();
+        }
+    }
+
+    @DELETE
+    @Path("/{id}")
+    public Response deleteTemplate(@PathParam("id") String id) {
+        try {
+            if (!templateRegistryService.delete(id)) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            return Response.noContent().build();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @POST
+    @Path("/{id}/render")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public Response renderTemplate(@PathParam("id") String id, TemplateRenderRequest request,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+            @HeaderParam(HttpHeaders.CACHE_CONTROL) String cacheControl,
+            @HeaderParam(TenantScheduler.TENANT_HEADER) String tenantId,
+            @HeaderParam(TenantScheduler.API_KEY_HEADER) String apiKey) {
+        try {
+            if (request == null || request.getFieldsJson() == null) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Dados de entrada incompletos")
+                        .build();
+            }
+            TenantScheduler.Caller caller;
+            ConverterEngine converter;
+            OutputOptions output;
+            try {
+                caller = tenantScheduler.caller(tenantId, apiKey);
+                converter = ConverterEngine.fromValue(request.getConverter());
+                output = OutputOptions.of(request.getOutput(), request.getCompression());
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            }
+            byte[] templateBytes = templateRegistryService.load(id);
+            if (templateBytes == null) {
+                return Response.status(Response.Status.NOT_FOUND).entity("Template não encontrado").build();
+            }
+            List<String> subReportIds = new ArrayList<>();
+            if (request.getSubReportId() != null) {
+                subReportIds.add(request.getSubReportId());
+            }
+            if (request.getSubReportIds() != null) {
+                subReportIds.addAll(request.getSubReportIds());
+            }
+
+            List<TemplateSource> parts = new ArrayList<>();
+            parts.add(new TemplateSource(templateBytes, id));
+            for (String subReportId : subReportIds) {
+                byte[] subReportBytes = templateRegistryService.load(subReportId);
+                if (subReportBytes == null) {
+                    return Response.status(Response.Status.NOT_FOUND).entity("Subrelatório não encontrado").build();
+                }
+                parts.add(new TemplateSource(subReportBytes, subReportId));
+            }
+
+            String cacheKey = renderCacheService.isEnabled()
+                    ? renderCacheService.key(parts, request.getFieldsJson(), request.getRulesJson(), converter,
+                            output)
+                    : null;
+            StageTimings timings = renderMetrics.newTimings("renderTemplate");
+            try (TenantScheduler.Permit permit = tenantScheduler.enter(caller)) {
+                return CachedPdfResponses.attachment(renderCacheService, cacheKey, ifNoneMatch, cacheControl,
+                        () -> reportRenderService.render(new RenderRequest(parts, request.getFieldsJson(),
+                                request.getRulesJson(), converter, output, caller), timings),
+                        output.format().fileName("relatorio"), output.format().mediaType(), timings);
+            } catch (Exception e) {
+                timings.finish();
+                throw e;
+            }
+        } catch (TenantScheduler.TenantLimitExceededException e) {
+            return Response.status(Response.Status.TOO_MANY_REQUESTS).entity(e.getMessage()).build();
+        } catch (IllegalArgumentException e) {
+            // Dados inválidos para o template, ex.: imagem em base64 inválido
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Erro ao gerar o relatório").build();
+        }
+    }
+
+    @POST
+    @Path("/{id}/batch")
+    @Consumes({ MediaType.APPLICATION_JSON, "application/x-ndjson" })
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public Response renderBatch(@PathParam("id") String id, @QueryParam("split") boolean split,
+            @HeaderParam(TenantScheduler.TENANT_HEADER) String tenantId,
+            @HeaderParam(TenantScheduler.API_KEY_HEADER) String apiKey, InputStream records) {
+        try {
+            TenantScheduler.Caller caller = tenantScheduler.caller(tenantId, apiKey);
+            byte[] templateBytes = templateRegistryService.load(id);
+            if (templateBytes == null) {
+                return Response.status(Response.Status.NOT_FOUND).entity("Template não encontrado").build();
+            }
+            List<Map<String, Object>> recordList = batchRenderService.readRecords(records);
+
+            List<Integer> recordStartPages = new ArrayList<>();
+            ConversionResult result;
+            try (TenantScheduler.Permit permit = tenantScheduler.enter(caller)) {
+                // O corpo traz só os registros: nenhuma regra ligada, como no registro do template
+                result = batchRenderService.renderBatch(templateBytes, id, recordList, Map.of(), recordStartPages,
+                        caller);
+            }
+            return BatchResponses.build(batchRenderService, result, recordStartPages, split);
+        } catch (TenantScheduler.TenantLimitExceededException e) {
+            return Response.status(Response.Status.TOO_MANY_REQUESTS).entity(e.getMessage()).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Erro ao gerar o relatório").build();
+        }
+    }
+}
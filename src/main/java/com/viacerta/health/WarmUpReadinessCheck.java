@@ -0,0 +1,40 @@
+package com.viacerta.health;
+
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+
+import com.viacerta.service.WarmUpService;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Readiness (/q/health/ready) DOWN enquanto o aquecimento não termina. Uma falha no aquecimento
+ * é registrada nos dados da verificação e no log, mas não prende a instância fora do balanceamento.
+ */
+@Readiness
+@ApplicationScoped
+public class WarmUpReadinessCheck implements HealthCheck {
+    private WarmUpService warmUpService;
+
+    @Inject
+    public WarmUpReadinessCheck(WarmUpService warmUpService) {
+        this.warmUpService = warmUpService;
+    }
+
+    @Override
+    public HealthCheckResponse call() {
+        HealthCheckResponseBuilder response = HealthCheckResponse.named("render-warm-up")
+                .status(warmUpService.isCompleted())
+                .withData("enabled", warmUpService.isEnabled());
+        if (warmUpService.getDurationMillis() >= 0) {
+            response.withData("durationMs", warmUpService.getDurationMillis());
+        }
+        if (warmUpService.getFailure() != null) {
+            response.withData("failure", warmUpService.getFailure());
+        }
+        return response.build();
+    }
+}
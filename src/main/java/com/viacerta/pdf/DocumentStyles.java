@@ -0,0 +1,87 @@
+package com.viacerta.pdf;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.xmlbeans.XmlObject;
+
+/**
+ * Propriedades padrão do documento (docDefaults e estilo de parágrafo padrão) e os estilos por ID.
+ * Outros estilos não são resolvidos pelo renderizador: parágrafos e runs que os usam vão para o LibreOffice.
+ */
+final class DocumentStyles {
+    private final Map<String, XmlObject> styles = new HashMap<>();
+    private String defaultParagraphStyleId;
+    private XmlObject defaultRunProperties;
+    private XmlObject defaultParagraphProperties;
+    private XmlObject normalRunProperties;
+    private XmlObject normalParagraphProperties;
+
+    private DocumentStyles() {
+    }
+
+    static DocumentStyles of(XWPFDocument document) {
+        DocumentStyles documentStyles = new DocumentStyles();
+        XmlObject root;
+        try {
+            root = document.getStyle();
+        } catch (Exception e) {
+            // Documento sem a parte de estilos: valem os padrões do Word
+            return documentStyles;
+        }
+
+        XmlObject docDefaults = Ooxml.child(root, "docDefaults");
+        documentStyles.defaultRunProperties = Ooxml.path(docDefaults, "rPrDefault", "rPr");
+        documentStyles.defaultParagraphProperties = Ooxml.path(docDefaults, "pPrDefault", "pPr");
+        for (XmlObject style : Ooxml.children(root)) {
+            String id = Ooxml.attr(style, "styleId");
+            if (!"style".equals(Ooxml.localName(style)) || id == null) {
+                continue;
+            }
+            documentStyles.styles.put(id, style);
+            if ("paragraph".equals(Ooxml.attr(style, "type")) && isDefault(style)) {
+                documentStyles.defaultParagraphStyleId = id;
+                documentStyles.normalRunProperties = Ooxml.child(style, "rPr");
+                documentStyles.normalParagraphProperties = Ooxml.child(style, "pPr");
+            }
+        }
+        return documentStyles;
+    }
+
+    String runAttribute(String element, String attribute) {
+        String value = Ooxml.attr(Ooxml.child(normalRunProperties, element), attribute);
+        return value != null ? value : Ooxml.attr(Ooxml.child(defaultRunProperties, element), attribute);
+    }
+
+    Boolean runOnOff(String element) {
+        Boolean value = Ooxml.onOff(normalRunProperties, element);
+        return value != null ? value : Ooxml.onOff(defaultRunProperties, element);
+    }
+
+    String paragraphAttribute(String element, String attribute) {
+        String value = Ooxml.attr(Ooxml.child(normalParagraphProperties, element), attribute);
+        return value != null ? value : Ooxml.attr(Ooxml.child(defaultParagraphProperties, element), attribute);
+    }
+
+    /**
+     * Estilo de parágrafo que não muda nada além do padrão: ausente, o próprio padrão ou sem propriedades.
+     */
+    boolean isPlainParagraphStyle(String styleId) {
+        if (styleId == null || styleId.equals(defaultParagraphStyleId)) {
+            return true;
+        }
+        XmlObject style = styles.get(styleId);
+        return style == null || (Ooxml.child(style, "rPr") == null && Ooxml.child(style, "pPr") == null);
+    }
+
+    boolean isPlainRunStyle(String styleId) {
+        XmlObject style = styleId != null ? styles.get(styleId) : null;
+        return style == null || Ooxml.child(style, "rPr") == null;
+    }
+
+    private static boolean isDefault(XmlObject style) {
+        String value = Ooxml.attr(style, "default");
+        return value != null && ("1".equals(value) || "true".equals(value) || "on".equals(value));
+    }
+}
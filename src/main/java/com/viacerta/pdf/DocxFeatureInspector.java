@@ -0,0 +1,203 @@
+package com.viacerta.pdf;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.poi.xwpf.model.XWPFHeaderFooterPolicy;
+import org.apache.poi.xwpf.usermodel.Document;
+import org.apache.poi.xwpf.usermodel.IBodyElement;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFHeaderFooter;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFPicture;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.apache.xmlbeans.XmlObject;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTR;
+
+/**
+ * Lista os recursos do documento que o DocxPdfRenderer não reproduz. Lista vazia significa que o
+ * documento pode ser convertido sem o LibreOffice; qualquer item faz a conversão voltar para ele.
+ */
+public final class DocxFeatureInspector {
+    private final DocumentStyles styles;
+    private final Set<String> unsupported = new LinkedHashSet<>();
+
+    private DocxFeatureInspector(DocumentStyles styles) {
+        this.styles = styles;
+    }
+
+    public static List<String> inspect(XWPFDocument document) {
+        DocxFeatureInspector inspector = new DocxFeatureInspector(DocumentStyles.of(document));
+        inspector.inspectDocument(document);
+        return new ArrayList<>(inspector.unsupported);
+    }
+
+    private void inspectDocument(XWPFDocument document) {
+        XmlObject sectPr = Ooxml.child(document.getDocument().getBody(), "sectPr");
+        String columns = Ooxml.attr(Ooxml.child(sectPr, "cols"), "num");
+        if (columns != null && !"1".equals(columns)) {
+            unsupported.add("texto em colunas");
+        }
+        if (Boolean.TRUE.equals(Ooxml.onOff(sectPr, "titlePg"))) {
+            unsupported.add("cabeçalho ou rodapé de primeira página");
+        }
+
+        XWPFHeaderFooterPolicy policy = document.getHeaderFooterPolicy();
+        if (policy != null) {
+            if (policy.getEvenPageHeader() != null || policy.getEvenPageFooter() != null) {
+                unsupported.add("cabeçalho ou rodapé de páginas pares");
+            }
+            inspectHeaderFooter(policy.getDefaultHeader());
+            inspectHeaderFooter(policy.getDefaultFooter());
+        }
+        inspectElements(document.getBodyElements(), false);
+    }
+
+    private void inspectHeaderFooter(XWPFHeaderFooter headerFooter) {
+        if (headerFooter != null) {
+            inspectElements(headerFooter.getBodyElements(), false);
+        }
+    }
+
+    private void inspectElements(List<IBodyElement> elements, boolean insideTable) {
+        for (IBodyElement element : elements) {
+            if (element instanceof XWPFParagraph paragraph) {
+                inspectParagraph(paragraph);
+            } else if (element instanceof XWPFTable table) {
+                if (insideTable) {
+                    unsupported.add("tabela aninhada");
+                }
+                inspectTable(table);
+            } else {
+                unsupported.add("controle de conteúdo");
+            }
+        }
+    }
+
+    private void inspectTable(XWPFTable table) {
+        for (XWPFTableRow row : table.getRows()) {
+            for (XWPFTableCell cell : row.getTableCells()) {
+                XmlObject tcPr = Ooxml.child(cell.getCTTc(), "tcPr");
+                if (Ooxml.child(tcPr, "vMerge") != null) {
+                    unsupported.add("mesclagem vertical de células");
+                }
+                String direction = Ooxml.attr(Ooxml.child(tcPr, "textDirection"), "val");
+                if (direction != null && !"lrTb".equals(direction) && !"tb".equals(direction)) {
+                    unsupported.add("texto vertical em célula");
+                }
+                inspectElements(cell.getBodyElements(), true);
+            }
+        }
+    }
+
+    private void inspectParagraph(XWPFParagraph paragraph) {
+        XmlObject pPr = Ooxml.child(paragraph.getCTP(), "pPr");
+        if (Ooxml.child(pPr, "numPr") != null) {
+            unsupported.add("lista numerada ou com marcadores");
+        }
+        if (Ooxml.child(pPr, "framePr") != null) {
+            unsupported.add("quadro de texto");
+        }
+        if (Ooxml.child(pPr, "sectPr") != null) {
+            unsupported.add("mais de uma seção");
+        }
+        String styleId = Ooxml.attr(Ooxml.child(pPr, "pStyle"), "val");
+        if (!styles.isPlainParagraphStyle(styleId)) {
+            unsupported.add("estilo de parágrafo '" + styleId + "'");
+        }
+
+        for (XmlObject child : Ooxml.children(paragraph.getCTP())) {
+            inspectParagraphContent(paragraph, child);
+        }
+    }
+
+    private void inspectParagraphContent(XWPFParagraph paragraph, XmlObject element) {
+        switch (Ooxml.localName(element)) {
+            case "pPr", "bookmarkStart", "bookmarkEnd", "proofErr", "permStart", "permEnd",
+                    "commentRangeStart", "commentRangeEnd" -> {
+                // sem efeito na página
+            }
+            case "r" -> inspectRun(paragraph, element);
+            case "hyperlink", "smartTag", "fldSimple" -> {
+                if ("fldSimple".equals(Ooxml.localName(element))) {
+                    inspectField(Ooxml.attr(element, "instr"));
+                }
+                for (XmlObject child : Ooxml.children(element)) {
+                    inspectParagraphContent(paragraph, child);
+                }
+            }
+            case "ins", "del", "moveFrom", "moveTo" -> unsupported.add("revisões controladas");
+            case "sdt" -> unsupported.add("controle de conteúdo");
+            case "oMath", "oMathPara" -> unsupported.add("equação");
+            default -> unsupported.add("elemento '" + Ooxml.localName(element) + "'");
+        }
+    }
+
+    private void inspectRun(XWPFParagraph paragraph, XmlObject element) {
+        XmlObject rPr = Ooxml.child(element, "rPr");
+        String styleId = Ooxml.attr(Ooxml.child(rPr, "rStyle"), "val");
+        if (!styles.isPlainRunStyle(styleId)) {
+            unsupported.add("estilo de caractere '" + styleId + "'");
+        }
+
+        for (XmlObject child : Ooxml.children(element)) {
+            switch (Ooxml.localName(child)) {
+                case "t" -> {
+                    int character = PdfFonts.firstUnsupported(Ooxml.text(child));
+                    if (character >= 0) {
+                        unsupported.add(String.format("caractere U+%04X fora das fontes padrão do PDF", character));
+                    }
+                }
+                case "br" -> {
+                    if ("column".equals(Ooxml.attr(child, "type"))) {
+                        unsupported.add("quebra de coluna");
+                    }
+                }
+                case "drawing" -> {
+                    if (Ooxml.child(child, "anchor") != null) {
+                        unsupported.add("imagem ou forma flutuante");
+                    }
+                    inspectPictures(paragraph, element);
+                }
+                case "pict", "object" -> unsupported.add("forma ou objeto incorporado");
+                case "footnoteReference", "endnoteReference" -> unsupported.add("nota de rodapé");
+                case "instrText" -> inspectField(Ooxml.text(child));
+                case "sym" -> unsupported.add("símbolo");
+                case "delText", "delInstrText" -> unsupported.add("revisões controladas");
+                default -> {
+                    // rPr, tab, cr, fldChar, hífens e marcas de quebra de página já renderizadas
+                }
+            }
+        }
+    }
+
+    private void inspectPictures(XWPFParagraph paragraph, XmlObject element) {
+        XWPFRun run = paragraph.getRun((CTR) element);
+        if (run == null) {
+            run = new XWPFRun((CTR) element, paragraph);
+        }
+        if (run.getEmbeddedPictures().isEmpty()) {
+            unsupported.add("gráfico ou forma");
+        }
+        for (XWPFPicture picture : run.getEmbeddedPictures()) {
+            int type = picture.getPictureData() != null ? picture.getPictureData().getPictureType() : -1;
+            if (type != Document.PICTURE_TYPE_PNG && type != Document.PICTURE_TYPE_JPEG
+                    && type != Document.PICTURE_TYPE_GIF && type != Document.PICTURE_TYPE_BMP) {
+                unsupported.add("imagem em formato sem suporte");
+            }
+        }
+    }
+
+    private void inspectField(String instruction) {
+        String name = DocxPdfRenderer.fieldName(instruction);
+        if (!"PAGE".equals(name) && !"NUMPAGES".equals(name)) {
+            unsupported.add("campo " + name.toLowerCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,1024 @@
+package com.viacerta.pdf;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.poi.util.Units;
+import org.apache.poi.xwpf.model.XWPFHeaderFooterPolicy;
+import org.apache.poi.xwpf.usermodel.IBodyElement;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFHeaderFooter;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFPicture;
+import org.apache.poi.xwpf.usermodel.XWPFPictureData;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.apache.xmlbeans.XmlObject;
+import org.openxmlformats.schemas.drawingml.x2006.main.CTPositiveSize2D;
+import org.openxmlformats.schemas.drawingml.x2006.main.CTShapeProperties;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTR;
+
+/**
+ * Converte o XWPFDocument direto para PDF com o PDFBox, sem o LibreOffice: parágrafos e runs
+ * (negrito, itálico, sublinhado, cor, tamanho, alinhamento, recuos e espaçamentos), tabelas com
+ * colunas mescladas na horizontal, imagens em linha, cabeçalho e rodapé padrão e os campos PAGE/NUMPAGES.
+ * Só deve receber documentos aprovados pelo DocxFeatureInspector.
+ *
+ * <p>O layout é feito uma vez para o corpo inteiro (para saber o total de páginas) e o cabeçalho
+ * e o rodapé são montados na escrita de cada página, já com o número da página e o total.
+ */
+public final class DocxPdfRenderer {
+    private static final float DEFAULT_TAB_STOP = 36;
+    private static final float DEFAULT_CELL_MARGIN = 5.4f;
+    private static final float DEFAULT_FONT_SIZE = 11;
+    private static final float LINE_HEIGHT_FACTOR = 1.2f;
+    private static final float BORDER_WIDTH = 0.5f;
+    // Largura reservada no corpo para um campo cujo valor só é conhecido depois do layout
+    private static final String FIELD_PLACEHOLDER = "99";
+
+    private final XWPFDocument document;
+    private final PDDocument pdf;
+    private final DocumentStyles styles;
+    private final Map<String, PDImageXObject> images = new HashMap<>();
+
+    private final float pageWidth;
+    private final float pageHeight;
+    private final float marginLeft;
+    private final float contentWidth;
+    private final float headerDistance;
+    private final float footerDistance;
+    private final float marginTop;
+    private final float marginBottom;
+    private final List<IBodyElement> headerElements;
+    private final List<IBodyElement> footerElements;
+
+    private final List<List<Placed>> pages = new ArrayList<>();
+    private List<Placed> page;
+    private float bodyTop;
+    private float bodyBottom;
+    private float y;
+
+    private DocxPdfRenderer(XWPFDocument document, PDDocument pdf) {
+        this.document = document;
+        this.pdf = pdf;
+        this.styles = DocumentStyles.of(document);
+
+        XmlObject sectPr = Ooxml.child(document.getDocument().getBody(), "sectPr");
+        XmlObject pageSize = Ooxml.child(sectPr, "pgSz");
+        XmlObject pageMargins = Ooxml.child(sectPr, "pgMar");
+        pageWidth = Ooxml.points(Ooxml.attr(pageSize, "w"), PDRectangle.A4.getWidth());
+        pageHeight = Ooxml.points(Ooxml.attr(pageSize, "h"), PDRectangle.A4.getHeight());
+        marginTop = Math.abs(Ooxml.points(Ooxml.attr(pageMargins, "top"), 72));
+        marginBottom = Math.abs(Ooxml.points(Ooxml.attr(pageMargins, "bottom"), 72));
+        marginLeft = Ooxml.points(Ooxml.attr(pageMargins, "left"), 72);
+        float marginRight = Ooxml.points(Ooxml.attr(pageMargins, "right"), 72);
+        contentWidth = pageWidth - marginLeft - marginRight;
+        headerDistance = Ooxml.points(Ooxml.attr(pageMargins, "header"), 36);
+        footerDistance = Ooxml.points(Ooxml.attr(pageMargins, "footer"), 36);
+
+        XWPFHeaderFooterPolicy policy = document.getHeaderFooterPolicy();
+        headerElements = elementsOf(policy != null ? policy.getDefaultHeader() : null);
+        footerElements = elementsOf(policy != null ? policy.getDefaultFooter() : null);
+    }
+
+    public static void render(XWPFDocument document, OutputStream output) throws IOException {
+        try (PDDocument pdf = new PDDocument()) {
+            new DocxPdfRenderer(document, pdf).renderTo(output);
+        }
+    }
+
+    private void renderTo(OutputStream output) throws IOException {
+        // O corpo começa abaixo do cabeçalho e termina acima do rodapé, como no Word
+        PageContext sample = new PageContext(pageHeight, 1, 1);
+        bodyTop = Math.max(marginTop, headerDistance + height(layout(headerElements, sample)));
+        bodyBottom = pageHeight - Math.max(marginBottom, footerDistance + height(layout(footerElements, sample)));
+
+        newPage();
+        for (Block block : layout(document.getBodyElements(), null)) {
+            flow(block);
+        }
+
+        for (int index = 0; index < pages.size(); index++) {
+            PDPage pdfPage = new PDPage(new PDRectangle(pageWidth, pageHeight));
+            pdf.addPage(pdfPage);
+            PageContext context = new PageContext(pageHeight, index + 1, pages.size());
+            try (PDPageContentStream content = new PDPageContentStream(pdf, pdfPage)) {
+                List<Block> footer = layout(footerElements, context);
+                paint(content, layout(headerElements, context), headerDistance, context);
+                paint(content, footer, pageHeight - footerDistance - height(footer), context);
+                for (Placed placed : pages.get(index)) {
+                    placed.block.painter.paint(content, marginLeft, placed.top, context);
+                }
+            }
+        }
+        pdf.save(output);
+    }
+
+    private void paint(PDPageContentStream content, List<Block> blocks, float top, PageContext context)
+            throws IOException {
+        for (Block block : blocks) {
+            if (block.painter != null) {
+                block.painter.paint(content, marginLeft, top, context);
+            }
+            top += block.height;
+        }
+    }
+
+    private void newPage() {
+        page = new ArrayList<>();
+        pages.add(page);
+        y = bodyTop;
+    }
+
+    private void flow(Block block) {
+        boolean pageIsEmpty = page.isEmpty();
+        if (block.breakBefore && !pageIsEmpty) {
+            newPage();
+            pageIsEmpty = true;
+        }
+        if (block.painter == null) {
+            // Espaçamento entre parágrafos não é levado para o topo da página seguinte
+            if (!pageIsEmpty) {
+                y = Math.min(y + block.height, bodyBottom);
+            }
+            return;
+        }
+        if (y + block.height > bodyBottom && !pageIsEmpty) {
+            newPage();
+        }
+        page.add(new Placed(block, y));
+        y += block.height;
+        if (block.breakAfter) {
+            newPage();
+        }
+    }
+
+    // context é null no corpo, cujo total de páginas ainda não é conhecido
+    private List<Block> layout(List<IBodyElement> elements, PageContext context) throws IOException {
+        List<Block> blocks = new ArrayList<>();
+        for (IBodyElement element : elements) {
+            if (element instanceof XWPFParagraph paragraph) {
+                layoutParagraph(paragraph, contentWidth, context, blocks);
+            } else if (element instanceof XWPFTable table) {
+                layoutTable(table, context, blocks);
+            }
+        }
+        return blocks;
+    }
+
+    // ---------------------------------------------------------------- parágrafos
+
+    private void layoutParagraph(XWPFParagraph paragraph, float width, PageContext context, List<Block> blocks)
+            throws IOException {
+        XmlObject pPr = Ooxml.child(paragraph.getCTP(), "pPr");
+        XmlObject spacing = Ooxml.child(pPr, "spacing");
+        XmlObject indentation = Ooxml.child(pPr, "ind");
+
+        float spaceBefore = Ooxml.points(paragraphAttribute(spacing, "spacing", "before"), 0);
+        float spaceAfter = Ooxml.points(paragraphAttribute(spacing, "spacing", "after"), 0);
+        String lineValue = paragraphAttribute(spacing, "spacing", "line");
+        String lineRule = paragraphAttribute(spacing, "spacing", "lineRule");
+        float indentLeft = Ooxml.points(firstNonNull(paragraphAttribute(indentation, "ind", "left"),
+                paragraphAttribute(indentation, "ind", "start")), 0);
+        float indentRight = Ooxml.points(firstNonNull(paragraphAttribute(indentation, "ind", "right"),
+                paragraphAttribute(indentation, "ind", "end")), 0);
+        float firstLine = Ooxml.points(paragraphAttribute(indentation, "ind", "firstLine"), 0)
+                - Ooxml.points(paragraphAttribute(indentation, "ind", "hanging"), 0);
+        String alignment = paragraphAttribute(Ooxml.child(pPr, "jc"), "jc", "val");
+
+        LineBreaker breaker = new LineBreaker(width - indentLeft - indentRight, indentLeft, firstLine,
+                alignment != null ? alignment : "left", context, runStyle(Ooxml.child(pPr, "rPr")));
+        for (Atom atom : atoms(paragraph)) {
+            breaker.add(atom);
+        }
+        List<Line> lines = breaker.finish();
+
+        if (spaceBefore > 0) {
+            blocks.add(Block.spacer(spaceBefore));
+        }
+        boolean first = true;
+        for (Line line : lines) {
+            line.applySpacing(lineValue, lineRule);
+            Block block = new Block(line.height, line::paint);
+            block.breakBefore = first && Boolean.TRUE.equals(Ooxml.onOff(pPr, "pageBreakBefore"));
+            block.breakAfter = line.pageBreakAfter;
+            blocks.add(block);
+            first = false;
+        }
+        if (spaceAfter > 0) {
+            blocks.add(Block.spacer(spaceAfter));
+        }
+    }
+
+    private String paragraphAttribute(XmlObject direct, String element, String attribute) {
+        String value = Ooxml.attr(direct, attribute);
+        return value != null ? value : styles.paragraphAttribute(element, attribute);
+    }
+
+    /**
+     * Conteúdo do parágrafo na ordem do XML, incluindo hyperlinks e campos simples (w:fldSimple),
+     * que o POI não expõe como runs quando não têm resultado gravado.
+     */
+    private List<Atom> atoms(XWPFParagraph paragraph) throws IOException {
+        List<Atom> atoms = new ArrayList<>();
+        FieldState fieldState = new FieldState();
+        for (XmlObject child : Ooxml.children(paragraph.getCTP())) {
+            collectAtoms(paragraph, child, fieldState, atoms);
+        }
+        return atoms;
+    }
+
+    private void collectAtoms(XWPFParagraph paragraph, XmlObject element, FieldState fieldState, List<Atom> atoms)
+            throws IOException {
+        switch (Ooxml.localName(element)) {
+            case "r" -> runAtoms(paragraph, element, fieldState, atoms);
+            case "hyperlink", "smartTag" -> {
+                for (XmlObject child : Ooxml.children(element)) {
+                    collectAtoms(paragraph, child, fieldState, atoms);
+                }
+            }
+            case "fldSimple" -> {
+                String name = fieldName(Ooxml.attr(element, "instr"));
+                if (isPageField(name)) {
+                    XmlObject firstRun = Ooxml.child(element, "r");
+                    atoms.add(Atom.field(name, runStyle(Ooxml.child(firstRun, "rPr"))));
+                } else {
+                    // Outros campos: resultado gravado no documento
+                    for (XmlObject child : Ooxml.children(element)) {
+                        collectAtoms(paragraph, child, fieldState, atoms);
+                    }
+                }
+            }
+            default -> {
+                // propriedades, marcadores e comentários não aparecem na página
+            }
+        }
+    }
+
+    private void runAtoms(XWPFParagraph paragraph, XmlObject element, FieldState fieldState, List<Atom> atoms)
+            throws IOException {
+        XmlObject rPr = Ooxml.child(element, "rPr");
+        if (Boolean.TRUE.equals(Ooxml.onOff(rPr, "vanish"))) {
+            return;
+        }
+        Style style = runStyle(rPr);
+        boolean caps = Boolean.TRUE.equals(Ooxml.onOff(rPr, "caps"));
+        boolean picturesAdded = false;
+
+        for (XmlObject child : Ooxml.children(element)) {
+            String name = Ooxml.localName(child);
+            if ("fldChar".equals(name)) {
+                fieldState.onFieldChar(Ooxml.attr(child, "fldCharType"), style, atoms);
+                continue;
+            }
+            if ("instrText".equals(name)) {
+                fieldState.instruction.append(Ooxml.text(child));
+                continue;
+            }
+            if (fieldState.skipping()) {
+                continue;
+            }
+            switch (name) {
+                case "t" -> {
+                    String text = Ooxml.text(child);
+                    atoms.add(Atom.text(PdfFonts.printable(caps ? text.toUpperCase(Locale.ROOT) : text), style));
+                }
+                case "tab" -> atoms.add(Atom.of(AtomKind.TAB, style));
+                case "br" -> atoms.add(Atom.of("page".equals(Ooxml.attr(child, "type"))
+                        ? AtomKind.PAGE_BREAK : AtomKind.LINE_BREAK, style));
+                case "cr" -> atoms.add(Atom.of(AtomKind.LINE_BREAK, style));
+                case "noBreakHyphen" -> atoms.add(Atom.text("-", style));
+                case "drawing" -> {
+                    if (!picturesAdded) {
+                        picturesAdded = true;
+                        addPictures(paragraph, (CTR) element, style, atoms);
+                    }
+                }
+                default -> {
+                    // rPr, hífen opcional e marcas de renderização anterior
+                }
+            }
+        }
+    }
+
+    private void addPictures(XWPFParagraph paragraph, CTR element, Style style, List<Atom> atoms) throws IOException {
+        XWPFRun run = paragraph.getRun(element);
+        if (run == null) {
+            run = new XWPFRun(element, paragraph);
+        }
+        for (XWPFPicture picture : run.getEmbeddedPictures()) {
+            XWPFPictureData data = picture.getPictureData();
+            if (data == null) {
+                continue;
+            }
+            // O mesmo logotipo aparece em todas as páginas: uma única imagem no PDF
+            String key = data.getPackagePart().getPartName().getName();
+            PDImageXObject image = images.get(key);
+            if (image == null) {
+                image = PDImageXObject.createFromByteArray(pdf, data.getData(), data.getFileName());
+                images.put(key, image);
+            }
+            CTShapeProperties shape = picture.getCTPicture().getSpPr();
+            if (shape != null && shape.getXfrm() != null && shape.getXfrm().getExt() != null) {
+                CTPositiveSize2D extent = shape.getXfrm().getExt();
+                atoms.add(Atom.image(image, (float) Units.toPoints(extent.getCx()),
+                        (float) Units.toPoints(extent.getCy()), style));
+            } else {
+                // Sem tamanho no documento: pixels a 96 dpi, como o Word
+                atoms.add(Atom.image(image, image.getWidth() * 0.75f, image.getHeight() * 0.75f, style));
+            }
+        }
+    }
+
+    private Style runStyle(XmlObject rPr) {
+        boolean bold = onOff(rPr, "b");
+        boolean italic = onOff(rPr, "i");
+        String underline = runAttribute(rPr, "u", "val");
+        String color = runAttribute(rPr, "color", "val");
+        String size = runAttribute(rPr, "sz", "val");
+        String family = firstNonNull(runAttribute(rPr, "rFonts", "ascii"), runAttribute(rPr, "rFonts", "hAnsi"));
+
+        float fontSize = DEFAULT_FONT_SIZE;
+        if (size != null) {
+            try {
+                fontSize = Float.parseFloat(size) / 2;
+            } catch (NumberFormatException e) {
+                // mantém o padrão
+            }
+        }
+        return new Style(PdfFonts.font(family, bold, italic), fontSize, color(color),
+                underline != null && !"none".equals(underline), onOff(rPr, "strike"));
+    }
+
+    private boolean onOff(XmlObject rPr, String element) {
+        Boolean value = Ooxml.onOff(rPr, element);
+        if (value == null) {
+            value = styles.runOnOff(element);
+        }
+        return Boolean.TRUE.equals(value);
+    }
+
+    private String runAttribute(XmlObject rPr, String element, String attribute) {
+        String value = Ooxml.attr(Ooxml.child(rPr, element), attribute);
+        return value != null ? value : styles.runAttribute(element, attribute);
+    }
+
+    // ---------------------------------------------------------------- tabelas
+
+    private void layoutTable(XWPFTable table, PageContext context, List<Block> blocks) throws IOException {
+        float[] columns = columnWidths(table);
+        boolean borders = hasBorders(table);
+        float cellMargin = table.getCellMarginLeft() > 0 ? table.getCellMarginLeft() / 20f : DEFAULT_CELL_MARGIN;
+
+        for (XWPFTableRow row : table.getRows()) {
+            List<CellLayout> cells = new ArrayList<>();
+            float rowHeight = 0;
+            int column = 0;
+            for (XWPFTableCell cell : row.getTableCells()) {
+                XmlObject tcPr = Ooxml.child(cell.getCTTc(), "tcPr");
+                int span = 1;
+                String gridSpan = Ooxml.attr(Ooxml.child(tcPr, "gridSpan"), "val");
+                if (gridSpan != null) {
+                    span = Math.max(1, Integer.parseInt(gridSpan));
+                }
+                float x = 0;
+                for (int i = 0; i < column && i < columns.length; i++) {
+                    x += columns[i];
+                }
+                float width = 0;
+                for (int i = column; i < column + span && i < columns.length; i++) {
+                    width += columns[i];
+                }
+                column += span;
+
+                List<Block> content = new ArrayList<>();
+                for (IBodyElement element : cell.getBodyElements()) {
+                    if (element instanceof XWPFParagraph paragraph) {
+                        layoutParagraph(paragraph, width - 2 * cellMargin, context, content);
+                    }
+                }
+                CellLayout layout = new CellLayout(x, width, content, color(Ooxml.attr(Ooxml.child(tcPr, "shd"), "fill")),
+                        Ooxml.attr(Ooxml.child(tcPr, "vAlign"), "val"));
+                cells.add(layout);
+                rowHeight = Math.max(rowHeight, layout.contentHeight);
+            }
+
+            XmlObject rowHeightRule = Ooxml.path(row.getCtRow(), "trPr", "trHeight");
+            float minimumHeight = Ooxml.points(Ooxml.attr(rowHeightRule, "val"), 0);
+            rowHeight = "exact".equals(Ooxml.attr(rowHeightRule, "hRule")) ? minimumHeight
+                    : Math.max(rowHeight, minimumHeight);
+
+            float height = rowHeight;
+            blocks.add(new Block(height, (content, left, top, pageContext) -> {
+                for (CellLayout cell : cells) {
+                    cell.paint(content, left, top, height, cellMargin, borders, pageContext);
+                }
+            }));
+        }
+    }
+
+    private float[] columnWidths(XWPFTable table) {
+        List<XmlObject> gridColumns = Ooxml.children(Ooxml.child(table.getCTTbl(), "tblGrid"));
+        float[] widths = new float[gridColumns.size()];
+        float total = 0;
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = Ooxml.points(Ooxml.attr(gridColumns.get(i), "w"), 0);
+            total += widths[i];
+        }
+        if (total > 0) {
+            return widths;
+        }
+        // Sem grade: colunas iguais na largura da página
+        int count = 1;
+        for (XWPFTableRow row : table.getRows()) {
+            count = Math.max(count, row.getTableCells().size());
+        }
+        widths = new float[count];
+        Arrays.fill(widths, contentWidth / count);
+        return widths;
+    }
+
+    private static boolean hasBorders(XWPFTable table) {
+        XmlObject borders = Ooxml.path(table.getCTTbl(), "tblPr", "tblBorders");
+        if (borders == null) {
+            // Sem bordas diretas vale o estilo da tabela; o "Normal Table" do Word não tem bordas
+            return table.getStyleID() != null;
+        }
+        for (XmlObject border : Ooxml.children(borders)) {
+            String value = Ooxml.attr(border, "val");
+            if (value != null && !"none".equals(value) && !"nil".equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ---------------------------------------------------------------- utilitários
+
+    static String fieldName(String instruction) {
+        if (instruction == null) {
+            return "";
+        }
+        String trimmed = instruction.trim();
+        int end = trimmed.indexOf(' ');
+        return (end < 0 ? trimmed : trimmed.substring(0, end)).toUpperCase(Locale.ROOT);
+    }
+
+    private static boolean isPageField(String name) {
+        return "PAGE".equals(name) || "NUMPAGES".equals(name);
+    }
+
+    private static Color color(String hex) {
+        if (hex == null || hex.length() != 6 || "auto".equals(hex)) {
+            return null;
+        }
+        try {
+            return new Color(Integer.parseInt(hex, 16));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String firstNonNull(String first, String second) {
+        return first != null ? first : second;
+    }
+
+    private static float height(List<Block> blocks) {
+        float height = 0;
+        for (Block block : blocks) {
+            height += block.height;
+        }
+        return height;
+    }
+
+    private static List<IBodyElement> elementsOf(XWPFHeaderFooter headerFooter) {
+        return headerFooter != null ? headerFooter.getBodyElements() : List.of();
+    }
+
+    // ---------------------------------------------------------------- modelo do layout
+
+    @FunctionalInterface
+    private interface Painter {
+        void paint(PDPageContentStream content, float left, float top, PageContext context) throws IOException;
+    }
+
+    /**
+     * Unidade indivisível do fluxo: uma linha de parágrafo, uma linha de tabela ou um espaçamento (sem painter).
+     */
+    private static final class Block {
+        final float height;
+        final Painter painter;
+        boolean breakBefore;
+        boolean breakAfter;
+
+        Block(float height, Painter painter) {
+            this.height = height;
+            this.painter = painter;
+        }
+
+        static Block spacer(float height) {
+            return new Block(height, null);
+        }
+    }
+
+    private static final class Placed {
+        final Block block;
+        final float top;
+
+        Placed(Block block, float top) {
+            this.block = block;
+            this.top = top;
+        }
+    }
+
+    /**
+     * Página em escrita: altura (o PDF mede de baixo para cima) e valores dos campos PAGE e NUMPAGES.
+     */
+    private static final class PageContext {
+        final float height;
+        final int page;
+        final int totalPages;
+
+        PageContext(float height, int page, int totalPages) {
+            this.height = height;
+            this.page = page;
+            this.totalPages = totalPages;
+        }
+
+        String value(String field) {
+            return String.valueOf("NUMPAGES".equals(field) ? totalPages : page);
+        }
+    }
+
+    private static final class Style {
+        final PDFont font;
+        final float size;
+        final Color color;
+        final boolean underline;
+        final boolean strike;
+
+        Style(PDFont font, float size, Color color, boolean underline, boolean strike) {
+            this.font = font;
+            this.size = size;
+            this.color = color;
+            this.underline = underline;
+            this.strike = strike;
+        }
+
+        float ascent() {
+            return PdfFonts.ascent(font, size);
+        }
+
+        float descent() {
+            return size * LINE_HEIGHT_FACTOR - ascent();
+        }
+    }
+
+    private enum AtomKind {
+        TEXT, IMAGE, FIELD, TAB, LINE_BREAK, PAGE_BREAK
+    }
+
+    private static final class Atom {
+        final AtomKind kind;
+        final Style style;
+        String text;
+        PDImageXObject image;
+        float width;
+        float height;
+
+        private Atom(AtomKind kind, Style style) {
+            this.kind = kind;
+            this.style = style;
+        }
+
+        static Atom of(AtomKind kind, Style style) {
+            return new Atom(kind, style);
+        }
+
+        static Atom text(String text, Style style) {
+            Atom atom = new Atom(AtomKind.TEXT, style);
+            atom.text = text;
+            return atom;
+        }
+
+        static Atom field(String name, Style style) {
+            Atom atom = new Atom(AtomKind.FIELD, style);
+            atom.text = name;
+            return atom;
+        }
+
+        static Atom image(PDImageXObject image, float width, float height, Style style) {
+            Atom atom = new Atom(AtomKind.IMAGE, style);
+            atom.image = image;
+            atom.width = width;
+            atom.height = height;
+            return atom;
+        }
+    }
+
+    /**
+     * Campos complexos (w:fldChar begin/separate/end): PAGE e NUMPAGES viram campos calculados e o
+     * resultado gravado é ignorado; nos demais o resultado gravado é mantido.
+     */
+    private static final class FieldState {
+        final StringBuilder instruction = new StringBuilder();
+        boolean inInstruction;
+        boolean skipResult;
+
+        void onFieldChar(String type, Style style, List<Atom> atoms) {
+            if ("begin".equals(type)) {
+                instruction.setLength(0);
+                inInstruction = true;
+            } else if ("separate".equals(type) || "end".equals(type)) {
+                if (inInstruction) {
+                    String name = fieldName(instruction.toString());
+                    if (isPageField(name)) {
+                        atoms.add(Atom.field(name, style));
+                        skipResult = "separate".equals(type);
+                    }
+                    inInstruction = false;
+                }
+                if ("end".equals(type)) {
+                    skipResult = false;
+                }
+            }
+        }
+
+        boolean skipping() {
+            return inInstruction || skipResult;
+        }
+    }
+
+    /**
+     * Trecho posicionado em uma linha: texto, imagem ou campo. Tabulações só avançam a posição.
+     */
+    private static final class Piece {
+        final Style style;
+        String text;
+        PDImageXObject image;
+        String field;
+        float x;
+        float width;
+        float imageHeight;
+        float trailingSpace;
+
+        Piece(Style style) {
+            this.style = style;
+        }
+    }
+
+    private static final class Line {
+        final List<Piece> pieces;
+        final float offset;
+        final boolean pageBreakAfter;
+        float ascent;
+        float height;
+
+        Line(List<Piece> pieces, float offset, boolean pageBreakAfter, Style emptyStyle) {
+            this.pieces = pieces;
+            this.offset = offset;
+            this.pageBreakAfter = pageBreakAfter;
+            float descent = 0;
+            for (Piece piece : pieces) {
+                if (piece.image != null) {
+                    ascent = Math.max(ascent, piece.imageHeight);
+                } else {
+                    ascent = Math.max(ascent, piece.style.ascent());
+                    descent = Math.max(descent, piece.style.descent());
+                }
+            }
+            if (ascent == 0 && descent == 0) {
+                ascent = emptyStyle.ascent();
+                descent = emptyStyle.descent();
+            }
+            height = ascent + descent;
+        }
+
+        // w:spacing/@w:line: múltiplo da altura simples (auto, em 240 avos) ou altura fixa/mínima
+        void applySpacing(String line, String rule) {
+            Float value = line != null ? Ooxml.points(line) : null;
+            if (value == null) {
+                return;
+            }
+            if ("exact".equals(rule)) {
+                height = value;
+            } else if ("atLeast".equals(rule)) {
+                height = Math.max(height, value);
+            } else {
+                height = height * value * 20 / 240;
+            }
+        }
+
+        void paint(PDPageContentStream content, float left, float top, PageContext context) throws IOException {
+            float baseline = context.height - top - Math.min(ascent, height);
+            for (Piece piece : pieces) {
+                float x = left + offset + piece.x;
+                if (piece.image != null) {
+                    content.drawImage(piece.image, x, baseline, piece.width, piece.imageHeight);
+                    continue;
+                }
+                String text = piece.field != null ? context.value(piece.field) : piece.text;
+                if (text == null || text.isEmpty()) {
+                    continue;
+                }
+                Color color = piece.style.color != null ? piece.style.color : Color.BLACK;
+                content.beginText();
+                content.setFont(piece.style.font, piece.style.size);
+                content.setNonStrokingColor(color);
+                content.newLineAtOffset(x, baseline);
+                content.showText(text);
+                content.endText();
+
+                float width = piece.field != null ? PdfFonts.width(piece.style.font, piece.style.size, text)
+                        : piece.width - piece.trailingSpace;
+                if (piece.style.underline) {
+                    strokeLine(content, color, piece.style.size / 18, x, baseline - piece.style.size * 0.12f, width);
+                }
+                if (piece.style.strike) {
+                    strokeLine(content, color, piece.style.size / 18, x, baseline + piece.style.size * 0.28f, width);
+                }
+            }
+        }
+    }
+
+    /**
+     * Quebra de linhas por palavra, com alinhamento à esquerda, centralizado, à direita ou justificado.
+     * Palavras mais largas que a linha são quebradas por caractere.
+     */
+    private static final class LineBreaker {
+        final float width;
+        final float indentLeft;
+        final float firstLine;
+        final String alignment;
+        final PageContext context;
+        final Style markStyle;
+        final List<Line> lines = new ArrayList<>();
+        List<Piece> pieces = new ArrayList<>();
+        float x;
+        boolean wrapped;
+        boolean forcedBreak;
+
+        LineBreaker(float width, float indentLeft, float firstLine, String alignment, PageContext context,
+                Style markStyle) {
+            this.width = width;
+            this.indentLeft = indentLeft;
+            this.firstLine = firstLine;
+            this.alignment = alignment;
+            this.context = context;
+            this.markStyle = markStyle;
+        }
+
+        float available() {
+            return width - (lines.isEmpty() ? firstLine : 0);
+        }
+
+        void add(Atom atom) throws IOException {
+            switch (atom.kind) {
+                case TEXT -> addText(atom.text, atom.style);
+                case FIELD -> {
+                    Piece piece = new Piece(atom.style);
+                    piece.field = atom.text;
+                    piece.width = PdfFonts.width(atom.style.font, atom.style.size,
+                            context != null ? context.value(atom.text) : FIELD_PLACEHOLDER);
+                    place(piece);
+                }
+                case IMAGE -> {
+                    Piece piece = new Piece(atom.style);
+                    piece.image = atom.image;
+                    piece.width = atom.width;
+                    piece.imageHeight = atom.height;
+                    place(piece);
+                }
+                case TAB -> {
+                    float next = (float) (Math.floor(x / DEFAULT_TAB_STOP) + 1) * DEFAULT_TAB_STOP;
+                    if (next > available() && x > 0) {
+                        endLine(false, false);
+                        next = 0;
+                    }
+                    x = Math.min(next, available());
+                }
+                case LINE_BREAK -> endLine(true, false);
+                case PAGE_BREAK -> endLine(true, true);
+            }
+        }
+
+        private void place(Piece piece) {
+            if (x + piece.width > available() && x > 0) {
+                endLine(false, false);
+            }
+            piece.x = x;
+            pieces.add(piece);
+            x += piece.width;
+        }
+
+        private void addText(String text, Style style) throws IOException {
+            int start = 0;
+            while (start < text.length()) {
+                int end = start;
+                while (end < text.length() && text.charAt(end) != ' ') {
+                    end++;
+                }
+                while (end < text.length() && text.charAt(end) == ' ') {
+                    end++;
+                }
+                addWord(text.substring(start, end), style);
+                start = end;
+            }
+        }
+
+        private void addWord(String token, Style style) throws IOException {
+            String word = token.stripTrailing();
+            // Espaços no início de uma linha quebrada automaticamente não aparecem
+            if (word.isEmpty() && x == 0 && wrapped) {
+                return;
+            }
+            float wordWidth = PdfFonts.width(style.font, style.size, word);
+            if (x + wordWidth > available() && x > 0) {
+                endLine(false, false);
+            }
+            if (wordWidth > available()) {
+                addLongWord(word, style);
+                token = token.substring(word.length());
+                word = "";
+                wordWidth = 0;
+                if (token.isEmpty()) {
+                    return;
+                }
+            }
+            Piece piece = new Piece(style);
+            piece.text = token;
+            piece.width = PdfFonts.width(style.font, style.size, token);
+            piece.trailingSpace = piece.width - wordWidth;
+            piece.x = x;
+            pieces.add(piece);
+            x += piece.width;
+        }
+
+        private void addLongWord(String word, Style style) throws IOException {
+            int start = 0;
+            while (start < word.length()) {
+                int end = start + 1;
+                while (end < word.length()
+                        && x + PdfFonts.width(style.font, style.size, word.substring(start, end + 1)) <= available()) {
+                    end++;
+                }
+                Piece piece = new Piece(style);
+                piece.text = word.substring(start, end);
+                piece.width = PdfFonts.width(style.font, style.size, piece.text);
+                piece.x = x;
+                pieces.add(piece);
+                x += piece.width;
+                start = end;
+                if (start < word.length()) {
+                    endLine(false, false);
+                }
+            }
+        }
+
+        private void endLine(boolean forced, boolean pageBreak) {
+            float available = available();
+            float offset = indentLeft + (lines.isEmpty() ? firstLine : 0);
+            float used = x - (pieces.isEmpty() ? 0 : pieces.get(pieces.size() - 1).trailingSpace);
+            float free = Math.max(0, available - used);
+
+            boolean justified = false;
+            switch (alignment) {
+                case "center" -> offset += free / 2;
+                case "right", "end" -> offset += free;
+                case "both", "distribute" -> justified = !forced && justify(free);
+                default -> {
+                    // esquerda
+                }
+            }
+            if (!justified) {
+                mergePieces();
+            }
+            lines.add(new Line(pieces, offset, pageBreak, markStyle));
+            pieces = new ArrayList<>();
+            x = 0;
+            wrapped = !forced;
+            forcedBreak = forced;
+        }
+
+        // Distribui o espaço livre entre as palavras; a última linha do parágrafo não é justificada
+        private boolean justify(float free) {
+            int gaps = 0;
+            for (int i = 0; i < pieces.size() - 1; i++) {
+                if (pieces.get(i).trailingSpace > 0) {
+                    gaps++;
+                }
+            }
+            if (gaps == 0) {
+                return false;
+            }
+            float extra = free / gaps;
+            float shift = 0;
+            for (int i = 0; i < pieces.size(); i++) {
+                Piece piece = pieces.get(i);
+                piece.x += shift;
+                if (i < pieces.size() - 1 && piece.trailingSpace > 0) {
+                    shift += extra;
+                }
+            }
+            return true;
+        }
+
+        // Palavras seguidas do mesmo run viram um único showText
+        private void mergePieces() {
+            List<Piece> merged = new ArrayList<>();
+            Piece previous = null;
+            for (Piece piece : pieces) {
+                if (previous != null && previous.text != null && piece.text != null && previous.style == piece.style
+                        && Math.abs(previous.x + previous.width - piece.x) < 0.01f) {
+                    previous.text += piece.text;
+                    previous.width += piece.width;
+                    previous.trailingSpace = piece.trailingSpace;
+                    continue;
+                }
+                merged.add(piece);
+                previous = piece;
+            }
+            pieces = merged;
+        }
+
+        List<Line> finish() {
+            if (!pieces.isEmpty() || x > 0 || lines.isEmpty() || forcedBreak) {
+                endLine(true, false);
+            }
+            return lines;
+        }
+    }
+
+    private static final class CellLayout {
+        final float x;
+        final float width;
+        final List<Block> content;
+        final Color fill;
+        final String verticalAlignment;
+        final float contentHeight;
+
+        CellLayout(float x, float width, List<Block> content, Color fill, String verticalAlignment) {
+            this.x = x;
+            this.width = width;
+            this.content = content;
+            this.fill = fill;
+            this.verticalAlignment = verticalAlignment;
+            this.contentHeight = height(content);
+        }
+
+        void paint(PDPageContentStream stream, float left, float top, float rowHeight, float margin, boolean borders,
+                PageContext context) throws IOException {
+            float cellLeft = left + x;
+            float bottom = context.height - top - rowHeight;
+            if (fill != null) {
+                stream.setNonStrokingColor(fill);
+                stream.addRect(cellLeft, bottom, width, rowHeight);
+                stream.fill();
+            }
+
+            float y = top;
+            if ("center".equals(verticalAlignment)) {
+                y += Math.max(0, (rowHeight - contentHeight) / 2);
+            } else if ("bottom".equals(verticalAlignment)) {
+                y += Math.max(0, rowHeight - contentHeight);
+            }
+            for (Block block : content) {
+                if (block.painter != null) {
+                    block.painter.paint(stream, cellLeft + margin, y, context);
+                }
+                y += block.height;
+            }
+
+            if (borders) {
+                stream.setStrokingColor(Color.BLACK);
+                stream.setLineWidth(BORDER_WIDTH);
+                stream.addRect(cellLeft, bottom, width, rowHeight);
+                stream.stroke();
+            }
+        }
+    }
+
+    private static void strokeLine(PDPageContentStream content, Color color, float lineWidth, float x, float y,
+            float width) throws IOException {
+        content.setStrokingColor(color);
+        content.setLineWidth(lineWidth);
+        content.moveTo(x, y);
+        content.lineTo(x + width, y);
+        content.stroke();
+    }
+}
@@ -0,0 +1,143 @@
+package com.viacerta.pdf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+
+/**
+ * Leitura do XML WordprocessingML pelo cursor do XMLBeans, por nome de elemento e atributo.
+ * Evita depender dos tipos gerados do schema, cujas assinaturas mudam entre versões do POI.
+ */
+final class Ooxml {
+    static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    private static final double POINTS_PER_INCH = 72;
+
+    private Ooxml() {
+    }
+
+    static List<XmlObject> children(XmlObject parent) {
+        List<XmlObject> children = new ArrayList<>();
+        if (parent == null) {
+            return children;
+        }
+        XmlCursor cursor = parent.newCursor();
+        try {
+            if (cursor.toFirstChild()) {
+                do {
+                    children.add(cursor.getObject());
+                } while (cursor.toNextSibling());
+            }
+        } finally {
+            cursor.dispose();
+        }
+        return children;
+    }
+
+    static XmlObject child(XmlObject parent, String localName) {
+        if (parent == null) {
+            return null;
+        }
+        XmlCursor cursor = parent.newCursor();
+        try {
+            if (cursor.toFirstChild()) {
+                do {
+                    if (localName.equals(cursor.getName().getLocalPart())) {
+                        return cursor.getObject();
+                    }
+                } while (cursor.toNextSibling());
+            }
+            return null;
+        } finally {
+            cursor.dispose();
+        }
+    }
+
+    // Caminho de elementos filhos, ex.: child(pPr, "spacing") a partir de child(p, "pPr")
+    static XmlObject path(XmlObject parent, String... localNames) {
+        XmlObject current = parent;
+        for (String localName : localNames) {
+            current = child(current, localName);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    static String localName(XmlObject element) {
+        XmlCursor cursor = element.newCursor();
+        try {
+            return cursor.getName().getLocalPart();
+        } finally {
+            cursor.dispose();
+        }
+    }
+
+    static String attr(XmlObject element, String localName) {
+        if (element == null) {
+            return null;
+        }
+        XmlCursor cursor = element.newCursor();
+        try {
+            return cursor.getAttributeText(new QName(W_NS, localName));
+        } finally {
+            cursor.dispose();
+        }
+    }
+
+    static String text(XmlObject element) {
+        XmlCursor cursor = element.newCursor();
+        try {
+            return cursor.getTextValue();
+        } finally {
+            cursor.dispose();
+        }
+    }
+
+    /**
+     * Propriedade liga/desliga (w:b, w:i, ...): presente sem w:val ou com valor verdadeiro.
+     */
+    static Boolean onOff(XmlObject properties, String localName) {
+        XmlObject element = child(properties, localName);
+        if (element == null) {
+            return null;
+        }
+        String value = attr(element, "val");
+        return value == null || !("false".equals(value) || "0".equals(value) || "off".equals(value));
+    }
+
+    /**
+     * Medida em twips (vigésimos de ponto) ou com unidade (ex.: "2.5cm"), convertida para pontos.
+     */
+    static Float points(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            if (Character.isDigit(value.charAt(value.length() - 1))) {
+                return (float) (Double.parseDouble(value) / 20);
+            }
+            double number = Double.parseDouble(value.substring(0, value.length() - 2));
+            return switch (value.substring(value.length() - 2)) {
+                case "pt" -> (float) number;
+                case "in" -> (float) (number * POINTS_PER_INCH);
+                case "cm" -> (float) (number * POINTS_PER_INCH / 2.54);
+                case "mm" -> (float) (number * POINTS_PER_INCH / 25.4);
+                case "pc", "pi" -> (float) (number * 12);
+                default -> null;
+            };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static float points(String value, float defaultPoints) {
+        Float points = points(value);
+        return points != null ? points : defaultPoints;
+    }
+}
@@ -0,0 +1,116 @@
+package com.viacerta.pdf;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+/**
+ * Fontes padrão do PDF (sem incorporação) escolhidas pela família do run: serifadas viram Times,
+ * monoespaçadas Courier e as demais Helvetica. Só cobrem o WinAnsi (Latin-1 e alguns símbolos);
+ * texto com outros caracteres é reportado pelo inspetor e segue para o LibreOffice.
+ */
+final class PdfFonts {
+    private static final String[] SERIF = { "times", "georgia", "garamond", "cambria", "book antiqua", "palatino",
+            "serif" };
+    private static final String[] MONOSPACE = { "courier", "consolas", "mono", "lucida console" };
+
+    // Resultado de encode por caractere: 0 desconhecido, 1 suportado, 2 não suportado
+    private static final byte[] ENCODABLE = new byte[Character.MAX_VALUE + 1];
+
+    private PdfFonts() {
+    }
+
+    static PDFont font(String family, boolean bold, boolean italic) {
+        String name = family != null ? family.toLowerCase(Locale.ROOT) : "";
+        if (matches(name, MONOSPACE)) {
+            return bold ? (italic ? PDType1Font.COURIER_BOLD_OBLIQUE : PDType1Font.COURIER_BOLD)
+                    : (italic ? PDType1Font.COURIER_OBLIQUE : PDType1Font.COURIER);
+        }
+        if (matches(name, SERIF)) {
+            return bold ? (italic ? PDType1Font.TIMES_BOLD_ITALIC : PDType1Font.TIMES_BOLD)
+                    : (italic ? PDType1Font.TIMES_ITALIC : PDType1Font.TIMES_ROMAN);
+        }
+        return bold ? (italic ? PDType1Font.HELVETICA_BOLD_OBLIQUE : PDType1Font.HELVETICA_BOLD)
+                : (italic ? PDType1Font.HELVETICA_OBLIQUE : PDType1Font.HELVETICA);
+    }
+
+    /**
+     * Primeiro caractere que as fontes padrão não representam, ou -1.
+     */
+    static int firstUnsupported(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = normalize(text.charAt(i));
+            if (!isEncodable(c)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Texto pronto para showText: espaço não separável vira espaço e o que não tem glifo vira '?'.
+     */
+    static String printable(String text) {
+        StringBuilder printable = null;
+        for (int i = 0; i < text.length(); i++) {
+            char original = text.charAt(i);
+            char c = normalize(original);
+            if (!isEncodable(c)) {
+                c = '?';
+            }
+            if (c != original && printable == null) {
+                printable = new StringBuilder(text.substring(0, i));
+            }
+            if (printable != null) {
+                printable.append(c);
+            }
+        }
+        return printable != null ? printable.toString() : text;
+    }
+
+    static float width(PDFont font, float size, String text) throws IOException {
+        return font.getStringWidth(text) / 1000 * size;
+    }
+
+    static float ascent(PDFont font, float size) {
+        return font.getFontDescriptor().getAscent() / 1000 * size;
+    }
+
+    static float descent(PDFont font, float size) {
+        return -font.getFontDescriptor().getDescent() / 1000 * size;
+    }
+
+    private static char normalize(char c) {
+        return switch (c) {
+            case '\u00A0' -> ' ';
+            case '\u2011' -> '-';
+            default -> c;
+        };
+    }
+
+    private static boolean isEncodable(char c) {
+        byte known = ENCODABLE[c];
+        if (known == 0) {
+            boolean encodable;
+            try {
+                encodable = !Character.isISOControl(c) && PDType1Font.HELVETICA.encode(String.valueOf(c)).length > 0;
+            } catch (IllegalArgumentException | IOException e) {
+                encodable = false;
+            }
+            known = encodable ? (byte) 1 : (byte) 2;
+            ENCODABLE[c] = known;
+        }
+        return known == 1;
+    }
+
+    private static boolean matches(String name, String[] keywords) {
+        for (String keyword : keywords) {
+            if (name.contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,47 @@
+package com.viacerta.queue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+
+/**
+ * Armazenamento compartilhado dos templates e dos documentos gerados, endereçado por chave
+ * (ex.: templates/&lt;sha256&gt;.docx, results/&lt;id&gt;). Uma chave só fica visível depois de escrita por inteiro.
+ */
+public interface BlobStore {
+
+    @FunctionalInterface
+    interface Content {
+        void writeTo(OutputStream output) throws IOException;
+    }
+
+    void write(String key, Content content) throws IOException;
+
+    default void put(String key, byte[] data) throws IOException {
+        write(key, output -> output.write(data));
+    }
+
+    /**
+     * @throws java.nio.file.NoSuchFileException quando a chave não existe
+     */
+    InputStream open(String key) throws IOException;
+
+    boolean exists(String key);
+
+    /**
+     * Marca a chave como usada agora, adiando a limpeza por purge.
+     *
+     * @return false quando a chave não existe (ou foi apagada pela limpeza)
+     */
+    boolean touch(String key) throws IOException;
+
+    long size(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Apaga as chaves sob o prefixo (ex.: results) escritas há mais de maxAge.
+     */
+    void purge(String prefix, Duration maxAge) throws IOException;
+}
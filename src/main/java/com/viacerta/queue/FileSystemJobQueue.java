@@ -0,0 +1,256 @@
+package com.viacerta.queue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Fila num diretório compartilhado entre os processos (volume comum ou a mesma máquina), um arquivo
+ * JSON por job: pending/ com os publicados, claimed/ com os reservados, done/ com os resultados e
+ * cancelled/ com as marcas dos jobs de que quem publicou desistiu.
+ * O nome do arquivo leva a prioridade, o instante de publicação e o tenant, para que take escolha sem ler
+ * os JSON: primeiro os jobs interativos, depois jobs e lotes; dentro da mesma prioridade, o do tenant com
+ * menos reservas em claimed/ (de todos os workers) em relação ao seu peso, e no empate o mais antigo.
+ * Como os workers têm uma thread por conversor, é essa escolha que reparte os conversores entre os tenants.
+ * A reserva é um rename atômico de pending/ para claimed/, então cada job vai para um worker só. O
+ * worker renova a data das suas reservas enquanto gera (renewClaims); reservas sem renovação há mais de
+ * claimTimeout (worker que caiu no meio da geração) voltam para pending/.
+ */
+public class FileSystemJobQueue implements JobQueue {
+    private static final Logger LOG = Logger.getLogger(FileSystemJobQueue.class);
+    private static final String SUFFIX = ".json";
+    private static final Base64.Encoder TENANT_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder TENANT_DECODER = Base64.getUrlDecoder();
+
+    private final Path pendingDir;
+    private final Path claimedDir;
+    private final Path doneDir;
+    private final Path cancelledDir;
+    private final ObjectMapper objectMapper;
+    private final Duration pollInterval;
+    private final Duration claimTimeout;
+    private final ToIntFunction<String> tenantWeight;
+    // Reservas deste processo, para apagar o arquivo ao concluir
+    private final Map<String, Path> claims = new ConcurrentHashMap<>();
+    private volatile long lastStaleCheck;
+
+    public FileSystemJobQueue(Path directory, ObjectMapper objectMapper, Duration pollInterval,
+            Duration claimTimeout, ToIntFunction<String> tenantWeight) throws IOException {
+        this.pendingDir = Files.createDirectories(directory.resolve("pending"));
+        this.claimedDir = Files.createDirectories(directory.resolve("claimed"));
+        this.doneDir = Files.createDirectories(directory.resolve("done"));
+        this.cancelledDir = Files.createDirectories(directory.resolve("cancelled"));
+        this.objectMapper = objectMapper;
+        this.pollInterval = pollInterval;
+        this.claimTimeout = claimTimeout;
+        this.tenantWeight = tenantWeight;
+    }
+
+    @Override
+    public void submit(QueuedJob job) throws IOException {
+        // <prioridade>-<instante>-<tenant em base64url>.<id>.json: 0 para interativo, 1 para jobs e lotes
+        String name = String.format("%d-%013d-%s.%s%s", job.interactive() ? 0 : 1, System.currentTimeMillis(),
+                TENANT_ENCODER.encodeToString(job.tenant().getBytes(StandardCharsets.UTF_8)), job.id(), SUFFIX);
+        writeAtomically(pendingDir.resolve(name), objectMapper.writeValueAsBytes(job));
+    }
+
+    @Override
+    public QueuedJob take(Duration timeout) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            requeueStaleClaims();
+            for (Path file : claimOrder(list(pendingDir))) {
+                Path claimed = claimedDir.resolve(file.getFileName());
+                try {
+                    Files.move(file, claimed, StandardCopyOption.ATOMIC_MOVE);
+                } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                    // Reservado por outro worker
+                    continue;
+                }
+                Files.setLastModifiedTime(claimed, FileTime.from(Instant.now()));
+                QueuedJob job = objectMapper.readValue(claimed.toFile(), QueuedJob.class);
+                claims.put(job.id(), claimed);
+                return job;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.min(remaining, pollInterval.toNanos()));
+        }
+    }
+
+    @Override
+    public void complete(JobOutcome outcome) throws IOException {
+        Path marker = cancelledDir.resolve(outcome.id() + SUFFIX);
+        if (Files.exists(marker)) {
+            Files.deleteIfExists(marker);
+        } else {
+            writeAtomically(doneDir.resolve(outcome.id() + SUFFIX), objectMapper.writeValueAsBytes(outcome));
+        }
+        Path claimed = claims.remove(outcome.id());
+        if (claimed != null) {
+            Files.deleteIfExists(claimed);
+        }
+    }
+
+    @Override
+    public JobOutcome awaitOutcome(String id, Duration timeout) throws IOException, InterruptedException {
+        Path file = doneDir.resolve(id + SUFFIX);
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!Files.exists(file)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.min(remaining, pollInterval.toNanos()));
+        }
+        return objectMapper.readValue(file.toFile(), JobOutcome.class);
+    }
+
+    @Override
+    public void remove(String id) throws IOException {
+        Files.deleteIfExists(doneDir.resolve(id + SUFFIX));
+    }
+
+    @Override
+    public void cancel(String id) throws IOException {
+        // A marca vem antes: um worker que reservar o job entre os dois passos já a encontra
+        writeAtomically(cancelledDir.resolve(id + SUFFIX), new byte[0]);
+        for (Path file : list(pendingDir)) {
+            if (file.getFileName().toString().endsWith("." + id + SUFFIX)) {
+                Files.deleteIfExists(file);
+            }
+        }
+        remove(id);
+    }
+
+    @Override
+    public boolean isCancelled(String id) {
+        return Files.exists(cancelledDir.resolve(id + SUFFIX));
+    }
+
+    @Override
+    public void renewClaims() throws IOException {
+        FileTime now = FileTime.from(Instant.now());
+        for (Path claimed : claims.values()) {
+            try {
+                Files.setLastModifiedTime(claimed, now);
+            } catch (NoSuchFileException e) {
+                // concluído entre a leitura do mapa e a renovação
+            }
+        }
+    }
+
+    @Override
+    public void purge(Duration maxAge) throws IOException {
+        long limit = System.currentTimeMillis() - maxAge.toMillis();
+        for (Path directory : List.of(doneDir, cancelledDir)) {
+            for (Path file : list(directory)) {
+                try {
+                    if (Files.getLastModifiedTime(file).toMillis() < limit) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (NoSuchFileException e) {
+                    // consumido durante a varredura
+                }
+            }
+        }
+    }
+
+    @Override
+    public int depth() {
+        try {
+            return list(pendingDir).size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Pendentes na ordem de reserva: prioridade, reservas do tenant divididas pelo peso, publicação.
+     */
+    private List<Path> claimOrder(List<Path> pending) throws IOException {
+        if (pending.size() < 2) {
+            return pending;
+        }
+        Map<String, Integer> running = new HashMap<>();
+        for (Path claimed : list(claimedDir)) {
+            running.merge(tenantOf(claimed), 1, Integer::sum);
+        }
+        Comparator<Path> order = Comparator
+                .comparing((Path file) -> file.getFileName().toString().charAt(0))
+                .thenComparingDouble(file -> {
+                    String tenant = tenantOf(file);
+                    return running.getOrDefault(tenant, 0) / (double) tenantWeight.applyAsInt(tenant);
+                })
+                .thenComparing(Path::getFileName);
+        return pending.stream().sorted(order).toList();
+    }
+
+    private static String tenantOf(Path file) {
+        String name = file.getFileName().toString();
+        String[] prefix = name.substring(0, name.indexOf('.')).split("-", 3);
+        try {
+            return prefix.length == 3 ? new String(TENANT_DECODER.decode(prefix[2]), StandardCharsets.UTF_8) : "";
+        } catch (IllegalArgumentException e) {
+            // nome fora do formato atual: conta como um tenant sem peso configurado
+            return "";
+        }
+    }
+
+    private void requeueStaleClaims() throws IOException {
+        long now = System.currentTimeMillis();
+        if (now - lastStaleCheck < claimTimeout.toMillis() / 4) {
+            return;
+        }
+        lastStaleCheck = now;
+        for (Path claimed : list(claimedDir)) {
+            try {
+                if (now - Files.getLastModifiedTime(claimed).toMillis() > claimTimeout.toMillis()) {
+                    Files.move(claimed, pendingDir.resolve(claimed.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+                    LOG.warnf("Reserva expirada devolvida à fila: %s", claimed.getFileName());
+                }
+            } catch (NoSuchFileException e) {
+                // concluído ou devolvido por outro processo durante a varredura
+            }
+        }
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), "job", ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+}
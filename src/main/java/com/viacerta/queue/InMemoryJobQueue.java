@@ -0,0 +1,84 @@
+package com.viacerta.queue;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fila no próprio processo, para API e worker na mesma JVM (render.role=api,worker): exercita a
+ * separação dos papéis numa máquina só, sem broker externo.
+ */
+public class InMemoryJobQueue implements JobQueue {
+    private final BlockingQueue<QueuedJob> pending = new LinkedBlockingQueue<>();
+    private final Map<String, CompletableFuture<JobOutcome>> outcomes = new ConcurrentHashMap<>();
+    // Cancelados depois de reservados, até o worker concluir
+    private final Set<String> cancelled = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void submit(QueuedJob job) {
+        outcomes.put(job.id(), new CompletableFuture<>());
+        pending.add(job);
+    }
+
+    @Override
+    public QueuedJob take(Duration timeout) throws InterruptedException {
+        return pending.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void complete(JobOutcome outcome) {
+        if (cancelled.remove(outcome.id())) {
+            return;
+        }
+        // Job já descartado por quem publicou (ex.: prazo esgotado) não recebe resultado
+        CompletableFuture<JobOutcome> future = outcomes.get(outcome.id());
+        if (future != null) {
+            future.complete(outcome);
+        }
+    }
+
+    @Override
+    public JobOutcome awaitOutcome(String id, Duration timeout) throws InterruptedException {
+        CompletableFuture<JobOutcome> future = outcomes.get(id);
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void remove(String id) {
+        outcomes.remove(id);
+    }
+
+    @Override
+    public void cancel(String id) {
+        outcomes.remove(id);
+        if (!pending.removeIf(job -> job.id().equals(id))) {
+            cancelled.add(id);
+        }
+    }
+
+    @Override
+    public boolean isCancelled(String id) {
+        return cancelled.contains(id);
+    }
+
+    @Override
+    public int depth() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,27 @@
+package com.viacerta.queue;
+
+import java.util.Map;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * Resultado publicado pelo worker: a chave do documento gerado no BlobStore, ou o erro. invalidInput
+ * indica erro nos dados da requisição (400 na API) e não falha do worker. stageMillis traz as etapas
+ * medidas no worker.
+ */
+@RegisterForReflection
+public record JobOutcome(String id, String resultKey, String error, boolean invalidInput,
+        Map<String, Long> stageMillis) {
+
+    public static JobOutcome done(String id, String resultKey, Map<String, Long> stageMillis) {
+        return new JobOutcome(id, resultKey, null, false, stageMillis);
+    }
+
+    public static JobOutcome failed(String id, String error, boolean invalidInput, Map<String, Long> stageMillis) {
+        return new JobOutcome(id, null, error, invalidInput, stageMillis);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
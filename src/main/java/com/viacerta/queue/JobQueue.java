@@ -0,0 +1,50 @@
+package com.viacerta.queue;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Fila de gerações entre os nós de API, que publicam os jobs e esperam o resultado, e os workers, que
+ * reservam os jobs e publicam o resultado. Os templates e os PDFs não passam pela fila: ficam no BlobStore.
+ */
+public interface JobQueue {
+
+    void submit(QueuedJob job) throws IOException;
+
+    /**
+     * Próximo job, já reservado para quem chamou; null se nenhum chegar no prazo.
+     */
+    QueuedJob take(Duration timeout) throws IOException, InterruptedException;
+
+    /**
+     * Publica o resultado; o de um job cancelado é descartado.
+     */
+    void complete(JobOutcome outcome) throws IOException;
+
+    /**
+     * Resultado do job, esperando até o prazo; null se ele não terminar a tempo.
+     */
+    JobOutcome awaitOutcome(String id, Duration timeout) throws IOException, InterruptedException;
+
+    // Descarta o resultado depois de consumido
+    void remove(String id) throws IOException;
+
+    /**
+     * Quem publicou desistiu do job (prazo esgotado ou requisição interrompida): ele sai da fila se ainda
+     * não foi reservado, e o worker que já o reservou descarta o resultado.
+     */
+    void cancel(String id) throws IOException;
+
+    boolean isCancelled(String id);
+
+    // Renova as reservas deste processo, para não voltarem à fila enquanto a geração ainda roda
+    default void renewClaims() throws IOException {
+    }
+
+    // Apaga resultados e cancelamentos mais antigos que maxAge que ninguém consumiu
+    default void purge(Duration maxAge) throws IOException {
+    }
+
+    // Jobs publicados e ainda não reservados
+    int depth();
+}
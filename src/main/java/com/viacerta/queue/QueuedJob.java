@@ -0,0 +1,16 @@
+package com.viacerta.queue;
+
+import java.util.List;
+import java.util.Map;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * Pedido de geração publicado na fila. Os templates vão pelo SHA-256, com os bytes no BlobStore; conversor,
+ * formato de saída e compressão vão como recebidos na requisição.
+ */
+@RegisterForReflection
+public record QueuedJob(String id, String tenant, boolean interactive, List<String> templates,
+        Map<String, Object> fieldsJson, Map<String, Boolean> rulesJson, String converter, String output,
+        String compression) {
+}
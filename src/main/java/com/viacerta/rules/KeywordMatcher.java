@@ -0,0 +1,100 @@
+package com.viacerta.rules;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Autômato de Aho–Corasick: verifica se um texto contém alguma das palavras em uma única passada,
+ * independente da quantidade de palavras.
+ */
+public final class KeywordMatcher {
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private int[] failure;
+    private boolean[] terminal;
+
+    public KeywordMatcher(Collection<String> keywords) {
+        transitions.add(new HashMap<>());
+        List<Integer> terminals = new ArrayList<>();
+        for (String keyword : keywords) {
+            if (keyword == null || keyword.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                Integer nextState = transitions.get(state).get(keyword.charAt(i));
+                if (nextState == null) {
+                    nextState = transitions.size();
+                    transitions.add(new HashMap<>());
+                    transitions.get(state).put(keyword.charAt(i), nextState);
+                }
+                state = nextState;
+            }
+            terminals.add(state);
+        }
+
+        terminal = new boolean[transitions.size()];
+        for (int state : terminals) {
+            terminal[state] = true;
+        }
+        buildFailureLinks();
+    }
+
+    public boolean isEmpty() {
+        return transitions.size() == 1;
+    }
+
+    public boolean containsAny(CharSequence text) {
+        if (isEmpty() || text == null) {
+            return false;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            if (terminal[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int step(int state, char c) {
+        while (true) {
+            Integer nextState = transitions.get(state).get(c);
+            if (nextState != null) {
+                return nextState;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failure[state];
+        }
+    }
+
+    // Busca em largura: a ligação de falha aponta para o maior sufixo que também é prefixo de alguma palavra
+    private void buildFailureLinks() {
+        failure = new int[transitions.size()];
+        Arrays.fill(failure, 0);
+        Queue<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+                int child = edge.getValue();
+                int fallback = failure[state];
+                while (fallback != 0 && !transitions.get(fallback).containsKey(edge.getKey())) {
+                    fallback = failure[fallback];
+                }
+                Integer target = transitions.get(fallback).get(edge.getKey());
+                failure[child] = target != null && target != child ? target : 0;
+                // Palavra que termina no sufixo também é encontrada a partir deste estado
+                terminal[child] |= terminal[failure[child]];
+                queue.add(child);
+            }
+        }
+    }
+}
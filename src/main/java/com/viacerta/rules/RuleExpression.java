@@ -0,0 +1,12 @@
+package com.viacerta.rules;
+
+import java.util.Map;
+
+/**
+ * Condição compilada de um bloco ${if(...)}, avaliada sobre o rulesJson da requisição.
+ */
+@FunctionalInterface
+public interface RuleExpression {
+
+    boolean evaluate(Map<String, Boolean> rules);
+}
@@ -0,0 +1,178 @@
+package com.viacerta.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compila condições como {@code campo <> "" and (outro = true or not terceiro)}.
+ *
+ * <p>Operadores: {@code =} ({@code ==}), {@code <>} ({@code !=}), {@code and} ({@code &&}),
+ * {@code or} ({@code ||}), {@code not} ({@code !}) e parênteses. Como o rulesJson só tem booleanos,
+ * uma chave sozinha é verdadeira quando a regra é true; comparada com true/false, compara o valor
+ * (regra ausente vale false); comparada com texto ou número, {@code <>} indica regra true e
+ * {@code =} o contrário, como no formato antigo {@code ${if(campo<>"")}}.
+ */
+public final class RuleParser {
+    private final String source;
+    private final List<String> tokens;
+    private int position;
+
+    private RuleParser(String source) {
+        this.source = source;
+        this.tokens = tokenize(source);
+    }
+
+    public static RuleExpression parse(String condition) {
+        RuleParser parser = new RuleParser(condition);
+        if (parser.tokens.isEmpty()) {
+            throw parser.error("condição vazia");
+        }
+        RuleExpression expression = parser.parseOr();
+        if (parser.position < parser.tokens.size()) {
+            throw parser.error("símbolo inesperado '" + parser.tokens.get(parser.position) + "'");
+        }
+        return expression;
+    }
+
+    private RuleExpression parseOr() {
+        RuleExpression left = parseAnd();
+        while (accept("or") || accept("||")) {
+            RuleExpression first = left;
+            RuleExpression second = parseAnd();
+            left = rules -> first.evaluate(rules) || second.evaluate(rules);
+        }
+        return left;
+    }
+
+    private RuleExpression parseAnd() {
+        RuleExpression left = parseUnary();
+        while (accept("and") || accept("&&")) {
+            RuleExpression first = left;
+            RuleExpression second = parseUnary();
+            left = rules -> first.evaluate(rules) && second.evaluate(rules);
+        }
+        return left;
+    }
+
+    private RuleExpression parseUnary() {
+        if (accept("not") || accept("!")) {
+            RuleExpression operand = parseUnary();
+            return rules -> !operand.evaluate(rules);
+        }
+        if (accept("(")) {
+            RuleExpression inner = parseOr();
+            expect(")");
+            return inner;
+        }
+        return parseComparison();
+    }
+
+    private RuleExpression parseComparison() {
+        String key = next();
+        if (!isIdentifier(key)) {
+            throw error("esperado o nome de uma regra em vez de '" + key + "'");
+        }
+        boolean equals;
+        if (accept("=") || accept("==")) {
+            equals = true;
+        } else if (accept("<>") || accept("!=")) {
+            equals = false;
+        } else {
+            return rules -> isTrue(rules, key);
+        }
+
+        String literal = next();
+        String lower = literal.toLowerCase(Locale.ROOT);
+        if (lower.equals("true") || lower.equals("false")) {
+            boolean expected = lower.equals("true");
+            return equals
+                    ? rules -> isTrue(rules, key) == expected
+                    : rules -> isTrue(rules, key) != expected;
+        }
+        if (literal.equals("(") || literal.equals(")") || isOperator(lower)) {
+            throw error("valor esperado após o operador");
+        }
+        // Comparação com texto: a regra só indica se o campo está preenchido
+        return equals
+                ? rules -> !isTrue(rules, key)
+                : rules -> isTrue(rules, key);
+    }
+
+    private static boolean isTrue(Map<String, Boolean> rules, String key) {
+        return rules != null && Boolean.TRUE.equals(rules.get(key));
+    }
+
+    private boolean accept(String token) {
+        if (position < tokens.size() && tokens.get(position).equalsIgnoreCase(token)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw error("esperado '" + token + "'");
+        }
+    }
+
+    private String next() {
+        if (position >= tokens.size()) {
+            throw error("fim inesperado");
+        }
+        return tokens.get(position++);
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Condição inválida '" + source + "': " + message);
+    }
+
+    private static boolean isIdentifier(String token) {
+        char first = token.charAt(0);
+        return (Character.isLetter(first) || first == '_') && !isOperator(token.toLowerCase(Locale.ROOT));
+    }
+
+    private static boolean isOperator(String token) {
+        return token.equals("and") || token.equals("or") || token.equals("not");
+    }
+
+    private static List<String> tokenize(String source) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"' || c == '\'' || c == '“' || c == '”') {
+                // Aspas tipográficas aparecem quando o Word autocorrige o template
+                int end = i + 1;
+                while (end < source.length() && "\"'“”".indexOf(source.charAt(end)) < 0) {
+                    end++;
+                }
+                tokens.add(source.substring(i, Math.min(end + 1, source.length())));
+                i = end + 1;
+            } else if (source.startsWith("<>", i) || source.startsWith("!=", i) || source.startsWith("==", i)
+                    || source.startsWith("&&", i) || source.startsWith("||", i)) {
+                tokens.add(source.substring(i, i + 2));
+                i += 2;
+            } else if ("()=!".indexOf(c) >= 0) {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else {
+                int end = i;
+                while (end < source.length() && (Character.isLetterOrDigit(source.charAt(end))
+                        || source.charAt(end) == '_' || source.charAt(end) == '.' || source.charAt(end) == '-')) {
+                    end++;
+                }
+                if (end == i) {
+                    throw new IllegalArgumentException("Condição inválida '" + source + "': caractere '" + c + "'");
+                }
+                tokens.add(source.substring(i, end));
+                i = end;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,274 @@
+package com.viacerta.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentCatalog;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageDestination;
+import org.apache.poi.xwpf.usermodel.IBodyElement;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBody;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBookmark;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTP;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSdtBlock;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTbl;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viacerta.cache.Fingerprint;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Gera N registros a partir de um único template em um só documento e uma só conversão.
+ * O corpo do template é copiado uma vez por registro (precedido por um parágrafo com quebra de página
+ * e um marcador de registro), e cada cópia recebe os dados do seu registro pelo mesmo plano FreeMarker,
+ * inclusive as linhas e parágrafos repetidos por lista. As seções condicionais do rulesJson valem para
+ * o lote inteiro e são aplicadas ao template antes da cópia.
+ * A conversão entra na fila do tenant como trabalho em segundo plano, com o custo de todos os registros.
+ */
+@ApplicationScoped
+public class BatchRenderService {
+    // Marcador do início de cada registro: um bookmark vazio, exportado como destino nomeado do PDF
+    private static final String RECORD_BOOKMARK = "rec_";
+    // Faixa de ids fora da usada pelos bookmarks do próprio template
+    private static final long RECORD_BOOKMARK_ID = 900_000_000L;
+    private static final Map<String, Object> RECORD_DESTINATIONS = Map.of("ExportBookmarksToPDFDestination", true);
+
+    private ProcessDocumentWithFreemarkerService serviceFreemarker;
+    private LibreOfficeConverterService libreOfficeConverterService;
+    private TenantScheduler tenantScheduler;
+    private RuleEvaluatorService ruleEvaluator;
+    private ObjectMapper objectMapper;
+
+    @ConfigProperty(name = "batch.max-records", defaultValue = "5000")
+    int maxRecords;
+
+    @Inject
+    public BatchRenderService(ProcessDocumentWithFreemarkerService serviceFreemarker,
+            LibreOfficeConverterService libreOfficeConverterService, TenantScheduler tenantScheduler,
+            RuleEvaluatorService ruleEvaluator, ObjectMapper objectMapper) {
+        this.serviceFreemarker = serviceFreemarker;
+        this.libreOfficeConverterService = libreOfficeConverterService;
+        this.tenantScheduler = tenantScheduler;
+        this.ruleEvaluator = ruleEvaluator;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Lê os registros de um array JSON ou de um fluxo NDJSON (um objeto por linha).
+     */
+    public List<Map<String, Object>> readRecords(InputStream input) throws IOException {
+        List<Map<String, Object>> records = new ArrayList<>();
+        try (MappingIterator<Map<String, Object>> iterator = objectMapper.readerFor(Map.class).readValues(input)) {
+            while (iterator.hasNextValue()) {
+                if (records.size() >= maxRecords) {
+                    throw new IllegalArgumentException("Lote excede o limite de " + maxRecords + " registros");
+                }
+                records.add(iterator.nextValue());
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Regras do lote (mapa JSON de nome para true/false); vazio ou ausente não liga nenhuma regra.
+     */
+    public Map<String, Boolean> readRules(String rulesJson) {
+        if (rulesJson == null || rulesJson.isBlank()) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(rulesJson, new TypeReference<Map<String, Boolean>>() {
+            });
+        } catch (JacksonException e) {
+            throw new IllegalArgumentException("Parte rulesJson com JSON inválido");
+        }
+    }
+
+    /**
+     * Converte o lote e devolve o PDF; as páginas iniciais de cada registro são gravadas em recordStartPages.
+     */
+    public ConversionResult renderBatch(byte[] templateBytes, String templateFingerprint, List<Map<String, Object>> records,
+            Map<String, Boolean> rulesJson, List<Integer> recordStartPages, TenantScheduler.Caller caller)
+            throws Exception {
+        if (records.isEmpty()) {
+            throw new IllegalArgumentException("Lote sem registros");
+        }
+        if (templateFingerprint == null) {
+            templateFingerprint = Fingerprint.sha256(templateBytes);
+        }
+
+        XWPFDocument template = new XWPFDocument(new ByteArrayInputStream(templateBytes));
+        // Marcadores ${if(...)} não são FreeMarker: as regras saem do template antes do plano e da cópia
+        String planKey = ruleEvaluator.apply(template, templateFingerprint, rulesJson);
+        DocumentPlan plan = serviceFreemarker.getPlan(template, planKey);
+        int elementsPerRecord = template.getBodyElements().size() + 1;
+
+        XWPFDocument batchDocument = buildBatchDocument(template, records.size());
+        List<IBodyElement> elements = batchDocument.getBodyElements();
+        if (elements.size() != elementsPerRecord * records.size()) {
+            throw new IllegalStateException("Falha ao montar o documento em lote");
+        }
+
+        // Cabeçalhos, rodapés e notas são compartilhados pelo lote e recebem os dados do primeiro registro
+        serviceFreemarker.processHeadersAndFooters(batchDocument, plan, records.get(0));
+        for (int i = 0; i < records.size(); i++) {
+            serviceFreemarker.processBody(batchDocument, i * elementsPerRecord + 1, plan, records.get(i));
+        }
+        if (plan.isRepeating()) {
+            // Do último registro para o primeiro: a repetição muda a quantidade de elementos da cópia, e
+            // as cópias anteriores continuam nas posições calculadas
+            for (int i = records.size() - 1; i >= 0; i--) {
+                serviceFreemarker.expandRepeating(batchDocument, i * elementsPerRecord + 1,
+                        (i + 1) * elementsPerRecord, records.get(i));
+            }
+        }
+
+        ConversionResult result;
+        int paragraphs = plan.getParagraphCount() * records.size();
+        try (TenantScheduler.Slot slot = tenantScheduler.awaitSlot(caller.background(), paragraphs,
+                new StageTimings())) {
+            result = libreOfficeConverterService.convert(batchDocument, RECORD_DESTINATIONS, new StageTimings());
+        }
+        if (recordStartPages != null) {
+            try {
+                recordStartPages.addAll(findRecordStartPages(result.getPdf().toFile(), records.size()));
+            } catch (IOException e) {
+                result.close();
+                throw e;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Separa o PDF do lote em um PDF por registro, gravados em um ZIP.
+     */
+    public void splitToZip(File batchPdf, List<Integer> recordStartPages, OutputStream output) throws IOException {
+        try (PDDocument source = PDDocument.load(batchPdf, MemoryUsageSetting.setupMixed(64L * 1024 * 1024));
+                ZipOutputStream zip = new ZipOutputStream(output)) {
+            int pageCount = source.getNumberOfPages();
+            for (int i = 0; i < recordStartPages.size(); i++) {
+                int firstPage = recordStartPages.get(i);
+                int lastPage = i + 1 < recordStartPages.size() ? recordStartPages.get(i + 1) - 1 : pageCount;
+                try (PDDocument part = new PDDocument()) {
+                    for (int page = firstPage; page <= lastPage; page++) {
+                        part.importPage(source.getPage(page - 1));
+                    }
+                    zip.putNextEntry(new ZipEntry(String.format("registro-%05d.pdf", i + 1)));
+                    part.save(zip);
+                    zip.closeEntry();
+                }
+            }
+        }
+    }
+
+    private XWPFDocument buildBatchDocument(XWPFDocument template, int recordCount) throws IOException {
+        CTBody body = template.getDocument().getBody();
+        CTBody templateBody = (CTBody) body.copy();
+
+        // Parágrafo separador criado pela API do POI para herdar os estilos padrão do documento
+        XWPFParagraph separator = template.createParagraph();
+        separator.setPageBreak(true);
+        // Marca de parágrafo em 1pt para que o separador vazio não ocupe uma linha no início do registro
+        separator.getCTP().getPPr().addNewRPr().addNewSz().setVal(BigInteger.TWO);
+        CTP separatorXml = (CTP) separator.getCTP().copy();
+
+        while (!template.getBodyElements().isEmpty()) {
+            template.removeBodyElement(0);
+        }
+
+        for (int i = 0; i < recordCount; i++) {
+            CTP recordSeparator = body.addNewP();
+            recordSeparator.set(separatorXml);
+            if (i == 0) {
+                // O primeiro registro não deve começar com uma página em branco
+                recordSeparator.getPPr().unsetPageBreakBefore();
+            }
+            BigInteger bookmarkId = BigInteger.valueOf(RECORD_BOOKMARK_ID + i);
+            CTBookmark bookmark = recordSeparator.addNewBookmarkStart();
+            bookmark.setId(bookmarkId);
+            bookmark.setName(RECORD_BOOKMARK + i);
+            recordSeparator.addNewBookmarkEnd().setId(bookmarkId);
+            appendBodyContent(body, templateBody);
+        }
+
+        // Relê o pacote para que o POI crie os objetos XWPF de todas as cópias
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        template.write(buffer);
+        return new XWPFDocument(new ByteArrayInputStream(buffer.toByteArray()));
+    }
+
+    private void appendBodyContent(CTBody body, CTBody templateBody) {
+        XmlCursor cursor = templateBody.newCursor();
+        try {
+            if (!cursor.toFirstChild()) {
+                return;
+            }
+            do {
+                XmlObject element = cursor.getObject();
+                if (element instanceof CTP paragraph) {
+                    body.addNewP().set(paragraph);
+                } else if (element instanceof CTTbl table) {
+                    body.addNewTbl().set(table);
+                } else if (element instanceof CTSdtBlock sdt) {
+                    body.addNewSdt().set(sdt);
+                }
+            } while (cursor.toNextSibling());
+        } finally {
+            cursor.dispose();
+        }
+    }
+
+    private List<Integer> findRecordStartPages(File pdfFile, int recordCount) throws IOException {
+        List<Integer> startPages = new ArrayList<>();
+        try (PDDocument pdf = PDDocument.load(pdfFile, MemoryUsageSetting.setupMixed(64L * 1024 * 1024))) {
+            PDDocumentCatalog catalog = pdf.getDocumentCatalog();
+            for (int i = 0; i < recordCount; i++) {
+                PDPageDestination destination = findDestination(catalog, RECORD_BOOKMARK + i);
+                int pageIndex = destination != null ? destination.retrievePageNumber() : -1;
+                if (pageIndex < 0) {
+                    throw new IOException(
+                            "Não foi possível localizar o início de todos os registros no PDF do lote");
+                }
+                startPages.add(pageIndex + 1);
+            }
+        }
+        return startPages;
+    }
+
+    /**
+     * Destino nomeado pela árvore de nomes (PDF 1.2+) ou pelo dicionário Dests do catálogo (PDF 1.1).
+     */
+    private static PDPageDestination findDestination(PDDocumentCatalog catalog, String name) throws IOException {
+        PDDestination destination = null;
+        if (catalog.getNames() != null && catalog.getNames().getDests() != null) {
+            destination = catalog.getNames().getDests().getValue(name);
+        }
+        if (destination == null && catalog.getDests() != null) {
+            destination = catalog.getDests().getDestination(name);
+        }
+        return destination instanceof PDPageDestination pageDestination ? pageDestination : null;
+    }
+}
@@ -0,0 +1,49 @@
+package com.viacerta.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.jboss.logging.Logger;
+
+import com.viacerta.queue.BlobStore;
+
+/**
+ * Documento gerado por um worker, enviado direto do BlobStore. Fechar apaga o documento e o resultado
+ * do job na fila.
+ */
+public class BlobDocument implements RenderedDocument {
+    private static final Logger LOG = Logger.getLogger(BlobDocument.class);
+
+    private final BlobStore blobs;
+    private final String key;
+    private final Runnable onClose;
+
+    public BlobDocument(BlobStore blobs, String key, Runnable onClose) {
+        this.blobs = blobs;
+        this.key = key;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public void writeTo(OutputStream output) throws IOException {
+        try (InputStream input = blobs.open(key)) {
+            input.transferTo(output);
+        }
+    }
+
+    @Override
+    public long size() throws IOException {
+        return blobs.size(key);
+    }
+
+    @Override
+    public void close() {
+        try {
+            blobs.delete(key);
+        } catch (IOException e) {
+            LOG.warnf(e, "Falha ao apagar o resultado %s", key);
+        }
+        onClose.run();
+    }
+}
@@ -0,0 +1,59 @@
+package com.viacerta.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * PDF servido pelo cache de resultados: bytes da camada em memória ou arquivo da camada em disco,
+ * aberto no momento da consulta para que uma remoção concorrente não interrompa o envio.
+ */
+public class CachedDocument implements RenderedDocument {
+    private final String key;
+    private final byte[] bytes;
+    private final InputStream input;
+    private final long size;
+
+    CachedDocument(String key, byte[] bytes) {
+        this.key = key;
+        this.bytes = bytes;
+        this.input = null;
+        this.size = bytes.length;
+    }
+
+    CachedDocument(String key, InputStream input, long size) {
+        this.key = key;
+        this.bytes = null;
+        this.input = input;
+        this.size = size;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public void writeTo(OutputStream output) throws IOException {
+        if (bytes != null) {
+            output.write(bytes);
+        } else {
+            input.transferTo(output);
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void close() {
+        if (input != null) {
+            try {
+                input.close();
+            } catch (IOException e) {
+                // nada a liberar além do descritor
+            }
+        }
+    }
+}
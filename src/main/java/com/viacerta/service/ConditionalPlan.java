@@ -0,0 +1,130 @@
+package com.viacerta.service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import com.viacerta.rules.KeywordMatcher;
+import com.viacerta.rules.RuleExpression;
+
+/**
+ * Estrutura condicional de um template, compilada uma vez: blocos ${if(...)} ... ${endif} por unidade
+ * (parágrafo do corpo ou linha de tabela), condições dentro de um parágrafo e o texto de cada parágrafo
+ * para a regra antiga de remover parágrafos que citam uma regra false.
+ */
+public class ConditionalPlan {
+    private final int unitCount;
+    private final int[] paragraphUnit;
+    private final String[] paragraphTexts;
+    private final List<Block> blocks;
+    private final BitSet markerUnits;
+    private final RuleExpression[] inlineConditions;
+    private final BitSet markerParagraphs;
+
+    ConditionalPlan(int unitCount, int[] paragraphUnit, String[] paragraphTexts, List<Block> blocks,
+            BitSet markerUnits, RuleExpression[] inlineConditions, BitSet markerParagraphs) {
+        this.unitCount = unitCount;
+        this.paragraphUnit = paragraphUnit;
+        this.paragraphTexts = paragraphTexts;
+        this.blocks = blocks;
+        this.markerUnits = markerUnits;
+        this.inlineConditions = inlineConditions;
+        this.markerParagraphs = markerParagraphs;
+    }
+
+    public int getUnitCount() {
+        return unitCount;
+    }
+
+    public int getParagraphCount() {
+        return paragraphTexts.length;
+    }
+
+    public boolean hasConditions() {
+        return !blocks.isEmpty() || !markerUnits.isEmpty() || !markerParagraphs.isEmpty();
+    }
+
+    public boolean isMarkerParagraph(int paragraph) {
+        return markerParagraphs.get(paragraph);
+    }
+
+    /**
+     * Decide o que sai do documento para estas regras, sem tocar no documento.
+     */
+    public Outcome evaluate(Map<String, Boolean> rules) {
+        BitSet removedUnits = (BitSet) markerUnits.clone();
+        for (Block block : blocks) {
+            if (!block.condition.evaluate(rules)) {
+                removedUnits.set(block.startUnit, block.endUnit + 1);
+            }
+        }
+
+        BitSet clearedParagraphs = new BitSet();
+        for (int i = 0; i < inlineConditions.length; i++) {
+            if (inlineConditions[i] != null && !removedUnits.get(paragraphUnit[i])
+                    && !inlineConditions[i].evaluate(rules)) {
+                clearedParagraphs.set(i);
+            }
+        }
+
+        // Regra antiga: parágrafo que cita uma regra false é esvaziado; uma passada por parágrafo
+        List<String> falseKeys = new ArrayList<>();
+        if (rules != null) {
+            rules.forEach((key, value) -> {
+                if (!Boolean.TRUE.equals(value)) {
+                    falseKeys.add(key);
+                }
+            });
+        }
+        if (!falseKeys.isEmpty()) {
+            KeywordMatcher matcher = new KeywordMatcher(falseKeys);
+            for (int i = 0; i < paragraphTexts.length; i++) {
+                if (inlineConditions[i] == null && !markerParagraphs.get(i) && !removedUnits.get(paragraphUnit[i])
+                        && matcher.containsAny(paragraphTexts[i])) {
+                    clearedParagraphs.set(i);
+                }
+            }
+        }
+        return new Outcome(removedUnits, clearedParagraphs);
+    }
+
+    static final class Block {
+        private final int startUnit;
+        private final int endUnit;
+        private final RuleExpression condition;
+
+        Block(int startUnit, int endUnit, RuleExpression condition) {
+            this.startUnit = startUnit;
+            this.endUnit = endUnit;
+            this.condition = condition;
+        }
+    }
+
+    public static final class Outcome {
+        private final BitSet removedUnits;
+        private final BitSet clearedParagraphs;
+
+        Outcome(BitSet removedUnits, BitSet clearedParagraphs) {
+            this.removedUnits = removedUnits;
+            this.clearedParagraphs = clearedParagraphs;
+        }
+
+        public boolean isUnitRemoved(int unit) {
+            return removedUnits.get(unit);
+        }
+
+        public boolean isParagraphCleared(int paragraph) {
+            return clearedParagraphs.get(paragraph);
+        }
+
+        public boolean isEmpty() {
+            return removedUnits.isEmpty() && clearedParagraphs.isEmpty();
+        }
+
+        // Identifica a estrutura resultante, para compor a chave do plano FreeMarker
+        public String signature() {
+            return removedUnits + "|" + clearedParagraphs;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.viacerta.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * PDF gerado dentro do diretório de trabalho exclusivo de uma conversão.
+ * Fechar o resultado apaga o diretório inteiro, inclusive o .docx de entrada e o perfil do LibreOffice.
+ */
+public class ConversionResult implements RenderedDocument {
+    private final Path workDir;
+    private final Path pdf;
+
+    public ConversionResult(Path workDir, Path pdf) {
+        this.workDir = workDir;
+        this.pdf = pdf;
+    }
+
+    public Path getWorkDir() {
+        return workDir;
+    }
+
+    public Path getPdf() {
+        return pdf;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return Files.size(pdf);
+    }
+
+    @Override
+    public void writeTo(OutputStream output) throws IOException {
+        Files.copy(pdf, output);
+    }
+
+    @Override
+    public void close() {
+        deleteRecursively(workDir);
+    }
+
+    static void deleteRecursively(Path directory) {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Não foi possível remover o diretório temporário: " + directory);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.viacerta.service;
+
+import java.util.Locale;
+
+/**
+ * Conversor do .docx para PDF. PDFBOX renderiza no próprio processo os documentos simples e volta
+ * para o LibreOffice quando o documento usa algo que o renderizador não reproduz.
+ */
+public enum ConverterEngine {
+    LIBREOFFICE,
+    PDFBOX;
+
+    /**
+     * Valor informado na requisição ou na propriedade personalizada "converter" do template; null se vazio.
+     */
+    public static ConverterEngine fromValue(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Conversor inválido '" + value + "': use libreoffice ou pdfbox");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.viacerta.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Conta os bytes escritos e não fecha a saída de destino: o PDFBox fecha o stream ao salvar,
+ * e a resposta HTTP deve continuar sob controle do RESTEasy.
+ */
+public class CountingOutputStream extends OutputStream {
+    private final OutputStream target;
+    private long count;
+
+    public CountingOutputStream(OutputStream target) {
+        this.target = target;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        target.write(b);
+        count++;
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+        target.write(buffer, offset, length);
+        count += length;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        target.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        target.flush();
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
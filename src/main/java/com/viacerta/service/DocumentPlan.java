@@ -0,0 +1,102 @@
+package com.viacerta.service;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.viacerta.service.DocumentWalker.Location;
+
+import freemarker.template.Template;
+
+/**
+ * Templates FreeMarker pré-compilados de um documento, indexados pela posição dos parágrafos que têm
+ * placeholder; os demais parágrafos não entram no plano e não são visitados na renderização.
+ * Cabeçalhos, rodapés e notas ficam separados do corpo porque são processados uma vez por documento,
+ * mesmo em lote. Parágrafos marcados como simples contêm apenas ${campo} e são resolvidos direto nos
+ * runs, sem executar o template.
+ * Parágrafos com ${lista[].campo} ficam fora dos templates e são tratados depois pelo RepeatingSections;
+ * os com ${img:...}, de qualquer parte, também ficam fora e são tratados pelo ImagePlaceholders.
+ */
+public class DocumentPlan {
+    private final Location[] headerLocations;
+    private final Template[] headerTemplates;
+    private final BitSet simpleHeaders;
+    private final Location[] bodyLocations;
+    private final Template[] bodyTemplates;
+    private final BitSet simpleBody;
+    private final Location[] imageLocations;
+    private final int[] shape;
+    private final int paragraphCount;
+    private final int placeholderCount;
+    private final boolean repeating;
+
+    public DocumentPlan(Location[] headerLocations, Template[] headerTemplates, BitSet simpleHeaders,
+            Location[] bodyLocations, Template[] bodyTemplates, BitSet simpleBody, Location[] imageLocations,
+            int[] shape, int paragraphCount, int placeholderCount, boolean repeating) {
+        this.headerLocations = headerLocations;
+        this.headerTemplates = headerTemplates;
+        this.simpleHeaders = simpleHeaders;
+        this.bodyLocations = bodyLocations;
+        this.bodyTemplates = bodyTemplates;
+        this.simpleBody = simpleBody;
+        this.imageLocations = imageLocations;
+        this.shape = shape;
+        this.paragraphCount = paragraphCount;
+        this.placeholderCount = placeholderCount;
+        this.repeating = repeating;
+    }
+
+    // Cabeçalhos, rodapés e notas
+    public Location[] getHeaderLocations() {
+        return headerLocations;
+    }
+
+    public Template[] getHeaderTemplates() {
+        return headerTemplates;
+    }
+
+    public boolean isSimpleHeader(int index) {
+        return simpleHeaders.get(index);
+    }
+
+    public Location[] getBodyLocations() {
+        return bodyLocations;
+    }
+
+    public Template[] getBodyTemplates() {
+        return bodyTemplates;
+    }
+
+    public boolean isSimpleBody(int index) {
+        return simpleBody.get(index);
+    }
+
+    // Parágrafos com placeholder de imagem, do corpo e das demais partes
+    public Location[] getImageLocations() {
+        return imageLocations;
+    }
+
+    // Parágrafos do corpo com template, ou seja, que são efetivamente processados
+    public int getBodyTemplateCount() {
+        return bodyTemplates.length;
+    }
+
+    // Mesma quantidade de elementos por parte que o documento compilado (ver DocumentWalker.shape)
+    public boolean hasShape(int[] documentShape) {
+        return Arrays.equals(shape, documentShape);
+    }
+
+    // Há linhas ou parágrafos repetidos por lista
+    public boolean isRepeating() {
+        return repeating;
+    }
+
+    // Todos os parágrafos percorridos na compilação, com ou sem placeholder
+    public int getParagraphCount() {
+        return paragraphCount;
+    }
+
+    // Ocorrências de ${ nos parágrafos com template, inclusive as de diretivas FreeMarker
+    public int getPlaceholderCount() {
+        return placeholderCount;
+    }
+}
@@ -0,0 +1,225 @@
+package com.viacerta.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.xwpf.usermodel.IBody;
+import org.apache.poi.xwpf.usermodel.IBodyElement;
+import org.apache.poi.xwpf.usermodel.XWPFAbstractFootnoteEndnote;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFHeaderFooter;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFSDT;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTP;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSdtBlock;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTbl;
+
+/**
+ * Percorre, numa única passada, todos os parágrafos do documento: cabeçalhos, corpo, rodapés e notas,
+ * entrando em tabelas aninhadas, caixas de texto e controles de conteúdo (SDT) de bloco. Cada parágrafo
+ * vem com a sua posição, que depois é resolvida direto num documento com a mesma estrutura, sem percorrer
+ * o resto da árvore.
+ * O POI não cria objetos para os parágrafos de caixas de texto e SDTs; eles são envolvidos num
+ * XWPFParagraph sobre o próprio XML, então as alterações nos runs vão para o documento normalmente.
+ */
+public final class DocumentWalker {
+    private static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final String TEXT_BOX_PARAGRAPHS =
+            "declare namespace w='" + W_NS + "' .//w:txbxContent//w:p";
+    private static final String SDT_PARAGRAPHS = "declare namespace w='" + W_NS + "' .//w:sdtContent//w:p";
+
+    private DocumentWalker() {
+    }
+
+    public enum Part {
+        HEADER, BODY, FOOTER, FOOTNOTE, ENDNOTE
+    }
+
+    /**
+     * Posição de um parágrafo: a parte do documento (e qual, quando há várias) e o caminho dentro dela.
+     * O caminho tem o índice do elemento em getBodyElements() e, para cada tabela no caminho, a linha,
+     * a célula e o índice do elemento dentro da célula. Um último passo negativo (~k) indica o k-ésimo
+     * parágrafo de caixa de texto ou SDT dentro do elemento anterior.
+     */
+    public record Location(Part part, int partIndex, int[] path) {
+        public boolean isEmbedded() {
+            return path[path.length - 1] < 0;
+        }
+
+        // Quantas tabelas há entre a parte e o parágrafo
+        public int tableDepth() {
+            return (path.length - (isEmbedded() ? 2 : 1)) / 3;
+        }
+
+        @Override
+        public String toString() {
+            return part + "[" + partIndex + "]" + Arrays.toString(path);
+        }
+    }
+
+    public record LocatedParagraph(Location location, XWPFParagraph paragraph) {
+    }
+
+    public static List<LocatedParagraph> paragraphs(XWPFDocument document) {
+        List<LocatedParagraph> paragraphs = new ArrayList<>();
+        for (int i = 0; i < document.getHeaderList().size(); i++) {
+            walk(document.getHeaderList().get(i), Part.HEADER, i, new int[0], paragraphs);
+        }
+        walk(document, Part.BODY, 0, new int[0], paragraphs);
+        for (int i = 0; i < document.getFooterList().size(); i++) {
+            walk(document.getFooterList().get(i), Part.FOOTER, i, new int[0], paragraphs);
+        }
+        for (int i = 0; i < document.getFootnotes().size(); i++) {
+            walk(document.getFootnotes().get(i), Part.FOOTNOTE, i, new int[0], paragraphs);
+        }
+        for (int i = 0; i < document.getEndnotes().size(); i++) {
+            walk(document.getEndnotes().get(i), Part.ENDNOTE, i, new int[0], paragraphs);
+        }
+        return paragraphs;
+    }
+
+    /**
+     * Quantidade de elementos de cada parte, para conferir barato se um documento tem a estrutura de
+     * outro antes de resolver posições.
+     */
+    public static int[] shape(XWPFDocument document) {
+        return new int[] { document.getHeaderList().size(), document.getBodyElements().size(),
+                document.getFooterList().size(), document.getFootnotes().size(), document.getEndnotes().size() };
+    }
+
+    /**
+     * Parágrafo na posição informada. bodyOffset desloca o primeiro passo das posições do corpo, para
+     * aplicar as posições do template a uma cópia do corpo mais adiante no documento (lote).
+     *
+     * @throws IllegalStateException quando o documento não tem a estrutura em que a posição foi obtida
+     */
+    public static XWPFParagraph resolve(XWPFDocument document, Location location, int bodyOffset) {
+        try {
+            IBody body = switch (location.part()) {
+                case HEADER -> document.getHeaderList().get(location.partIndex());
+                case BODY -> document;
+                case FOOTER -> document.getFooterList().get(location.partIndex());
+                case FOOTNOTE -> document.getFootnotes().get(location.partIndex());
+                case ENDNOTE -> document.getEndnotes().get(location.partIndex());
+            };
+            int[] path = location.path();
+            int step = 0;
+            int elementIndex = path[step++] + (location.part() == Part.BODY ? bodyOffset : 0);
+            while (true) {
+                IBodyElement element = body.getBodyElements().get(elementIndex);
+                if (step < path.length && path[step] < 0) {
+                    XmlObject container = element instanceof XWPFParagraph paragraph
+                            ? paragraph.getCTP()
+                            : elementXml(body, elementIndex);
+                    String query = element instanceof XWPFParagraph ? TEXT_BOX_PARAGRAPHS : SDT_PARAGRAPHS;
+                    return new XWPFParagraph(embedded(container, query).get(~path[step]), body);
+                }
+                if (step == path.length && element instanceof XWPFParagraph paragraph) {
+                    return paragraph;
+                }
+                if (!(element instanceof XWPFTable table) || step + 3 > path.length) {
+                    throw mismatch(location);
+                }
+                body = table.getRow(path[step]).getCell(path[step + 1]);
+                elementIndex = path[step + 2];
+                step += 3;
+            }
+        } catch (IndexOutOfBoundsException | NullPointerException e) {
+            throw mismatch(location);
+        }
+    }
+
+    private static void walk(IBody body, Part part, int partIndex, int[] prefix, List<LocatedParagraph> paragraphs) {
+        List<IBodyElement> elements = body.getBodyElements();
+        for (int e = 0; e < elements.size(); e++) {
+            IBodyElement element = elements.get(e);
+            int[] path = append(prefix, e);
+            if (element instanceof XWPFParagraph paragraph) {
+                paragraphs.add(new LocatedParagraph(new Location(part, partIndex, path), paragraph));
+                walkEmbedded(paragraph.getCTP(), TEXT_BOX_PARAGRAPHS, body, part, partIndex, path, paragraphs);
+            } else if (element instanceof XWPFTable table) {
+                List<XWPFTableRow> rows = table.getRows();
+                for (int r = 0; r < rows.size(); r++) {
+                    List<XWPFTableCell> cells = rows.get(r).getTableCells();
+                    for (int c = 0; c < cells.size(); c++) {
+                        walk(cells.get(c), part, partIndex, append(path, r, c), paragraphs);
+                    }
+                }
+            } else if (element instanceof XWPFSDT) {
+                walkEmbedded(elementXml(body, e), SDT_PARAGRAPHS, body, part, partIndex, path, paragraphs);
+            }
+        }
+    }
+
+    // Parágrafos sem objeto do POI: todos os de dentro do elemento, inclusive em tabelas e caixas aninhadas
+    private static void walkEmbedded(XmlObject container, String query, IBody body, Part part, int partIndex,
+            int[] path, List<LocatedParagraph> paragraphs) {
+        List<CTP> embedded = embedded(container, query);
+        for (int k = 0; k < embedded.size(); k++) {
+            paragraphs.add(new LocatedParagraph(new Location(part, partIndex, append(path, ~k)),
+                    new XWPFParagraph(embedded.get(k), body)));
+        }
+    }
+
+    private static List<CTP> embedded(XmlObject container, String query) {
+        List<CTP> paragraphs = new ArrayList<>();
+        if (container == null) {
+            return paragraphs;
+        }
+        for (XmlObject element : container.selectPath(query)) {
+            // Dentro de mc:AlternateContent o XML não é tipado pelo schema; changeType reaproveita o mesmo nó
+            CTP paragraph = element instanceof CTP ctp ? ctp : (CTP) element.changeType(CTP.type);
+            if (paragraph != null) {
+                paragraphs.add(paragraph);
+            }
+        }
+        return paragraphs;
+    }
+
+    // XML do elemento na posição de getBodyElements(), que segue a ordem de w:p, w:tbl e w:sdt no XML
+    private static XmlObject elementXml(IBody body, int index) {
+        XmlObject parent = switch (body) {
+            case XWPFDocument document -> document.getDocument().getBody();
+            case XWPFTableCell cell -> cell.getCTTc();
+            case XWPFHeaderFooter headerFooter -> headerFooter._getHdrFtr();
+            case XWPFAbstractFootnoteEndnote note -> note.getCTFtnEdn();
+            default -> null;
+        };
+        if (parent == null) {
+            return null;
+        }
+        XmlCursor cursor = parent.newCursor();
+        try {
+            int position = 0;
+            if (cursor.toFirstChild()) {
+                do {
+                    XmlObject child = cursor.getObject();
+                    if (child instanceof CTP || child instanceof CTTbl || child instanceof CTSdtBlock) {
+                        if (position++ == index) {
+                            return child;
+                        }
+                    }
+                } while (cursor.toNextSibling());
+            }
+            return null;
+        } finally {
+            cursor.dispose();
+        }
+    }
+
+    private static int[] append(int[] path, int... steps) {
+        int[] result = Arrays.copyOf(path, path.length + steps.length);
+        System.arraycopy(steps, 0, result, path.length, steps.length);
+        return result;
+    }
+
+    private static IllegalStateException mismatch(Location location) {
+        return new IllegalStateException("Estrutura do documento não corresponde ao plano compilado (" + location + ")");
+    }
+}
@@ -0,0 +1,44 @@
+package com.viacerta.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+/**
+ * Documento preenchido devolvido como .docx: sem conversão nem arquivo temporário, é escrito direto
+ * do XWPFDocument no stream da resposta.
+ */
+public class DocxDocument implements RenderedDocument {
+    private final XWPFDocument document;
+    private final StageTimings timings;
+
+    public DocxDocument(XWPFDocument document, StageTimings timings) {
+        this.document = document;
+        this.timings = timings;
+    }
+
+    @Override
+    public void writeTo(OutputStream output) throws IOException {
+        long start = System.nanoTime();
+        try {
+            document.write(output);
+        } finally {
+            timings.record("serialize", System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public long size() {
+        return -1;
+    }
+
+    @Override
+    public void close() {
+        try {
+            document.close();
+        } catch (IOException e) {
+            // documento em memória, nada a liberar
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.viacerta.service;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateExceptionHandler;
+
+/**
+ * Configuration base do FreeMarker. No executável nativo esta classe é inicializada em tempo de build
+ * (quarkus.native.additional-build-args), então o parser e o object wrapper já chegam prontos no boot.
+ * Locale e fuso horário dependem da máquina e por isso são aplicados em tempo de execução, em create().
+ */
+public final class FreemarkerConfigurationHolder {
+    private static final Configuration BASE = createBase();
+
+    private FreemarkerConfigurationHolder() {
+    }
+
+    public static Configuration create() {
+        Configuration cfg = (Configuration) BASE.clone();
+        cfg.setLocale(Locale.getDefault());
+        cfg.setTimeZone(TimeZone.getDefault());
+        cfg.setSQLDateAndTimeTimeZone(TimeZone.getDefault());
+        return cfg;
+    }
+
+    private static Configuration createBase() {
+        Configuration cfg = new Configuration(Configuration.VERSION_2_3_33);
+        cfg.setDefaultEncoding("UTF-8");
+        // cfg.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
+        cfg.setTemplateExceptionHandler(TemplateExceptionHandler.HTML_DEBUG_HANDLER);// for development
+        try {
+            // Carrega as classes do parser junto com a configuração
+            new Template("warm-up", "${campo!}<#if campo??>${campo}</#if>", cfg);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao inicializar o FreeMarker", e);
+        }
+        return cfg;
+    }
+}
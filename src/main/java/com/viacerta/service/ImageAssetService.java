@@ -0,0 +1,231 @@
+package com.viacerta.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Base64;
+
+import javax.imageio.ImageIO;
+
+import org.apache.poi.util.Units;
+import org.apache.poi.xwpf.usermodel.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import com.viacerta.cache.BoundedCache;
+import com.viacerta.cache.Fingerprint;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Imagens dos placeholders ${img:...}: registro de imagens reutilizáveis (logos, assinaturas) endereçado
+ * por conteúdo, como o de templates, e cache das imagens já decodificadas e reduzidas para o tamanho de
+ * destino. A chave do cache é o ID da imagem registrada ou o SHA-256 do base64 recebido, mais o tamanho;
+ * o mesmo logo em milhares de gerações é decodificado e reduzido uma vez só.
+ */
+@ApplicationScoped
+public class ImageAssetService {
+    private static final double PIXELS_PER_POINT = 96.0 / 72;
+
+    private final Path directory;
+    private final BoundedCache<String, PreparedImage> preparedCache;
+    private final int dpi;
+
+    @Inject
+    public ImageAssetService(
+            @ConfigProperty(name = "images.assets.dir", defaultValue = "${java.io.tmpdir}/image-assets") String directory,
+            @ConfigProperty(name = "images.cache.max-size", defaultValue = "256") int cacheSize,
+            @ConfigProperty(name = "images.cache.ttl", defaultValue = "PT6H") Duration cacheTtl,
+            @ConfigProperty(name = "images.dpi", defaultValue = "150") int dpi) {
+        this.directory = Path.of(directory);
+        this.preparedCache = new BoundedCache<>(cacheSize, cacheTtl);
+        this.dpi = dpi;
+    }
+
+    /**
+     * Imagem pronta para XWPFRun.addPicture: bytes (reduzidos quando maiores que o necessário), tipo do
+     * POI e tamanho de exibição em EMU.
+     */
+    public record PreparedImage(byte[] data, int pictureType, String fileName, int widthEmu, int heightEmu) {
+    }
+
+    /**
+     * @throws IllegalArgumentException quando os bytes não são uma imagem PNG, JPEG, GIF ou BMP
+     */
+    public String register(byte[] imageBytes) throws IOException {
+        pictureType(imageBytes);
+        if (ImageIO.read(new ByteArrayInputStream(imageBytes)) == null) {
+            throw new IllegalArgumentException("Imagem inválida");
+        }
+        String id = Fingerprint.sha256(imageBytes);
+        Path target = pathOf(id);
+        if (!Files.exists(target)) {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, id, ".tmp");
+            Files.write(temp, imageBytes);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return id;
+    }
+
+    public boolean delete(String id) throws IOException {
+        if (!TemplateRegistryService.isValidId(id)) {
+            return false;
+        }
+        // Sai também do cache cada tamanho já preparado da imagem (<id>@LxA)
+        preparedCache.invalidateIf(key -> key.startsWith(id + "@"));
+        return Files.deleteIfExists(pathOf(id));
+    }
+
+    /**
+     * Prepara a imagem informada no fieldsJson: ID de imagem registrada, data URI ou base64 puro.
+     * Largura e altura de destino em pontos; 0 usa a proporção da imagem a partir da outra medida, ou o
+     * tamanho natural (96 dpi) quando as duas são 0.
+     *
+     * @return null para valor vazio
+     * @throws IllegalArgumentException para imagem não encontrada, base64 inválido ou formato sem suporte
+     */
+    public PreparedImage prepare(String source, int widthPoints, int heightPoints) throws IOException {
+        if (source == null || source.isBlank()) {
+            return null;
+        }
+        boolean registered = TemplateRegistryService.isValidId(source);
+        String hash = registered ? source : Fingerprint.sha256(source.getBytes(StandardCharsets.ISO_8859_1));
+        String key = hash + "@" + widthPoints + "x" + heightPoints;
+        PreparedImage image = preparedCache.get(key);
+        if (image == null) {
+            byte[] bytes = registered ? load(source) : decodeBase64(source);
+            image = scale(bytes, widthPoints, heightPoints);
+            preparedCache.put(key, image);
+        }
+        return image;
+    }
+
+    public long getCacheHits() {
+        return preparedCache.getHits();
+    }
+
+    public long getCacheMisses() {
+        return preparedCache.getMisses();
+    }
+
+    private byte[] load(String id) throws IOException {
+        Path path = pathOf(id);
+        if (!Files.exists(path)) {
+            throw new IllegalArgumentException("Imagem não encontrada: " + id);
+        }
+        return Files.readAllBytes(path);
+    }
+
+    private static byte[] decodeBase64(String source) {
+        String data = source.strip();
+        if (data.startsWith("data:")) {
+            data = data.substring(data.indexOf(',') + 1);
+        }
+        try {
+            return Base64.getMimeDecoder().decode(data);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Imagem com base64 inválido");
+        }
+    }
+
+    private PreparedImage scale(byte[] bytes, int widthPoints, int heightPoints) throws IOException {
+        int pictureType = pictureType(bytes);
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(bytes));
+        if (source == null) {
+            throw new IllegalArgumentException("Imagem inválida");
+        }
+        double width = widthPoints;
+        double height = heightPoints;
+        if (width <= 0 && height <= 0) {
+            width = source.getWidth() / PIXELS_PER_POINT;
+            height = source.getHeight() / PIXELS_PER_POINT;
+        } else if (height <= 0) {
+            height = width * source.getHeight() / source.getWidth();
+        } else if (width <= 0) {
+            width = height * source.getWidth() / source.getHeight();
+        }
+
+        // Acima da resolução de impressão os pixels extras só aumentam o .docx e a conversão
+        int targetWidth = Math.max(1, (int) Math.round(width * dpi / 72));
+        int targetHeight = Math.max(1, (int) Math.round(height * dpi / 72));
+        byte[] data = bytes;
+        String extension = extension(pictureType);
+        if (source.getWidth() > targetWidth && source.getHeight() > targetHeight) {
+            boolean jpeg = pictureType == Document.PICTURE_TYPE_JPEG;
+            data = encode(resize(source, targetWidth, targetHeight, jpeg), jpeg ? "jpeg" : "png");
+            pictureType = jpeg ? Document.PICTURE_TYPE_JPEG : Document.PICTURE_TYPE_PNG;
+            extension = jpeg ? "jpeg" : "png";
+        }
+        return new PreparedImage(data, pictureType, "imagem." + extension, Units.toEMU(width), Units.toEMU(height));
+    }
+
+    // Reduções grandes em etapas de metade, para a interpolação bilinear não perder detalhes
+    private static BufferedImage resize(BufferedImage source, int targetWidth, int targetHeight, boolean opaque) {
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format, output)) {
+            throw new IOException("Sem encoder de imagem para " + format);
+        }
+        return output.toByteArray();
+    }
+
+    // Pela assinatura dos primeiros bytes; o POI precisa do tipo e o ImageIO não o informa
+    private static int pictureType(byte[] bytes) {
+        if (bytes.length >= 4 && (bytes[0] & 0xFF) == 0x89 && bytes[1] == 'P' && bytes[2] == 'N' && bytes[3] == 'G') {
+            return Document.PICTURE_TYPE_PNG;
+        }
+        if (bytes.length >= 2 && (bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xD8) {
+            return Document.PICTURE_TYPE_JPEG;
+        }
+        if (bytes.length >= 4 && bytes[0] == 'G' && bytes[1] == 'I' && bytes[2] == 'F' && bytes[3] == '8') {
+            return Document.PICTURE_TYPE_GIF;
+        }
+        if (bytes.length >= 2 && bytes[0] == 'B' && bytes[1] == 'M') {
+            return Document.PICTURE_TYPE_BMP;
+        }
+        throw new IllegalArgumentException("Formato de imagem sem suporte (use PNG, JPEG, GIF ou BMP)");
+    }
+
+    private static String extension(int pictureType) {
+        return switch (pictureType) {
+            case Document.PICTURE_TYPE_JPEG -> "jpeg";
+            case Document.PICTURE_TYPE_GIF -> "gif";
+            case Document.PICTURE_TYPE_BMP -> "bmp";
+            default -> "png";
+        };
+    }
+
+    private Path pathOf(String id) {
+        return directory.resolve(id + ".img");
+    }
+}
@@ -0,0 +1,51 @@
+package com.viacerta.service;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Níveis de compressão das imagens no PDF, traduzidos para as opções do filtro writer_pdf_Export do
+ * LibreOffice: qualidade JPEG e redução da resolução das imagens (em dpi). LOSSLESS mantém as imagens
+ * sem perdas, para arquivamento; HIGH gera o menor arquivo, adequado para tela.
+ */
+public enum ImageCompression {
+    LOSSLESS(0, 0),
+    LOW(90, 600),
+    MEDIUM(80, 300),
+    HIGH(60, 150);
+
+    private final int jpegQuality;
+    private final int maxResolution;
+
+    ImageCompression(int jpegQuality, int maxResolution) {
+        this.jpegQuality = jpegQuality;
+        this.maxResolution = maxResolution;
+    }
+
+    void addFilterData(Map<String, Object> filterData) {
+        if (this == LOSSLESS) {
+            filterData.put("UseLosslessCompression", Boolean.TRUE);
+            filterData.put("ReduceImageResolution", Boolean.FALSE);
+            return;
+        }
+        filterData.put("UseLosslessCompression", Boolean.FALSE);
+        filterData.put("Quality", jpegQuality);
+        filterData.put("ReduceImageResolution", Boolean.TRUE);
+        filterData.put("MaxImageResolution", maxResolution);
+    }
+
+    /**
+     * Valor informado na requisição (lossless, low, medium ou high); null se vazio.
+     */
+    public static ImageCompression fromValue(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                    "Compressão inválida '" + value + "': use lossless, low, medium ou high");
+        }
+    }
+}
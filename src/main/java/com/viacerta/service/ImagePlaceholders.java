@@ -0,0 +1,130 @@
+package com.viacerta.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+
+/**
+ * Placeholders de imagem: ${img:logo}, ${img:logo:120} (largura em pontos) ou ${img:logo:120x40}.
+ * O valor de "logo" no fieldsJson é o ID de uma imagem registrada, um data URI ou base64 puro; vazio ou
+ * ausente apenas remove o placeholder. A imagem entra exatamente onde o placeholder começa, num run novo
+ * com a formatação do run dele; os placeholders de texto simples do mesmo parágrafo são resolvidos junto.
+ */
+final class ImagePlaceholders {
+    private static final Pattern IMAGE_PLACEHOLDER =
+            Pattern.compile("\\$\\{\\s*img:([A-Za-z_]\\w*(?:\\.[A-Za-z_]\\w*)*)(?::(\\d+)?(?:x(\\d+))?)?\\s*\\}");
+
+    private final PlaceholderEngine placeholderEngine;
+    private final ImageAssetService imageAssetService;
+
+    ImagePlaceholders(PlaceholderEngine placeholderEngine, ImageAssetService imageAssetService) {
+        this.placeholderEngine = placeholderEngine;
+        this.imageAssetService = imageAssetService;
+    }
+
+    static boolean hasImages(String text) {
+        return text != null && text.contains("img:") && IMAGE_PLACEHOLDER.matcher(text).find();
+    }
+
+    /**
+     * @return quantidade de imagens inseridas
+     */
+    int apply(XWPFParagraph paragraph, ModelValueResolver resolver) throws IOException {
+        String[] runTexts = PlaceholderEngine.runTexts(paragraph);
+        List<ImageRef> images = find(runTexts);
+        if (images.isEmpty()) {
+            return 0;
+        }
+
+        // Do último para o primeiro: os runs e as posições dos placeholders anteriores continuam válidos
+        int inserted = 0;
+        for (int i = images.size() - 1; i >= 0; i--) {
+            ImageRef image = images.get(i);
+            Object value = resolver.value(image.name());
+            ImageAssetService.PreparedImage prepared = imageAssetService.prepare(
+                    value instanceof String source ? source : null, image.width(), image.height());
+            if (prepared == null) {
+                continue;
+            }
+            XWPFRun pictureRun = insertBefore(paragraph, image.run(), image.offset());
+            try {
+                pictureRun.addPicture(new ByteArrayInputStream(prepared.data()), prepared.pictureType(),
+                        prepared.fileName(), prepared.widthEmu(), prepared.heightEmu());
+            } catch (InvalidFormatException e) {
+                throw new IllegalArgumentException("Imagem inválida em " + image.name());
+            }
+            inserted++;
+        }
+
+        // Remove o texto dos placeholders de imagem e resolve os de texto; os não resolvidos ficam intactos
+        placeholderEngine.substitute(PlaceholderEngine.runTexts(paragraph),
+                key -> key.startsWith("img:") ? "" : resolver.apply(key), false).applyTo(paragraph);
+        return inserted;
+    }
+
+    /**
+     * Divide o run no início do placeholder: o texto anterior vai para um run novo antes dele, seguido
+     * de um run vazio para a imagem, e o run original fica com o placeholder em diante (e o que mais
+     * tiver, como quebras de linha). Os runs novos copiam a formatação do original.
+     *
+     * @return o run da imagem
+     */
+    private static XWPFRun insertBefore(XWPFParagraph paragraph, int runIndex, int offset) {
+        XWPFRun run = paragraph.getRuns().get(runIndex);
+        // Texto atual: com duas imagens no mesmo run, a divisão da segunda já encurtou este run
+        String runText = run.getText(0);
+        int position = runIndex;
+        if (offset > 0) {
+            XWPFRun prefix = newRunLike(paragraph, position++, run);
+            prefix.setText(runText.substring(0, offset));
+            run.setText(runText.substring(offset), 0);
+        }
+        return newRunLike(paragraph, position, run);
+    }
+
+    private static XWPFRun newRunLike(XWPFParagraph paragraph, int position, XWPFRun source) {
+        XWPFRun run = paragraph.insertNewRun(position);
+        if (source.getCTR().isSetRPr()) {
+            run.getCTR().setRPr(source.getCTR().getRPr());
+        }
+        return run;
+    }
+
+    // Placeholders de imagem na ordem do texto, com o run e a posição no run em que cada um começa
+    private static List<ImageRef> find(String[] runTexts) {
+        StringBuilder text = new StringBuilder();
+        int[] runEnd = new int[runTexts.length];
+        for (int i = 0; i < runTexts.length; i++) {
+            if (runTexts[i] != null) {
+                text.append(runTexts[i]);
+            }
+            runEnd[i] = text.length();
+        }
+        List<ImageRef> images = new ArrayList<>();
+        Matcher matcher = IMAGE_PLACEHOLDER.matcher(text);
+        int run = 0;
+        while (matcher.find()) {
+            while (runEnd[run] <= matcher.start()) {
+                run++;
+            }
+            int runStart = run > 0 ? runEnd[run - 1] : 0;
+            images.add(new ImageRef(matcher.group(1), run, matcher.start() - runStart, size(matcher.group(2)),
+                    size(matcher.group(3))));
+        }
+        return images;
+    }
+
+    private static int size(String points) {
+        return points != null ? Integer.parseInt(points) : 0;
+    }
+
+    private record ImageRef(String name, int run, int offset, int width, int height) {
+    }
+}
@@ -1,67 +1,371 @@
 package com.viacerta.service;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.FileNotFoundException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.multipdf.PDFMergerUtility;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
 
 @ApplicationScoped
 public class LibreOfficeConverterService {
-    public File convertToPDF(XWPFDocument document) throws Exception {
-        // Obter o diretório do projeto
-        String projectDir = System.getProperty("user.dir");
-        File tempDocFile = new File(projectDir, "temp_" + System.currentTimeMillis() + ".docx");
-        
-        try (FileOutputStream out = new FileOutputStream(tempDocFile)) {
-            document.write(out);
-        }
-
-        // Comando para converter usando LibreOffice
-        String[] command = {"libreoffice", "--headless", "--convert-to", "pdf", tempDocFile.getAbsolutePath()};
-        Process process = new ProcessBuilder(command)
-            .directory(new File(projectDir)) 
+    private static final String WORK_DIR_PREFIX = "conv-";
+    private static final String INSTANCE_DIR_PREFIX = "instance-";
+    private static final String INSTANCE_LOCK = "instance.lock";
+    private static final String DOCX_FILE = "document.docx";
+    private static final String PDF_FILE = "document.pdf";
+
+    private LibreOfficeWorkerPool workerPool;
+
+    // Use um tmpfs (ex.: /dev/shm) para manter as conversões fora do disco
+    @ConfigProperty(name = "converter.work-dir", defaultValue = "${java.io.tmpdir}/conversions")
+    String workDirectory;
+
+    @ConfigProperty(name = "converter.libreoffice.command", defaultValue = "libreoffice")
+    String libreOfficeCommand;
+
+    @ConfigProperty(name = "converter.cli.timeout", defaultValue = "PT120S")
+    Duration commandTimeout;
+
+    @ConfigProperty(name = "converter.merge.max-heap", defaultValue = "32M")
+    MemorySize mergeMaxHeap;
+
+    private final AtomicLong mergedInputBytes = new AtomicLong();
+    private final AtomicLong mergedOutputBytes = new AtomicLong();
+    private final AtomicLong peakMergeBufferBytes = new AtomicLong();
+
+    // Subdiretório desta JVM no work-dir, travado enquanto ela roda (ver instanceRoot)
+    private Path instanceRoot;
+    private FileChannel instanceLockChannel;
+
+    @Inject
+    public LibreOfficeConverterService(LibreOfficeWorkerPool workerPool) {
+        this.workerPool = workerPool;
+    }
+
+    void onStart(@Observes StartupEvent event) throws IOException {
+        Path current = instanceRoot();
+        // Diretórios de instâncias que já terminaram (restart ou queda): o lock delas está livre.
+        // Os de outras JVMs em execução no mesmo work-dir (ex.: API e worker na mesma máquina) ficam
+        try (Stream<Path> instances = Files.list(workRoot())) {
+            instances.filter(path -> path.getFileName().toString().startsWith(INSTANCE_DIR_PREFIX))
+                    .filter(path -> !path.equals(current) && isStale(path))
+                    .forEach(ConversionResult::deleteRecursively);
+        }
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        if (instanceRoot == null) {
+            return;
+        }
+        try {
+            instanceLockChannel.close();
+        } catch (IOException e) {
+            // o lock é liberado de qualquer forma quando o processo termina
+        }
+        ConversionResult.deleteRecursively(instanceRoot);
+        instanceRoot = null;
+    }
+
+    /**
+     * Converte em um diretório de trabalho exclusivo, com nomes fixos e sem varrer diretórios;
+     * o chamador fecha o resultado depois de enviar o PDF.
+     */
+    public ConversionResult convert(XWPFDocument document) throws Exception {
+        return convert(document, new StageTimings());
+    }
+
+    /**
+     * Como convert(document), registrando a escrita do .docx ("serialize") e a conversão ("convert") em separado.
+     */
+    public ConversionResult convert(XWPFDocument document, StageTimings timings) throws Exception {
+        return convert(document, OutputOptions.PDF, timings);
+    }
+
+    /**
+     * Como convert(document, timings), com as opções de PDF/A e compressão de imagens da requisição.
+     */
+    public ConversionResult convert(XWPFDocument document, OutputOptions output, StageTimings timings)
+            throws Exception {
+        return convert(document, output.pdfFilterData(), timings);
+    }
+
+    /**
+     * Como convert(document, timings), com opções do filtro writer_pdf_Export passadas diretamente.
+     */
+    public ConversionResult convert(XWPFDocument document, Map<String, Object> filterData, StageTimings timings)
+            throws Exception {
+        Path workDir = createWorkDirectory();
+        try {
+            Path docxFile = workDir.resolve(DOCX_FILE);
+            serialize(document, docxFile, timings);
+
+            timings.time("convert", () -> {
+                if (workerPool.isEnabled()) {
+                    // Com o pool habilitado a conversão vai para uma instância soffice já aberta
+                    workerPool.convert(docxFile.toFile(), workDir.resolve(PDF_FILE).toFile(), filterData);
+                } else {
+                    convertWithCommandLine(docxFile, workDir, filterData);
+                }
+                return null;
+            });
+            return completedConversion(workDir);
+        } catch (Exception e) {
+            ConversionResult.deleteRecursively(workDir);
+            throw e;
+        }
+    }
+
+    /**
+     * Como convert(document, timings), sem ocupar uma thread enquanto o LibreOffice converte pela linha
+     * de comando: o resultado completa quando o processo termina. Com o pool habilitado a conversão
+     * continua síncrona, porque a chamada UNO bloqueia.
+     */
+    public CompletableFuture<ConversionResult> convertAsync(XWPFDocument document, StageTimings timings)
+            throws Exception {
+        return convertAsync(document, OutputOptions.PDF, timings);
+    }
+
+    public CompletableFuture<ConversionResult> convertAsync(XWPFDocument document, OutputOptions output,
+            StageTimings timings) throws Exception {
+        if (workerPool.isEnabled()) {
+            return CompletableFuture.completedFuture(convert(document, output, timings));
+        }
+        Path workDir = createWorkDirectory();
+        Process process;
+        try {
+            Path docxFile = workDir.resolve(DOCX_FILE);
+            serialize(document, docxFile, timings);
+            process = startCommandLine(docxFile, workDir, output.pdfFilterData());
+        } catch (Exception e) {
+            ConversionResult.deleteRecursively(workDir);
+            throw e;
+        }
+
+        long start = System.nanoTime();
+        return process.onExit()
+                .orTimeout(commandTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((exited, failure) -> {
+                    timings.record("convert", System.nanoTime() - start);
+                    try {
+                        if (failure != null) {
+                            process.destroyForcibly();
+                            throw new IOException("Tempo limite excedido na conversão pelo LibreOffice", failure);
+                        }
+                        checkExitValue(process);
+                        return completedConversion(workDir);
+                    } catch (IOException e) {
+                        ConversionResult.deleteRecursively(workDir);
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    private static void serialize(XWPFDocument document, Path docxFile, StageTimings timings) throws Exception {
+        timings.time("serialize", () -> {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(docxFile))) {
+                document.write(out);
+            }
+            return null;
+        });
+    }
+
+    private static ConversionResult completedConversion(Path workDir) throws IOException {
+        Path pdfFile = workDir.resolve(PDF_FILE);
+        if (!Files.exists(pdfFile)) {
+            throw new FileNotFoundException("Erro na conversão para PDF. Arquivo não gerado pelo LibreOffice.");
+        }
+        Files.deleteIfExists(workDir.resolve(DOCX_FILE));
+        return new ConversionResult(workDir, pdfFile);
+    }
+
+    /**
+     * Diretório exclusivo de uma conversão, removido no próximo início se a aplicação parar antes de fechá-lo.
+     */
+    Path createWorkDirectory() throws IOException {
+        return Files.createTempDirectory(instanceRoot(), WORK_DIR_PREFIX);
+    }
+
+    private void convertWithCommandLine(Path docxFile, Path workDir, Map<String, Object> filterData)
+            throws Exception {
+        Process process = startCommandLine(docxFile, workDir, filterData);
+        try {
+            if (!process.waitFor(commandTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("Tempo limite excedido na conversão pelo LibreOffice");
+            }
+        } catch (InterruptedException e) {
+            // Geração cancelada: não deixa o LibreOffice rodando em segundo plano
+            process.destroyForcibly();
+            throw e;
+        }
+        checkExitValue(process);
+    }
+
+    private Process startCommandLine(Path docxFile, Path workDir, Map<String, Object> filterData)
+            throws IOException {
+        // Perfil próprio por conversão: com o perfil padrão uma segunda instância apenas repassa o pedido
+        // para a primeira e termina antes do PDF existir
+        String[] command = {
+                libreOfficeCommand,
+                "--headless",
+                "--norestore",
+                "-env:UserInstallation=" + workDir.resolve("profile").toUri(),
+                "--convert-to", convertTo(filterData),
+                "--outdir", workDir.toString(),
+                docxFile.toString()
+        };
+        return new ProcessBuilder(command)
+            .directory(workDir.toFile())
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
             .start();
-        process.waitFor();
-
-        // Procurar o arquivo PDF na raiz do projeto
-        String pdfFileName = tempDocFile.getName().replace(".docx", ".pdf");
-        File pdfFile = new File(projectDir, pdfFileName);
-
-        if (!pdfFile.exists()) {
-            File[] possiblePdfs = new File(projectDir).listFiles((dir, name) -> name.startsWith("temp_") && name.endsWith(".pdf"));
-            
-            if (possiblePdfs != null && possiblePdfs.length > 0) {
-                pdfFile = possiblePdfs[0];
-            } else {
-                throw new FileNotFoundException("Erro na conversão para PDF. Arquivo não encontrado na raiz do projeto.");
+    }
+
+    /**
+     * Formato do --convert-to: "pdf", ou com FilterData no formato JSON aceito pela linha de comando
+     * (LibreOffice 7.4 ou mais novo), ex.: pdf:writer_pdf_Export:{"Quality":{"type":"long","value":"80"}}.
+     */
+    static String convertTo(Map<String, Object> filterData) {
+        if (filterData.isEmpty()) {
+            return "pdf";
+        }
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<String, Object> option : filterData.entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
             }
+            String type = option.getValue() instanceof Boolean ? "boolean" : "long";
+            json.append('"').append(option.getKey()).append("\":{\"type\":\"").append(type)
+                    .append("\",\"value\":\"").append(option.getValue()).append("\"}");
+        }
+        return "pdf:writer_pdf_Export:" + json.append('}');
+    }
+
+    private static void checkExitValue(Process process) throws IOException {
+        if (process.exitValue() != 0) {
+            throw new IOException("LibreOffice terminou com código " + process.exitValue());
+        }
+    }
+
+    private Path workRoot() {
+        return Path.of(workDirectory);
+    }
+
+    /**
+     * Diretório desta JVM dentro do work-dir, criado no primeiro uso. O lock exclusivo em instance.lock
+     * vale enquanto o processo roda e é o que as outras instâncias consultam antes de apagar o diretório.
+     */
+    private synchronized Path instanceRoot() throws IOException {
+        if (instanceRoot == null) {
+            Path directory = workRoot().resolve(INSTANCE_DIR_PREFIX + UUID.randomUUID());
+            Files.createDirectories(directory);
+            FileChannel channel = FileChannel.open(directory.resolve(INSTANCE_LOCK),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.lock();
+            instanceLockChannel = channel;
+            instanceRoot = directory;
         }
+        return instanceRoot;
+    }
 
-        deleteFile(tempDocFile);
+    // Sem lock file (diretório pela metade) ou com o lock livre: a instância dona já terminou
+    private static boolean isStale(Path instance) {
+        Path lockFile = instance.resolve(INSTANCE_LOCK);
+        if (!Files.exists(lockFile)) {
+            // Pode ser uma instância criando o diretório neste momento; só apaga se for antigo
+            try {
+                return Files.getLastModifiedTime(instance).toMillis() < System.currentTimeMillis() - 60_000;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.WRITE);
+                FileLock lock = channel.tryLock()) {
+            return lock != null;
+        } catch (OverlappingFileLockException e) {
+            // Travado por outro serviço desta mesma JVM
+            return false;
+        } catch (IOException e) {
+            return false;
+        }
+    }
 
-        return pdfFile;
+    public Path getWorkDirectory() throws IOException {
+        return instanceRoot();
     }
 
-    public byte[] unifyDocuments(File mainPdf, File subReportPdf) throws IOException {
+    /**
+     * Une os PDFs na ordem recebida e escreve o resultado direto na saída, com buffer misto:
+     * até o limite de heap em memória e o restante em arquivo de rascunho no diretório de trabalho.
+     */
+    public void unifyDocuments(List<File> pdfFiles, OutputStream output) throws IOException {
         PDFMergerUtility pdfMerger = new PDFMergerUtility();
-        pdfMerger.addSource(new FileInputStream(mainPdf));
-        if (subReportPdf != null && subReportPdf.exists()) { 
-            pdfMerger.addSource(new FileInputStream(subReportPdf));
-        }
-        
-        ByteArrayOutputStream mergedPdfOutputStream = new ByteArrayOutputStream();
-        pdfMerger.setDestinationStream(mergedPdfOutputStream);
-        pdfMerger.mergeDocuments(MemoryUsageSetting.setupMainMemoryOnly());
-        
-        return mergedPdfOutputStream.toByteArray();
+        long inputBytes = 0;
+        for (File pdfFile : pdfFiles) {
+            if (pdfFile != null && pdfFile.exists()) {
+                // addSource(File) deixa a abertura e o fechamento do arquivo com o PDFBox
+                pdfMerger.addSource(pdfFile);
+                inputBytes += pdfFile.length();
+            }
+        }
+
+        if (inputBytes == 0) {
+            throw new IOException("Falha ao gerar o arquivo PDF");
+        }
+
+        long heapLimit = mergeMaxHeap.asLongValue();
+        MemoryUsageSetting memoryUsage = MemoryUsageSetting.setupMixed(heapLimit).setTempDir(instanceRoot().toFile());
+
+        CountingOutputStream countingOutput = new CountingOutputStream(output);
+        pdfMerger.setDestinationStream(countingOutput);
+        pdfMerger.mergeDocuments(memoryUsage);
+
+        mergedInputBytes.addAndGet(inputBytes);
+        mergedOutputBytes.addAndGet(countingOutput.getCount());
+        // Estimativa: o PDFBox não expõe o uso do rascunho, mas o heap nunca passa do limite configurado
+        long bufferEstimate = Math.min(inputBytes, heapLimit);
+        peakMergeBufferBytes.accumulateAndGet(bufferEstimate, Math::max);
+    }
+
+    public long getMergedInputBytes() {
+        return mergedInputBytes.get();
+    }
+
+    public long getMergedOutputBytes() {
+        return mergedOutputBytes.get();
+    }
+
+    public long getPeakMergeBufferBytes() {
+        return peakMergeBufferBytes.get();
     }
 
     public static void deleteFile(File file) {
@@ -0,0 +1,204 @@
+package com.viacerta.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+
+import com.sun.star.beans.PropertyValue;
+import com.sun.star.bridge.XUnoUrlResolver;
+import com.sun.star.comp.helper.Bootstrap;
+import com.sun.star.frame.XComponentLoader;
+import com.sun.star.frame.XDesktop;
+import com.sun.star.frame.XStorable;
+import com.sun.star.lang.XComponent;
+import com.sun.star.lang.XMultiComponentFactory;
+import com.sun.star.uno.UnoRuntime;
+import com.sun.star.uno.XComponentContext;
+import com.sun.star.util.XCloseable;
+
+/**
+ * Instância soffice de longa duração, com perfil de usuário próprio, controlada via socket UNO.
+ */
+public class LibreOfficeWorker {
+    private static final Logger LOG = Logger.getLogger(LibreOfficeWorker.class);
+    private static final String PDF_FILTER = "writer_pdf_Export";
+
+    private final int id;
+    private final int port;
+    private final String command;
+    private final Path profileDir;
+
+    private Process process;
+    private Object desktop;
+    private XComponentLoader loader;
+    private int conversions;
+
+    public LibreOfficeWorker(int id, int port, String command, Path profileDir) {
+        this.id = id;
+        this.port = port;
+        this.command = command;
+        this.profileDir = profileDir;
+    }
+
+    public synchronized void start(Duration startupTimeout) throws IOException {
+        Files.createDirectories(profileDir);
+        String[] cmd = {
+                command,
+                "--headless",
+                "--invisible",
+                "--nologo",
+                "--nodefault",
+                "--norestore",
+                "--nolockcheck",
+                "-env:UserInstallation=" + profileDir.toUri(),
+                "--accept=socket,host=127.0.0.1,port=" + port + ";urp;StarOffice.ComponentContext"
+        };
+        process = new ProcessBuilder(cmd)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        conversions = 0;
+
+        // O soffice demora alguns segundos para abrir o socket na primeira execução do perfil
+        long deadline = System.nanoTime() + startupTimeout.toNanos();
+        Exception lastError = null;
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IOException("Worker LibreOffice " + id + " encerrou durante a inicialização");
+            }
+            try {
+                connect();
+                LOG.infof("Worker LibreOffice %d pronto na porta %d", id, port);
+                return;
+            } catch (Exception e) {
+                lastError = e;
+                sleep(250);
+            }
+        }
+        stop();
+        throw new IOException("Worker LibreOffice " + id + " não respondeu na porta " + port, lastError);
+    }
+
+    private void connect() throws Exception {
+        XComponentContext localContext = Bootstrap.createInitialComponentContext(null);
+        XMultiComponentFactory localFactory = localContext.getServiceManager();
+        XUnoUrlResolver resolver = UnoRuntime.queryInterface(XUnoUrlResolver.class,
+                localFactory.createInstanceWithContext("com.sun.star.bridge.UnoUrlResolver", localContext));
+
+        Object remote = resolver.resolve(
+                "uno:socket,host=127.0.0.1,port=" + port + ";urp;StarOffice.ComponentContext");
+        XComponentContext remoteContext = UnoRuntime.queryInterface(XComponentContext.class, remote);
+        desktop = remoteContext.getServiceManager()
+                .createInstanceWithContext("com.sun.star.frame.Desktop", remoteContext);
+        loader = UnoRuntime.queryInterface(XComponentLoader.class, desktop);
+    }
+
+    public void convert(File source, File target, Map<String, Object> filterData) throws Exception {
+        XComponent document = loader.loadComponentFromURL(toUrl(source), "_blank", 0,
+                new PropertyValue[] { property("Hidden", Boolean.TRUE), property("ReadOnly", Boolean.TRUE) });
+        if (document == null) {
+            throw new IOException("LibreOffice não conseguiu abrir o documento " + source.getName());
+        }
+        try {
+            XStorable storable = UnoRuntime.queryInterface(XStorable.class, document);
+            List<PropertyValue> properties = new ArrayList<>(List.of(
+                    property("FilterName", PDF_FILTER),
+                    property("Overwrite", Boolean.TRUE)));
+            if (!filterData.isEmpty()) {
+                PropertyValue[] options = filterData.entrySet().stream()
+                        .map(option -> property(option.getKey(), option.getValue()))
+                        .toArray(PropertyValue[]::new);
+                properties.add(property("FilterData", options));
+            }
+            storable.storeToURL(toUrl(target), properties.toArray(PropertyValue[]::new));
+        } finally {
+            XCloseable closeable = UnoRuntime.queryInterface(XCloseable.class, document);
+            if (closeable != null) {
+                closeable.close(true);
+            } else {
+                document.dispose();
+            }
+        }
+        conversions++;
+    }
+
+    public boolean isHealthy() {
+        if (process == null || !process.isAlive() || desktop == null) {
+            return false;
+        }
+        try {
+            // Chamada remota barata: falha se a ponte UNO estiver quebrada
+            UnoRuntime.queryInterface(XDesktop.class, desktop).getCurrentComponent();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    public synchronized void stop() {
+        if (desktop != null) {
+            try {
+                XDesktop xDesktop = UnoRuntime.queryInterface(XDesktop.class, desktop);
+                xDesktop.terminate();
+            } catch (Exception e) {
+                // A ponte já pode estar morta; o processo é encerrado abaixo
+            }
+        }
+        desktop = null;
+        loader = null;
+        if (process != null) {
+            process.destroy();
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+        process = null;
+    }
+
+    public void kill() {
+        Process current = process;
+        if (current != null) {
+            current.destroyForcibly();
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getConversions() {
+        return conversions;
+    }
+
+    private static String toUrl(File file) {
+        return file.toPath().toAbsolutePath().toUri().toString();
+    }
+
+    private static PropertyValue property(String name, Object value) {
+        PropertyValue property = new PropertyValue();
+        property.Name = name;
+        property.Value = value;
+        return property;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
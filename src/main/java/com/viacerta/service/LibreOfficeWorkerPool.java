@@ -0,0 +1,241 @@
+package com.viacerta.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+
+/**
+ * Pool de instâncias soffice mantidas quentes. Cada conversão empresta um worker livre,
+ * e o worker é reiniciado após falha, timeout ou ao atingir o limite de conversões.
+ */
+@ApplicationScoped
+public class LibreOfficeWorkerPool {
+    private static final Logger LOG = Logger.getLogger(LibreOfficeWorkerPool.class);
+
+    @ConfigProperty(name = "converter.pool.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "converter.pool.size", defaultValue = "2")
+    int size;
+
+    @ConfigProperty(name = "converter.pool.base-port", defaultValue = "2002")
+    int basePort;
+
+    @ConfigProperty(name = "converter.pool.profile-dir", defaultValue = "${java.io.tmpdir}/lo-workers")
+    String profileDir;
+
+    @ConfigProperty(name = "converter.pool.max-conversions", defaultValue = "200")
+    int maxConversions;
+
+    @ConfigProperty(name = "converter.pool.conversion-timeout", defaultValue = "PT60S")
+    Duration conversionTimeout;
+
+    @ConfigProperty(name = "converter.pool.acquire-timeout", defaultValue = "PT30S")
+    Duration acquireTimeout;
+
+    @ConfigProperty(name = "converter.pool.startup-timeout", defaultValue = "PT30S")
+    Duration startupTimeout;
+
+    @ConfigProperty(name = "converter.pool.health-check-interval", defaultValue = "PT30S")
+    Duration healthCheckInterval;
+
+    @ConfigProperty(name = "converter.libreoffice.command", defaultValue = "libreoffice")
+    String command;
+
+    private final List<LibreOfficeWorker> workers = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<LibreOfficeWorker> idleWorkers = new LinkedBlockingQueue<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger busy = new AtomicInteger();
+    private final AtomicLong completedConversions = new AtomicLong();
+    private final AtomicLong restarts = new AtomicLong();
+
+    private ExecutorService conversionExecutor;
+    private ScheduledExecutorService maintenanceExecutor;
+
+    void onStart(@Observes StartupEvent event) {
+        if (enabled) {
+            start();
+        }
+    }
+
+    synchronized void start() {
+        if (conversionExecutor != null) {
+            return;
+        }
+        conversionExecutor = Executors.newCachedThreadPool(daemonThreads("lo-conversion"));
+        maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(daemonThreads("lo-maintenance"));
+
+        for (int i = 0; i < size; i++) {
+            LibreOfficeWorker worker = new LibreOfficeWorker(i, basePort + i, command,
+                    Path.of(profileDir, "worker-" + i));
+            workers.add(worker);
+            // Inicialização em paralelo para não atrasar o boot da aplicação
+            maintenanceExecutor.execute(() -> restart(worker, false));
+        }
+        long interval = healthCheckInterval.toMillis();
+        maintenanceExecutor.scheduleWithFixedDelay(this::checkIdleWorkers, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        if (maintenanceExecutor != null) {
+            maintenanceExecutor.shutdownNow();
+        }
+        if (conversionExecutor != null) {
+            conversionExecutor.shutdownNow();
+        }
+        for (LibreOfficeWorker worker : workers) {
+            worker.stop();
+        }
+        workers.clear();
+        idleWorkers.clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param filterData opções do filtro de exportação PDF (vazio para o padrão)
+     */
+    public void convert(File source, File target, Map<String, Object> filterData) throws Exception {
+        LibreOfficeWorker worker = acquire();
+        boolean reusable = false;
+        try {
+            Future<?> conversion = conversionExecutor.submit(() -> {
+                worker.convert(source, target, filterData);
+                return null;
+            });
+            try {
+                conversion.get(conversionTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                reusable = true;
+            } catch (TimeoutException e) {
+                conversion.cancel(true);
+                worker.kill();
+                throw new IOException("Tempo limite excedido na conversão pelo worker " + worker.getId());
+            } catch (ExecutionException e) {
+                // Erro do documento com o worker íntegro não exige reinício
+                reusable = worker.isHealthy();
+                if (e.getCause() instanceof Exception cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+            completedConversions.incrementAndGet();
+        } finally {
+            release(worker, reusable);
+        }
+    }
+
+    private LibreOfficeWorker acquire() throws IOException, InterruptedException {
+        if (conversionExecutor == null) {
+            start();
+        }
+        waiting.incrementAndGet();
+        try {
+            LibreOfficeWorker worker = idleWorkers.poll(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (worker == null) {
+                throw new IOException("Nenhum worker LibreOffice disponível após " + acquireTimeout);
+            }
+            busy.incrementAndGet();
+            return worker;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private void release(LibreOfficeWorker worker, boolean reusable) {
+        busy.decrementAndGet();
+        if (reusable && worker.getConversions() < maxConversions) {
+            idleWorkers.offer(worker);
+            return;
+        }
+        // Reinício fora da thread da requisição
+        maintenanceExecutor.execute(() -> restart(worker, true));
+    }
+
+    private void restart(LibreOfficeWorker worker, boolean stopFirst) {
+        if (stopFirst) {
+            restarts.incrementAndGet();
+            worker.stop();
+        }
+        try {
+            worker.start(startupTimeout);
+            idleWorkers.offer(worker);
+        } catch (IOException e) {
+            LOG.errorf(e, "Falha ao iniciar o worker LibreOffice %d, nova tentativa agendada", worker.getId());
+            maintenanceExecutor.schedule(() -> restart(worker, true), 5, TimeUnit.SECONDS);
+        }
+    }
+
+    private void checkIdleWorkers() {
+        for (LibreOfficeWorker worker : workers) {
+            // Só verifica quem está ocioso; remover da fila impede empréstimo durante o teste
+            if (idleWorkers.remove(worker)) {
+                if (worker.isHealthy()) {
+                    idleWorkers.offer(worker);
+                } else {
+                    LOG.warnf("Worker LibreOffice %d não respondeu ao health check, reiniciando", worker.getId());
+                    restart(worker, true);
+                }
+            }
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getQueueDepth() {
+        return waiting.get();
+    }
+
+    public int getBusyWorkers() {
+        return busy.get();
+    }
+
+    public int getIdleWorkers() {
+        return idleWorkers.size();
+    }
+
+    public long getCompletedConversions() {
+        return completedConversions.get();
+    }
+
+    public long getRestarts() {
+        return restarts.get();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
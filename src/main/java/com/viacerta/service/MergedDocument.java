@@ -0,0 +1,49 @@
+package com.viacerta.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Partes já convertidas que só são unificadas no momento do envio, direto no stream de saída.
+ */
+public class MergedDocument implements RenderedDocument {
+    private final List<ConversionResult> parts;
+    private final LibreOfficeConverterService libreOfficeConverterService;
+    private final StageTimings timings;
+
+    public MergedDocument(List<ConversionResult> parts, LibreOfficeConverterService libreOfficeConverterService,
+            StageTimings timings) {
+        this.parts = parts;
+        this.libreOfficeConverterService = libreOfficeConverterService;
+        this.timings = timings;
+    }
+
+    @Override
+    public void writeTo(OutputStream output) throws IOException {
+        List<File> pdfFiles = new ArrayList<>();
+        for (ConversionResult part : parts) {
+            pdfFiles.add(part.getPdf().toFile());
+        }
+        long start = System.nanoTime();
+        try {
+            libreOfficeConverterService.unifyDocuments(pdfFiles, output);
+        } finally {
+            timings.record("merge", System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public long size() {
+        return -1;
+    }
+
+    @Override
+    public void close() {
+        for (ConversionResult part : parts) {
+            part.close();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.viacerta.service;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Resolve caminhos como "cliente.nome" direto no mapa de campos, sem cópia do modelo.
+ * Só trata textos e números (formatados como o "number" padrão do FreeMarker); para qualquer
+ * outro tipo devolve null e o parágrafo segue pelo template FreeMarker.
+ */
+public class ModelValueResolver implements Function<String, String> {
+    private final Map<String, Object> model;
+    private final Locale locale;
+    private NumberFormat numberFormat;
+
+    public ModelValueResolver(Map<String, Object> model, Locale locale) {
+        this.model = model;
+        this.locale = locale;
+    }
+
+    @Override
+    public String apply(String path) {
+        return format(value(model, path));
+    }
+
+    /**
+     * Como apply, a partir de outro objeto do modelo (ex.: um elemento de lista).
+     */
+    public String resolve(Object root, String path) {
+        return format(value(root, path));
+    }
+
+    /**
+     * Valor do caminho sem formatação, ou null se algum trecho não existir.
+     */
+    public Object value(String path) {
+        return value(model, path);
+    }
+
+    public Object value(Object root, String path) {
+        Object value = root;
+        int start = 0;
+        while (start <= path.length()) {
+            if (!(value instanceof Map<?, ?> map)) {
+                return null;
+            }
+            int dot = path.indexOf('.', start);
+            int end = dot < 0 ? path.length() : dot;
+            value = map.get(path.substring(start, end));
+            if (dot < 0) {
+                break;
+            }
+            start = dot + 1;
+        }
+        return value;
+    }
+
+    public String format(Object value) {
+        if (value instanceof String text) {
+            return text;
+        }
+        if (value instanceof Number number) {
+            if (numberFormat == null) {
+                numberFormat = NumberFormat.getNumberInstance(locale);
+            }
+            return numberFormat.format(number);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,188 @@
+package com.viacerta.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUpload;
+import org.apache.commons.fileupload.FileUploadBase;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.UploadContext;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viacerta.DTO.FileUploadForm;
+import com.viacerta.cache.Fingerprint;
+
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Lê o formulário multipart de geração direto do corpo da requisição, parte a parte, sem o buffer
+ * intermediário do provider multipart do RESTEasy. Os limites por parte e total são verificados
+ * durante a leitura (e, com Content-Length, antes dela), interrompendo o upload assim que excedidos.
+ * Arquivos acima de upload.memory-threshold vão para um arquivo temporário no diretório de trabalho
+ * da instância em vez de um byte[] do tamanho da parte.
+ */
+@ApplicationScoped
+public class MultipartUploadReader {
+    private static final TypeReference<Map<String, Object>> FIELDS = new TypeReference<>() {
+    };
+    private static final TypeReference<Map<String, Boolean>> RULES = new TypeReference<>() {
+    };
+
+    @ConfigProperty(name = "upload.max-part-size", defaultValue = "20M")
+    MemorySize maxPartSize;
+
+    @ConfigProperty(name = "upload.max-total-size", defaultValue = "50M")
+    MemorySize maxTotalSize;
+
+    @ConfigProperty(name = "upload.memory-threshold", defaultValue = "1M")
+    MemorySize memoryThreshold;
+
+    private ObjectMapper objectMapper;
+    private LibreOfficeConverterService libreOfficeConverterService;
+
+    @Inject
+    public MultipartUploadReader(ObjectMapper objectMapper, LibreOfficeConverterService libreOfficeConverterService) {
+        this.objectMapper = objectMapper;
+        this.libreOfficeConverterService = libreOfficeConverterService;
+    }
+
+    /**
+     * @return formulário que o chamador fecha quando não precisa mais dos arquivos
+     * @throws LimitExceededException quando uma parte ou a requisição passam do limite
+     * @throws IllegalArgumentException quando o corpo não é multipart válido ou um JSON é inválido
+     */
+    public FileUploadForm read(String contentType, long contentLength, InputStream body) throws IOException {
+        FileUpload upload = new FileUpload();
+        upload.setFileSizeMax(maxPartSize.asLongValue());
+        upload.setSizeMax(maxTotalSize.asLongValue());
+        upload.setHeaderEncoding(StandardCharsets.UTF_8.name());
+
+        FileUploadForm form = new FileUploadForm();
+        try {
+            readParts(upload, new RequestBody(contentType, contentLength, body), form);
+        } catch (IOException | RuntimeException e) {
+            // Apaga os arquivos das partes já lidas
+            form.close();
+            throw e;
+        }
+        return form;
+    }
+
+    private void readParts(FileUpload upload, RequestBody request, FileUploadForm form) throws IOException {
+        try {
+            FileItemIterator parts = upload.getItemIterator(request);
+            while (parts.hasNext()) {
+                FileItemStream part = parts.next();
+                String name = part.getFieldName() != null ? part.getFieldName() : "";
+                try (InputStream stream = part.openStream()) {
+                    switch (name) {
+                        case "file" -> form.docFile = readFile(stream);
+                        case "fileSubReport" -> form.docFileSubReport = readFile(stream);
+                        case "fieldsJson" -> form.fieldsJson = readJson(name, stream, FIELDS);
+                        case "rulesJson" -> form.rulesJson = readJson(name, stream, RULES);
+                        case "converter" -> form.converter = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+                        case "output" -> form.output = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+                        case "compression" ->
+                            form.compression = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+                        // Partes desconhecidas são consumidas para chegar às seguintes
+                        default -> stream.transferTo(OutputStream.nullOutputStream());
+                    }
+                }
+            }
+        } catch (FileUploadBase.FileUploadIOException e) {
+            // Limite excedido no meio da leitura de uma parte
+            if (e.getCause() instanceof FileUploadException cause) {
+                throw limitExceeded(cause);
+            }
+            throw e;
+        } catch (FileUploadException e) {
+            throw limitExceeded(e);
+        }
+    }
+
+    private <T> T readJson(String name, InputStream stream, TypeReference<T> type) throws IOException {
+        try {
+            return objectMapper.readValue(stream, type);
+        } catch (JacksonException e) {
+            throw new IllegalArgumentException("Parte " + name + " com JSON inválido");
+        }
+    }
+
+    /**
+     * Conteúdo da parte com o SHA-256 calculado na leitura; null para campo de arquivo deixado em branco,
+     * que chega como parte sem conteúdo.
+     */
+    private UploadedFile readFile(InputStream stream) throws IOException {
+        MessageDigest digest = Fingerprint.newDigest();
+        DigestInputStream input = new DigestInputStream(stream, digest);
+        int threshold = (int) Math.min(memoryThreshold.asLongValue(), Integer.MAX_VALUE - 8);
+        byte[] head = input.readNBytes(threshold + 1);
+        if (head.length <= threshold) {
+            return head.length > 0 ? UploadedFile.inMemory(head, HexFormat.of().formatHex(digest.digest())) : null;
+        }
+        Path file = Files.createTempFile(libreOfficeConverterService.getWorkDirectory(), "upload", ".tmp");
+        try (OutputStream output = Files.newOutputStream(file)) {
+            output.write(head);
+            input.transferTo(output);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return UploadedFile.onDisk(file, Files.size(file), HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private static RuntimeException limitExceeded(FileUploadException e) {
+        if (e instanceof FileUploadBase.FileSizeLimitExceededException part) {
+            return new LimitExceededException("Parte " + part.getFieldName() + " excede o limite de "
+                    + part.getPermittedSize() + " bytes");
+        }
+        if (e instanceof FileUploadBase.SizeLimitExceededException total) {
+            return new LimitExceededException("Requisição excede o limite de " + total.getPermittedSize() + " bytes");
+        }
+        return new IllegalArgumentException("Requisição multipart inválida: " + e.getMessage());
+    }
+
+    public static class LimitExceededException extends RuntimeException {
+        public LimitExceededException(String message) {
+            super(message);
+        }
+    }
+
+    private record RequestBody(String contentType, long contentLength, InputStream body) implements UploadContext {
+        @Override
+        public String getCharacterEncoding() {
+            return StandardCharsets.UTF_8.name();
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        @Deprecated
+        public int getContentLength() {
+            return (int) Math.min(contentLength, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return body;
+        }
+    }
+}
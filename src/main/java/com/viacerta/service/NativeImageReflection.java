@@ -0,0 +1,27 @@
+package com.viacerta.service;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * Tipos XMLBeans que o POI instancia por reflexão ao ler e gravar os documentos. A extensão quarkus-poi
+ * (perfil native) registra os schemas OOXML; aqui ficam os usados diretamente pelo código, inclusive
+ * CTSimpleField dos campos PAGE/NUMPAGES.
+ */
+@RegisterForReflection(classNames = {
+        "org.openxmlformats.schemas.wordprocessingml.x2006.main.impl.CTSimpleFieldImpl",
+        "org.openxmlformats.schemas.wordprocessingml.x2006.main.impl.CTBodyImpl",
+        "org.openxmlformats.schemas.wordprocessingml.x2006.main.impl.CTPImpl",
+        "org.openxmlformats.schemas.wordprocessingml.x2006.main.impl.CTRImpl",
+        "org.openxmlformats.schemas.wordprocessingml.x2006.main.impl.CTTextImpl",
+        "org.openxmlformats.schemas.wordprocessingml.x2006.main.impl.CTTblImpl",
+        "org.openxmlformats.schemas.wordprocessingml.x2006.main.impl.CTRowImpl",
+        "org.openxmlformats.schemas.wordprocessingml.x2006.main.impl.CTTcImpl",
+        "org.openxmlformats.schemas.wordprocessingml.x2006.main.impl.CTSdtBlockImpl",
+        "org.openxmlformats.schemas.wordprocessingml.x2006.main.impl.CTHdrFtrImpl",
+        "org.openxmlformats.schemas.wordprocessingml.x2006.main.impl.DocumentDocumentImpl",
+        "org.openxmlformats.schemas.wordprocessingml.x2006.main.impl.HdrDocumentImpl",
+        "org.openxmlformats.schemas.wordprocessingml.x2006.main.impl.FtrDocumentImpl" })
+final class NativeImageReflection {
+    private NativeImageReflection() {
+    }
+}
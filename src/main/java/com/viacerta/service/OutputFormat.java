@@ -0,0 +1,48 @@
+package com.viacerta.service;
+
+import java.util.Locale;
+
+/**
+ * Formato do arquivo devolvido. DOCX é o documento já preenchido, escrito direto do XWPFDocument sem
+ * passar pelo conversor; PDF_A é gerado pelo LibreOffice em conformidade PDF/A-2b.
+ */
+public enum OutputFormat {
+    DOCX("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document"),
+    PDF("pdf", "application/pdf"),
+    PDF_A("pdf", "application/pdf");
+
+    private final String extension;
+    private final String mediaType;
+
+    OutputFormat(String extension, String mediaType) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    public String fileName(String baseName) {
+        return baseName + "." + extension;
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    // Como informado na requisição
+    public String value() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Valor informado na requisição (docx, pdf ou pdf-a); null se vazio.
+     */
+    public static OutputFormat fromValue(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Formato de saída inválido '" + value + "': use docx, pdf ou pdf-a");
+        }
+    }
+}
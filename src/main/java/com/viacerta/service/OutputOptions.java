@@ -0,0 +1,49 @@
+package com.viacerta.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Formato de saída e compressão das imagens pedidos na requisição. Qualquer opção além do PDF padrão
+ * exige o LibreOffice, que é quem aplica o FilterData do PDF; o DOCX dispensa a conversão.
+ */
+public record OutputOptions(OutputFormat format, ImageCompression compression) {
+    public static final OutputOptions PDF = new OutputOptions(OutputFormat.PDF, null);
+
+    // PDF/A-2b: aceita transparência e camadas, que o PDF/A-1 proíbe
+    private static final int PDF_A_VERSION = 2;
+
+    /**
+     * @throws IllegalArgumentException para valores desconhecidos ou compressão pedida com saída docx
+     */
+    public static OutputOptions of(String output, String compression) {
+        OutputFormat format = OutputFormat.fromValue(output);
+        ImageCompression imageCompression = ImageCompression.fromValue(compression);
+        if (format == OutputFormat.DOCX && imageCompression != null) {
+            throw new IllegalArgumentException("Compressão de imagens só se aplica à saída em PDF");
+        }
+        return new OutputOptions(format != null ? format : OutputFormat.PDF, imageCompression);
+    }
+
+    public boolean isDefault() {
+        return format == OutputFormat.PDF && compression == null;
+    }
+
+    public boolean requiresLibreOffice() {
+        return format == OutputFormat.PDF_A || compression != null;
+    }
+
+    /**
+     * Opções do filtro writer_pdf_Export; vazio para o PDF padrão.
+     */
+    public Map<String, Object> pdfFilterData() {
+        Map<String, Object> filterData = new LinkedHashMap<>();
+        if (format == OutputFormat.PDF_A) {
+            filterData.put("SelectPdfVersion", PDF_A_VERSION);
+        }
+        if (compression != null) {
+            compression.addFilterData(filterData);
+        }
+        return filterData;
+    }
+}
@@ -0,0 +1,93 @@
+package com.viacerta.service;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.jboss.logging.Logger;
+
+import com.viacerta.pdf.DocxFeatureInspector;
+import com.viacerta.pdf.DocxPdfRenderer;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Conversão no próprio processo com o PDFBox, para templates de texto, tabelas e imagens em linha.
+ * O documento é inspecionado antes ("inspect"); se usar algo que o renderizador não reproduz,
+ * a conversão segue pelo LibreOffice e o motivo vai para o log em nível debug.
+ */
+@ApplicationScoped
+public class PdfBoxConverterService {
+    private static final Logger LOG = Logger.getLogger(PdfBoxConverterService.class);
+
+    private LibreOfficeConverterService libreOfficeConverterService;
+
+    private final AtomicLong conversions = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    @Inject
+    public PdfBoxConverterService(LibreOfficeConverterService libreOfficeConverterService) {
+        this.libreOfficeConverterService = libreOfficeConverterService;
+    }
+
+    public ConversionResult convert(XWPFDocument document, StageTimings timings) throws Exception {
+        if (!isSupported(document, timings)) {
+            return libreOfficeConverterService.convert(document, timings);
+        }
+        return render(document, timings);
+    }
+
+    /**
+     * Como convert(document, timings); só a volta para o LibreOffice é assíncrona, a renderização
+     * no PDFBox acontece na thread atual.
+     */
+    public CompletableFuture<ConversionResult> convertAsync(XWPFDocument document, StageTimings timings)
+            throws Exception {
+        if (!isSupported(document, timings)) {
+            return libreOfficeConverterService.convertAsync(document, timings);
+        }
+        return CompletableFuture.completedFuture(render(document, timings));
+    }
+
+    private boolean isSupported(XWPFDocument document, StageTimings timings) throws Exception {
+        List<String> unsupported = timings.time("inspect", () -> DocxFeatureInspector.inspect(document));
+        if (unsupported.isEmpty()) {
+            return true;
+        }
+        fallbacks.incrementAndGet();
+        LOG.debugf("Conversão pelo LibreOffice, recursos sem suporte no PDFBox: %s", unsupported);
+        return false;
+    }
+
+    private ConversionResult render(XWPFDocument document, StageTimings timings) throws Exception {
+        Path workDir = libreOfficeConverterService.createWorkDirectory();
+        try {
+            Path pdfFile = workDir.resolve("document.pdf");
+            timings.time("convert", () -> {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(pdfFile))) {
+                    DocxPdfRenderer.render(document, out);
+                }
+                return null;
+            });
+            conversions.incrementAndGet();
+            return new ConversionResult(workDir, pdfFile);
+        } catch (Exception e) {
+            ConversionResult.deleteRecursively(workDir);
+            throw e;
+        }
+    }
+
+    public long getConversions() {
+        return conversions.get();
+    }
+
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+}
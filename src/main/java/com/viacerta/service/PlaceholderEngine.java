@@ -0,0 +1,187 @@
+package com.viacerta.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTR;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Substituição de placeholders ${...} direto nos runs do parágrafo, em uma única passada.
+ * Um placeholder pode começar em um run e terminar em outro (o Word divide o texto ao revisar
+ * ou formatar); apenas os runs que contêm placeholders são reescritos e mantêm sua formatação.
+ */
+@ApplicationScoped
+public class PlaceholderEngine {
+
+    /**
+     * Verificação barata, sem alocação, para descartar parágrafos sem placeholder. Olha todos os textos de
+     * cada run, inclusive os que vêm depois de uma quebra de linha ou tabulação no mesmo run.
+     */
+    public boolean mayContainPlaceholder(XWPFParagraph paragraph) {
+        for (XWPFRun run : paragraph.getRuns()) {
+            CTR ctr = run.getCTR();
+            for (int i = 0, n = ctr.sizeOfTArray(); i < n; i++) {
+                String text = ctr.getTArray(i).getStringValue();
+                if (text != null && text.indexOf('$') >= 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Nenhum run tem mais de um texto. Um run com quebra de linha (Shift+Enter) ou tabulação no meio
+     * guarda um w:t de cada lado, e a substituição por runs só enxerga o primeiro.
+     */
+    public static boolean hasSingleTextRuns(XWPFParagraph paragraph) {
+        for (XWPFRun run : paragraph.getRuns()) {
+            if (run.getCTR().sizeOfTArray() > 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Substitui os placeholders resolvidos. Placeholders que o resolver devolve como null ficam intactos,
+     * ou, com requireAll, o parágrafo inteiro fica intacto e o retorno é -1. Com requireAll, o retorno
+     * também é -1 quando algum run tem mais de um texto (ver hasSingleTextRuns), para quem chama usar o
+     * FreeMarker sobre o texto completo do parágrafo.
+     *
+     * @return quantidade de placeholders substituídos
+     */
+    public int replace(XWPFParagraph paragraph, Function<String, String> resolver, boolean requireAll) {
+        if (!mayContainPlaceholder(paragraph)) {
+            return 0;
+        }
+        if (requireAll && !hasSingleTextRuns(paragraph)) {
+            return -1;
+        }
+        Substitution substitution = substitute(runTexts(paragraph), resolver, requireAll);
+        if (substitution == null) {
+            return -1;
+        }
+        substitution.applyTo(paragraph);
+        return substitution.count();
+    }
+
+    /**
+     * Primeiro texto de cada run do parágrafo (null para runs sem texto), na ordem dos runs; completo
+     * apenas quando hasSingleTextRuns.
+     */
+    public static String[] runTexts(XWPFParagraph paragraph) {
+        List<XWPFRun> runs = paragraph.getRuns();
+        String[] texts = new String[runs.size()];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = runs.get(i).getText(0);
+        }
+        return texts;
+    }
+
+    /**
+     * Calcula a substituição sobre os textos dos runs, sem tocar no documento; pode rodar fora da thread
+     * dona do documento. Retorna null quando, com requireAll, algum placeholder não foi resolvido.
+     */
+    public Substitution substitute(String[] runTexts, Function<String, String> resolver, boolean requireAll) {
+        String[] texts = runTexts.clone();
+        int[] runStart = new int[texts.length + 1];
+        StringBuilder fullText = new StringBuilder();
+        for (int i = 0; i < texts.length; i++) {
+            runStart[i] = fullText.length();
+            if (texts[i] != null) {
+                fullText.append(texts[i]);
+            }
+        }
+        runStart[texts.length] = fullText.length();
+
+        // Primeiro resolve tudo, para não deixar o parágrafo pela metade quando requireAll falhar
+        List<int[]> spans = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        int from = 0;
+        while (true) {
+            int start = fullText.indexOf("${", from);
+            if (start < 0) {
+                break;
+            }
+            int end = fullText.indexOf("}", start + 2);
+            if (end < 0) {
+                break;
+            }
+            String value = resolver.apply(fullText.substring(start + 2, end).trim());
+            if (value == null) {
+                if (requireAll) {
+                    return null;
+                }
+                from = start + 2;
+                continue;
+            }
+            spans.add(new int[] { start, end + 1 });
+            values.add(value);
+            from = end + 1;
+        }
+
+        // Do último para o primeiro: as posições dos placeholders anteriores continuam válidas
+        boolean[] changed = new boolean[texts.length];
+        for (int s = spans.size() - 1; s >= 0; s--) {
+            int start = spans.get(s)[0];
+            int end = spans.get(s)[1];
+            int firstRun = runAt(runStart, texts.length, start);
+            int lastRun = runAt(runStart, texts.length, end - 1);
+
+            String firstText = texts[firstRun];
+            String lastText = texts[lastRun];
+            String prefix = firstText.substring(0, start - runStart[firstRun]);
+            String suffix = lastText.substring(end - runStart[lastRun]);
+            if (firstRun == lastRun) {
+                texts[firstRun] = prefix + values.get(s) + suffix;
+            } else {
+                texts[firstRun] = prefix + values.get(s);
+                for (int i = firstRun + 1; i < lastRun; i++) {
+                    if (texts[i] != null) {
+                        texts[i] = "";
+                        changed[i] = true;
+                    }
+                }
+                texts[lastRun] = suffix;
+                changed[lastRun] = true;
+            }
+            changed[firstRun] = true;
+        }
+        return new Substitution(texts, changed, spans.size());
+    }
+
+    /**
+     * Resultado de substitute: novos textos dos runs alterados, aplicados depois no parágrafo de origem.
+     */
+    public record Substitution(String[] texts, boolean[] changed, int count) {
+        public void applyTo(XWPFParagraph paragraph) {
+            List<XWPFRun> runs = paragraph.getRuns();
+            for (int i = 0; i < texts.length; i++) {
+                if (changed[i]) {
+                    runs.get(i).setText(texts[i], 0);
+                }
+            }
+        }
+    }
+
+    // Run que contém o caractere na posição informada do texto concatenado (busca binária nos inícios)
+    private static int runAt(int[] runStart, int runCount, int position) {
+        int low = 0;
+        int high = runCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (runStart[middle] <= position) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+}
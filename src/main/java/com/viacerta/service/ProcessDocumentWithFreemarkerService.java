@@ -2,136 +2,423 @@ package com.viacerta.service;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Locale;
 import java.util.Map;
-import java.util.TimeZone;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
-import org.apache.poi.xwpf.usermodel.XWPFHeader;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
 import org.apache.poi.xwpf.usermodel.XWPFRun;
-import org.apache.poi.xwpf.usermodel.XWPFTable;
-import org.apache.poi.xwpf.usermodel.XWPFTableCell;
-import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import com.viacerta.cache.BoundedCache;
+import com.viacerta.service.DocumentWalker.Location;
 
-import freemarker.cache.StringTemplateLoader;
 import freemarker.core.ParseException;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
-import freemarker.template.TemplateExceptionHandler;
+import freemarker.template.TemplateModel;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 
+/**
+ * Aplica os dados aos parágrafos do documento pelo plano compilado do template.
+ * Em documentos grandes (freemarker.parallel.enabled e ao menos freemarker.parallel.min-paragraphs
+ * parágrafos com placeholder), os textos são avaliados em paralelo a partir de cópias dos runs e
+ * só depois gravados no documento, numa única thread, porque o POI não é thread-safe.
+ */
 @ApplicationScoped
 public class ProcessDocumentWithFreemarkerService {
-    public void processDocumentWithFreemarker(XWPFDocument document, Map<String, Object> fieldsJson)
+    private static final Pattern SIMPLE_PLACEHOLDER =
+            Pattern.compile("\\$\\{\\s*[A-Za-z_]\\w*(\\.[A-Za-z_]\\w*)*\\s*\\}");
+
+    // Configuration é thread-safe depois de configurada; é compartilhada por todas as requisições
+    private final Configuration cfg;
+    private final BoundedCache<String, DocumentPlan> planCache;
+    private PlaceholderEngine placeholderEngine;
+    private final RepeatingSections repeatingSections;
+    private final ImagePlaceholders imagePlaceholders;
+    private final int parallelMinParagraphs;
+    // Avaliação é só CPU: um pool do tamanho do número de processadores, criado apenas se habilitado
+    private final ForkJoinPool paragraphPool;
+
+    @Inject
+    public ProcessDocumentWithFreemarkerService(PlaceholderEngine placeholderEngine, ImageAssetService imageAssetService,
+            @ConfigProperty(name = "freemarker.plan-cache.max-size", defaultValue = "64") int planCacheSize,
+            @ConfigProperty(name = "freemarker.plan-cache.ttl", defaultValue = "PT1H") Duration planCacheTtl,
+            @ConfigProperty(name = "freemarker.parallel.enabled", defaultValue = "false") boolean parallelEnabled,
+            @ConfigProperty(name = "freemarker.parallel.min-paragraphs", defaultValue = "2000") int parallelMinParagraphs) {
+        cfg = FreemarkerConfigurationHolder.create();
+        planCache = new BoundedCache<>(planCacheSize, planCacheTtl);
+        this.placeholderEngine = placeholderEngine;
+        this.repeatingSections = new RepeatingSections(placeholderEngine, cfg.getLocale());
+        this.imagePlaceholders = new ImagePlaceholders(placeholderEngine, imageAssetService);
+        this.parallelMinParagraphs = parallelMinParagraphs;
+        this.paragraphPool = parallelEnabled ? new ForkJoinPool(Runtime.getRuntime().availableProcessors()) : null;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (paragraphPool != null) {
+            paragraphPool.shutdownNow();
+        }
+    }
+
+    public DocumentPlan processDocumentWithFreemarker(XWPFDocument document, Map<String, Object> fieldsJson)
             throws IOException, TemplateException {
-        Configuration cfg = new Configuration(Configuration.VERSION_2_3_33);
-        cfg.setDefaultEncoding("UTF-8");
-        // cfg.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
-        cfg.setTemplateExceptionHandler(TemplateExceptionHandler.HTML_DEBUG_HANDLER);// for development
-        cfg.setSQLDateAndTimeTimeZone(TimeZone.getDefault());
+        return processDocumentWithFreemarker(document, fieldsJson, null);
+    }
 
-        // processar cabeçalhos
-        for (XWPFHeader header : document.getHeaderList()) {
-            processHeaderWithImages(header, cfg, fieldsJson);
+    /**
+     * Com a impressão digital do template, reaproveita o plano já compilado e apenas aplica os dados.
+     *
+     * @return o plano aplicado, com as contagens de parágrafos e placeholders do template
+     */
+    public DocumentPlan processDocumentWithFreemarker(XWPFDocument document, Map<String, Object> fieldsJson,
+            String templateFingerprint) throws IOException, TemplateException {
+        DocumentPlan plan = getPlan(document, templateFingerprint);
+        processHeadersAndFooters(document, plan, fieldsJson);
+        processBody(document, 0, plan, fieldsJson);
+        if (plan.isRepeating()) {
+            // Depois do FreeMarker, para que as cópias não passem de novo pelos templates
+            repeatingSections.expand(document, fieldsJson);
         }
+        return plan;
+    }
 
-        // Processar parágrafos
-        for (XWPFParagraph paragraph : document.getParagraphs()) {
-            processParagraphWithFreemarker(paragraph, cfg, fieldsJson);
+    /**
+     * Repetição por lista numa das cópias do corpo de um documento em lote, depois do processBody da
+     * cópia. Os elementos depois de lastElement mudam de posição, então o lote expande do último
+     * registro para o primeiro.
+     */
+    public void expandRepeating(XWPFDocument document, int firstElement, int lastElement,
+            Map<String, Object> fieldsJson) {
+        repeatingSections.expand(document, firstElement, lastElement, fieldsJson);
+    }
+
+    public DocumentPlan getPlan(XWPFDocument document, String templateFingerprint) throws IOException {
+        DocumentPlan plan = templateFingerprint != null ? planCache.get(templateFingerprint) : null;
+        if (plan == null) {
+            plan = compilePlan(document);
+            if (templateFingerprint != null) {
+                planCache.put(templateFingerprint, plan);
+            }
+        } else if (!plan.hasShape(DocumentWalker.shape(document))) {
+            // Estrutura diferente da compilada (colisão ou documento alterado): compila de novo sem cachear
+            plan = compilePlan(document);
         }
+        return plan;
+    }
 
-        // Processar tabelas
-        for (XWPFTable table : document.getTables()) {
-            for (XWPFTableRow row : table.getRows()) {
-                for (XWPFTableCell cell : row.getTableCells()) {
-                    for (XWPFParagraph paragraph : cell.getParagraphs()) {
-                        processParagraphWithFreemarker(paragraph, cfg, fieldsJson);
-                    }
-                }
+    /**
+     * Cabeçalhos, rodapés e notas: processados uma vez por documento, com as mesmas regras tolerantes
+     * dos cabeçalhos (template inválido deixa o parágrafo como está).
+     */
+    public void processHeadersAndFooters(XWPFDocument document, DocumentPlan plan, Map<String, Object> fieldsJson)
+            throws IOException, TemplateException {
+        ModelValueResolver resolver = new ModelValueResolver(fieldsJson, cfg.getLocale());
+        TemplateModel model = null;
+        Location[] headerLocations = plan.getHeaderLocations();
+        Template[] headerTemplates = plan.getHeaderTemplates();
+        for (int i = 0; i < headerTemplates.length; i++) {
+            XWPFParagraph paragraph = DocumentWalker.resolve(document, headerLocations[i], 0);
+            if (plan.isSimpleHeader(i) && placeholderEngine.replace(paragraph, resolver, true) >= 0) {
+                continue;
             }
+            if (model == null) {
+                model = cfg.getObjectWrapper().wrap(fieldsJson);
+            }
+            processHeaderParagraph(paragraph, headerTemplates[i], model);
         }
+        processImages(document, 0, plan, resolver, false);
     }
 
-    private void processHeaderWithImages(XWPFHeader header, Configuration cfg, Map<String, Object> fieldsJson)
+    /**
+     * Aplica a parte de corpo do plano a elementos com a mesma estrutura do corpo do template, a partir
+     * de firstElement: o corpo inteiro do documento (0) ou uma das cópias do corpo num documento em lote.
+     * Só os parágrafos indexados no plano são visitados.
+     */
+    public void processBody(XWPFDocument document, int firstElement, DocumentPlan plan, Map<String, Object> fieldsJson)
             throws IOException, TemplateException {
-        for (XWPFParagraph paragraph : header.getParagraphs()) {
-            StringBuilder fullText = new StringBuilder();
-            List<XWPFRun> runs = paragraph.getRuns();
-            for (XWPFRun run : runs) {
-                if (run.getEmbeddedPictures().isEmpty()) {
-                    String text = run.getText(0);
-                    if (text != null) {
-                        fullText.append(text);
+        Location[] bodyLocations = plan.getBodyLocations();
+        Template[] bodyTemplates = plan.getBodyTemplates();
+        List<XWPFParagraph> bodyParagraphs = new ArrayList<>(bodyLocations.length);
+        for (Location location : bodyLocations) {
+            bodyParagraphs.add(DocumentWalker.resolve(document, location, firstElement));
+        }
+        // Um único resolver sobre o mapa original; o modelo FreeMarker só é criado se algum parágrafo precisar
+        ModelValueResolver resolver = new ModelValueResolver(fieldsJson, cfg.getLocale());
+        if (paragraphPool != null && plan.getBodyTemplateCount() >= parallelMinParagraphs) {
+            processBodyInParallel(bodyParagraphs, plan, fieldsJson);
+        } else {
+            TemplateModel model = null;
+            for (int i = 0; i < bodyTemplates.length; i++) {
+                XWPFParagraph paragraph = bodyParagraphs.get(i);
+                if (plan.isSimpleBody(i) && placeholderEngine.replace(paragraph, resolver, true) >= 0) {
+                    continue;
+                }
+                if (model == null) {
+                    model = cfg.getObjectWrapper().wrap(fieldsJson);
+                }
+                processParagraphWithFreemarker(paragraph, bodyTemplates[i], model);
+            }
+        }
+        processImages(document, firstElement, plan, resolver, true);
+    }
+
+    // Imagens do corpo (body) ou das demais partes; antes da repetição por lista, que copia os runs já com a imagem
+    private void processImages(XWPFDocument document, int firstElement, DocumentPlan plan,
+            ModelValueResolver resolver, boolean body) throws IOException {
+        for (Location location : plan.getImageLocations()) {
+            if ((location.part() == DocumentWalker.Part.BODY) == body) {
+                imagePlaceholders.apply(DocumentWalker.resolve(document, location, firstElement), resolver);
+            }
+        }
+    }
+
+    /**
+     * Três fases: cópia dos textos dos runs (thread atual), avaliação em paralelo por lotes de parágrafos,
+     * cada lote com o próprio resolver, e gravação no documento na ordem original (thread atual).
+     */
+    private void processBodyInParallel(List<XWPFParagraph> bodyParagraphs, DocumentPlan plan,
+            Map<String, Object> fieldsJson) throws IOException, TemplateException {
+        Template[] bodyTemplates = plan.getBodyTemplates();
+        List<String[]> runTexts = new ArrayList<>(bodyParagraphs.size());
+        for (XWPFParagraph paragraph : bodyParagraphs) {
+            runTexts.add(PlaceholderEngine.runTexts(paragraph));
+        }
+
+        TemplateModel model = cfg.getObjectWrapper().wrap(fieldsJson);
+        Object[] results = new Object[bodyTemplates.length];
+        // Alguns lotes por thread equilibram parágrafos de custo diferente sem criar uma tarefa por parágrafo
+        int batchSize = Math.max(64, results.length / (paragraphPool.getParallelism() * 4) + 1);
+        List<Future<?>> batches = new ArrayList<>();
+        for (int from = 0; from < results.length; from += batchSize) {
+            int start = from;
+            int end = Math.min(results.length, from + batchSize);
+            batches.add(paragraphPool.submit(() -> {
+                ModelValueResolver resolver = new ModelValueResolver(fieldsJson, cfg.getLocale());
+                for (int unit = start; unit < end; unit++) {
+                    PlaceholderEngine.Substitution substitution = plan.isSimpleBody(unit)
+                            ? placeholderEngine.substitute(runTexts.get(unit), resolver, true)
+                            : null;
+                    if (substitution != null) {
+                        results[unit] = substitution;
+                    } else {
+                        StringWriter writer = new StringWriter();
+                        bodyTemplates[unit].process(model, writer);
+                        results[unit] = writer.toString();
                     }
                 }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> batch : batches) {
+                batch.get();
+            }
+        } catch (InterruptedException e) {
+            batches.forEach(batch -> batch.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("Processamento dos parágrafos interrompido", e);
+        } catch (ExecutionException e) {
+            batches.forEach(batch -> batch.cancel(true));
+            if (e.getCause() instanceof TemplateException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+
+        for (int unit = 0; unit < results.length; unit++) {
+            XWPFParagraph paragraph = bodyParagraphs.get(unit);
+            if (results[unit] instanceof PlaceholderEngine.Substitution substitution) {
+                substitution.applyTo(paragraph);
+            } else {
+                replaceRuns(paragraph, (String) results[unit]);
             }
+        }
+    }
+
+    /**
+     * Compila e guarda o plano sem renderizar, para que o primeiro uso do template já encontre o cache.
+     */
+    public void precompile(XWPFDocument document, String templateFingerprint) throws IOException {
+        planCache.put(templateFingerprint, compilePlan(document));
+    }
 
-            // Processar o texto completo
-            String processedText = processTextWithFreemarker(fullText.toString(), cfg, fieldsJson);
+    /**
+     * Percorre o documento uma vez e guarda só as posições dos parágrafos com placeholder, com os
+     * templates compilados.
+     *
+     * @throws IllegalArgumentException para lista (${itens[].campo}) fora dos parágrafos e linhas repetidos
+     */
+    public DocumentPlan compilePlan(XWPFDocument document) throws IOException {
+        List<Location> headerLocations = new ArrayList<>();
+        List<Template> headerTemplates = new ArrayList<>();
+        BitSet simpleHeaders = new BitSet();
+        List<Location> bodyLocations = new ArrayList<>();
+        List<Template> bodyTemplates = new ArrayList<>();
+        BitSet simpleBody = new BitSet();
+        List<Location> imageLocations = new ArrayList<>();
+        int placeholders = 0;
+        boolean repeating = false;
 
-            // Se o texto foi modificado, atualizar os runs
-            if (!fullText.toString().equals(processedText)) {
-                // Limpar o conteúdo existente
-                for (int i = runs.size() - 1; i >= 0; i--) {
-                    paragraph.removeRun(i);
+        List<DocumentWalker.LocatedParagraph> paragraphs = DocumentWalker.paragraphs(document);
+        for (DocumentWalker.LocatedParagraph located : paragraphs) {
+            Location location = located.location();
+            XWPFParagraph paragraph = located.paragraph();
+            String text = paragraph.getText();
+            RepeatingSections.checkListLocation(location, text);
+            if (ImagePlaceholders.hasImages(text)) {
+                // Fora do FreeMarker, que não aceita "img:"; linhas repetidas recebem a imagem antes da cópia
+                imageLocations.add(location);
+                repeating |= RepeatingSections.isRepeating(location, text);
+                placeholders += countPlaceholders(text);
+                continue;
+            }
+            if (location.part() != DocumentWalker.Part.BODY) {
+                String headerText = headerText(paragraph);
+                Template template = compileHeaderText(headerText,
+                        location.part().name().toLowerCase(Locale.ROOT) + "-" + headerTemplates.size());
+                if (template != null) {
+                    simpleHeaders.set(headerTemplates.size(),
+                            hasOnlySimplePlaceholders(headerText) && PlaceholderEngine.hasSingleTextRuns(paragraph));
+                    headerLocations.add(location);
+                    headerTemplates.add(template);
+                    placeholders += countPlaceholders(headerText);
                 }
+                continue;
+            }
+            if (RepeatingSections.isRepeating(location, text)) {
+                repeating = true;
+                placeholders += countPlaceholders(text);
+            } else if (hasFreemarkerSyntax(text)) {
+                // Runs com quebra de linha ou tabulação no meio vão pelo FreeMarker, que usa o texto completo
+                simpleBody.set(bodyTemplates.size(),
+                        hasOnlySimplePlaceholders(text) && PlaceholderEngine.hasSingleTextRuns(paragraph));
+                bodyLocations.add(location);
+                bodyTemplates.add(new Template("paragraph-" + bodyTemplates.size(), text, cfg));
+                placeholders += countPlaceholders(text);
+            }
+        }
+        return new DocumentPlan(headerLocations.toArray(Location[]::new), headerTemplates.toArray(Template[]::new),
+                simpleHeaders, bodyLocations.toArray(Location[]::new), bodyTemplates.toArray(Template[]::new),
+                simpleBody, imageLocations.toArray(Location[]::new), DocumentWalker.shape(document), paragraphs.size(),
+                placeholders, repeating);
+    }
 
-                // Adicionar o novo texto processado
-                XWPFRun newRun = paragraph.createRun();
-                newRun.setText(processedText);
+    private String headerText(XWPFParagraph paragraph) {
+        StringBuilder fullText = new StringBuilder();
+        for (XWPFRun run : paragraph.getRuns()) {
+            if (run.getEmbeddedPictures().isEmpty()) {
+                String text = run.getText(0);
+                if (text != null) {
+                    fullText.append(text);
+                }
             }
         }
+        return fullText.toString();
     }
 
-    private String processTextWithFreemarker(String text, Configuration cfg, Map<String, Object> fieldsJson)
-            throws IOException, TemplateException {
+    private Template compileHeaderText(String text, String name) {
         if (text == null || text.trim().isEmpty()) {
-            return text;
+            return null;
         }
 
         // Verifica se há placeholders FreeMarker completos no texto
         if (!text.matches(".*\\$\\{\\w+\\}.*")) {
-            return text;
+            return null;
         }
 
         try {
-            StringWriter writer = new StringWriter();
-            Template template = new Template("inline", text, cfg);
-            template.process(fieldsJson, writer);
-            return writer.toString();
+            return new Template(name, text, cfg);
         } catch (ParseException e) {
             System.err.println("Erro ao processar template: " + e.getMessage());
             System.err.println("Texto problemático: " + text);
-            return text;
+            return null;
         } catch (Exception e) {
             System.err.println("Erro inesperado ao processar template: " + e.getMessage());
-            return text;
+            return null;
         }
     }
 
-    private void processParagraphWithFreemarker(
-            XWPFParagraph paragraph,
-            Configuration cfg,
-            Map<String, Object> fieldsJson) throws IOException, TemplateException {
-        String text = paragraph.getText();
-        String templateName = "template";
-        StringTemplateLoader stringLoader = new StringTemplateLoader();
-        cfg.setTemplateLoader(stringLoader);
-        stringLoader.putTemplate(templateName, text);
+    private void processHeaderParagraph(XWPFParagraph paragraph, Template template, TemplateModel model) {
+        String text = headerText(paragraph);
+        String processedText;
+        try {
+            StringWriter writer = new StringWriter();
+            template.process(model, writer);
+            processedText = writer.toString();
+        } catch (Exception e) {
+            System.err.println("Erro inesperado ao processar template: " + e.getMessage());
+            return;
+        }
 
-        Template template = cfg.getTemplate(templateName);
+        // Se o texto foi modificado, atualizar os runs
+        if (!text.equals(processedText)) {
+            // Limpar o conteúdo existente
+            List<XWPFRun> runs = paragraph.getRuns();
+            for (int i = runs.size() - 1; i >= 0; i--) {
+                paragraph.removeRun(i);
+            }
 
-        Map<String, Object> fieldsCopy = new HashMap<>(fieldsJson);
+            // Adicionar o novo texto processado
+            XWPFRun newRun = paragraph.createRun();
+            newRun.setText(processedText);
+        }
+    }
 
+    private void processParagraphWithFreemarker(XWPFParagraph paragraph, Template template, TemplateModel model)
+            throws IOException, TemplateException {
         StringWriter writer = new StringWriter();
-        template.process(fieldsCopy, writer);
+        template.process(model, writer);
+        replaceRuns(paragraph, writer.toString());
+    }
 
+    private static void replaceRuns(XWPFParagraph paragraph, String text) {
         while (paragraph.getRuns().size() > 0) {
             paragraph.removeRun(0);
         }
-        paragraph.createRun().setText(writer.toString());
+        paragraph.createRun().setText(text);
+    }
+
+    private static boolean hasOnlySimplePlaceholders(String text) {
+        if (text.contains("<#") || text.contains("<@") || text.contains("#{")) {
+            return false;
+        }
+        return !SIMPLE_PLACEHOLDER.matcher(text).replaceAll("").contains("${");
+    }
+
+    private static int countPlaceholders(String text) {
+        int count = 0;
+        for (int index = text.indexOf("${"); index >= 0; index = text.indexOf("${", index + 2)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static boolean hasFreemarkerSyntax(String text) {
+        return text != null
+                && (text.contains("${") || text.contains("<#") || text.contains("<@") || text.contains("#{"));
+    }
+
+    public long getPlanCacheHits() {
+        return planCache.getHits();
+    }
+
+    public long getPlanCacheMisses() {
+        return planCache.getMisses();
     }
 }
@@ -0,0 +1,296 @@
+package com.viacerta.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.viacerta.cache.BoundedCache;
+import com.viacerta.cache.Fingerprint;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Cache de PDFs gerados, endereçado pelo conteúdo da requisição: templates, subrelatórios e
+ * fieldsJson/rulesJson canônicos (chaves ordenadas) e conversor pedido. PDFs pequenos ficam também em memória;
+ * o disco é limitado em bytes e despeja o menos usado. A chave também serve de ETag.
+ */
+@ApplicationScoped
+public class RenderCacheService {
+    private static final Logger LOG = Logger.getLogger(RenderCacheService.class);
+
+    @ConfigProperty(name = "render.cache.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "render.cache.dir", defaultValue = "${java.io.tmpdir}/render-cache")
+    String directory;
+
+    @ConfigProperty(name = "render.cache.max-disk-size", defaultValue = "1G")
+    MemorySize maxDiskSize;
+
+    @ConfigProperty(name = "render.cache.memory-max-entry-size", defaultValue = "512K")
+    MemorySize maxMemoryEntrySize;
+
+    private final Duration ttl;
+    private final BoundedCache<String, byte[]> memoryCache;
+    private final ObjectMapper canonicalMapper;
+    private final Map<String, DiskEntry> diskEntries = new ConcurrentHashMap<>();
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong diskEvictions = new AtomicLong();
+
+    @Inject
+    public RenderCacheService(ObjectMapper objectMapper,
+            @ConfigProperty(name = "render.cache.memory-max-entries", defaultValue = "64") int memoryMaxEntries,
+            @ConfigProperty(name = "render.cache.ttl", defaultValue = "PT1H") Duration ttl) {
+        this.ttl = ttl;
+        this.memoryCache = new BoundedCache<>(memoryMaxEntries, ttl);
+        // Mesmos dados em ordens diferentes precisam gerar a mesma chave
+        this.canonicalMapper = objectMapper.copy().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        // Reconstrói o índice do disco; a data de modificação faz as vezes de último acesso
+        try (Stream<Path> files = Files.list(Path.of(directory))) {
+            files.filter(path -> path.getFileName().toString().endsWith(".pdf")).forEach(path -> {
+                try {
+                    String key = path.getFileName().toString().replace(".pdf", "");
+                    long size = Files.size(path);
+                    long modified = Files.getLastModifiedTime(path).toMillis();
+                    diskEntries.put(key, new DiskEntry(size, modified));
+                    diskBytes.addAndGet(size);
+                } catch (IOException e) {
+                    // arquivo removido durante a leitura
+                }
+            });
+        } catch (IOException e) {
+            // diretório ainda não existe
+        }
+        evictDisk();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String key(List<TemplateSource> parts, Map<String, Object> fieldsJson, Map<String, Boolean> rulesJson,
+            ConverterEngine converter, OutputOptions output) throws IOException {
+        MessageDigest digest = Fingerprint.newDigest();
+        for (TemplateSource part : parts) {
+            digest.update(part.getFingerprint().getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) 0);
+        }
+        digest.update(canonicalMapper.writeValueAsBytes(fieldsJson));
+        digest.update((byte) 0);
+        digest.update(canonicalMapper.writeValueAsBytes(rulesJson));
+        if (converter != null) {
+            digest.update((byte) 0);
+            digest.update(converter.name().getBytes(StandardCharsets.US_ASCII));
+        }
+        // Saída padrão fora da chave: os PDFs já em cache continuam válidos
+        if (!output.isDefault()) {
+            digest.update((byte) 0);
+            digest.update(output.format().name().getBytes(StandardCharsets.US_ASCII));
+            if (output.compression() != null) {
+                digest.update((byte) ':');
+                digest.update(output.compression().name().getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * PDF em cache para a chave, ou null. O chamador deve fechar o resultado depois de enviá-lo.
+     */
+    public CachedDocument lookup(String key) {
+        byte[] bytes = memoryCache.get(key);
+        if (bytes != null) {
+            hits.incrementAndGet();
+            touch(key);
+            return new CachedDocument(key, bytes);
+        }
+
+        DiskEntry entry = diskEntries.get(key);
+        if (entry != null && !isExpired(entry)) {
+            try {
+                InputStream input = Files.newInputStream(pathOf(key));
+                entry.lastAccess = System.currentTimeMillis();
+                hits.incrementAndGet();
+                return new CachedDocument(key, input, entry.size);
+            } catch (NoSuchFileException e) {
+                removeDiskEntry(key);
+            } catch (IOException e) {
+                LOG.warnf(e, "Falha ao ler o PDF em cache %s", key);
+            }
+        } else if (entry != null) {
+            removeDiskEntry(key);
+            diskEvictions.incrementAndGet();
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Há PDF válido em cache para a chave, sem abrir o arquivo nem contar acerto ou falha. Toda entrada
+     * em memória também está em disco, então basta olhar o índice do disco.
+     */
+    public boolean contains(String key) {
+        DiskEntry entry = diskEntries.get(key);
+        return entry != null && !isExpired(entry);
+    }
+
+    /**
+     * Grava o resultado no cache (a junção de partes acontece aqui, direto no arquivo), libera os
+     * temporários da geração e devolve o PDF a partir do cache.
+     */
+    public CachedDocument store(String key, RenderedDocument rendered) throws IOException {
+        long size;
+        byte[] bytes = null;
+        InputStream input = null;
+        try (rendered) {
+            Path dir = Path.of(directory);
+            Files.createDirectories(dir);
+            Path temp = Files.createTempFile(dir, key, ".tmp");
+            try {
+                try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                    rendered.writeTo(output);
+                }
+                // Tamanho e conteúdo saem do temporário: depois do move, a limpeza de outra requisição pode
+                // apagar o arquivo. O stream aberto antes do rename continua válido mesmo que ele seja apagado
+                size = Files.size(temp);
+                if (size <= maxMemoryEntrySize.asLongValue()) {
+                    bytes = Files.readAllBytes(temp);
+                } else {
+                    input = Files.newInputStream(temp);
+                }
+                Files.move(temp, pathOf(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException | RuntimeException e) {
+                if (input != null) {
+                    input.close();
+                }
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+        }
+
+        DiskEntry previous = diskEntries.put(key, new DiskEntry(size, System.currentTimeMillis()));
+        diskBytes.addAndGet(previous != null ? size - previous.size : size);
+        if (bytes != null) {
+            memoryCache.put(key, bytes);
+        }
+        evictDisk();
+
+        if (bytes != null) {
+            return new CachedDocument(key, bytes);
+        }
+        return new CachedDocument(key, input, size);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return diskEvictions.get() + memoryCache.getEvictions();
+    }
+
+    public long getDiskBytes() {
+        return diskBytes.get();
+    }
+
+    private void touch(String key) {
+        DiskEntry entry = diskEntries.get(key);
+        if (entry != null) {
+            entry.lastAccess = System.currentTimeMillis();
+        }
+    }
+
+    // Remove expirados e, acima do limite, os menos usados recentemente
+    private synchronized void evictDisk() {
+        for (Map.Entry<String, DiskEntry> entry : diskEntries.entrySet()) {
+            if (isExpired(entry.getValue())) {
+                removeDiskEntry(entry.getKey());
+                diskEvictions.incrementAndGet();
+            }
+        }
+        long limit = maxDiskSize.asLongValue();
+        if (diskBytes.get() <= limit) {
+            return;
+        }
+        List<Map.Entry<String, DiskEntry>> byAccess = diskEntries.entrySet().stream()
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().lastAccess))
+                .toList();
+        for (Map.Entry<String, DiskEntry> entry : byAccess) {
+            if (diskBytes.get() <= limit) {
+                break;
+            }
+            removeDiskEntry(entry.getKey());
+            diskEvictions.incrementAndGet();
+        }
+    }
+
+    private void removeDiskEntry(String key) {
+        DiskEntry entry = diskEntries.remove(key);
+        if (entry != null) {
+            diskBytes.addAndGet(-entry.size);
+        }
+        memoryCache.invalidate(key);
+        try {
+            Files.deleteIfExists(pathOf(key));
+        } catch (IOException e) {
+            LOG.warnf("Não foi possível remover o PDF em cache %s", key);
+        }
+    }
+
+    private boolean isExpired(DiskEntry entry) {
+        return System.currentTimeMillis() - entry.createdAt > ttl.toMillis();
+    }
+
+    private Path pathOf(String key) {
+        return Path.of(directory, key + ".pdf");
+    }
+
+    private static final class DiskEntry {
+        private final long size;
+        private final long createdAt;
+        private volatile long lastAccess;
+
+        private DiskEntry(long size, long createdAt) {
+            this.size = size;
+            this.createdAt = createdAt;
+            this.lastAccess = createdAt;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.viacerta.service;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Estado de uma geração assíncrona. O documento fica em arquivo até o job expirar ou ser removido.
+ */
+public class RenderJob {
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    private final String id;
+    private final OutputFormat format;
+    private final Instant createdAt = Instant.now();
+    private final StageTimings timings;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+    private volatile File resultFile;
+
+    public RenderJob(String id) {
+        this(id, OutputFormat.PDF, new StageTimings());
+    }
+
+    public RenderJob(String id, OutputFormat format, StageTimings timings) {
+        this.id = id;
+        this.format = format;
+        this.timings = timings;
+    }
+
+    void markRunning() {
+        startedAt = Instant.now();
+        timings.record("queue", Duration.between(createdAt, startedAt).toNanos());
+        status = Status.RUNNING;
+    }
+
+    void markDone(File result) {
+        resultFile = result;
+        finishedAt = Instant.now();
+        status = Status.DONE;
+        timings.finish();
+    }
+
+    void markFailed(String message) {
+        error = message;
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+        timings.finish();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    // Formato do resultado, para o nome e o tipo do download
+    public OutputFormat getFormat() {
+        return format;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public File getResultFile() {
+        return resultFile;
+    }
+
+    public StageTimings getTimings() {
+        return timings;
+    }
+}
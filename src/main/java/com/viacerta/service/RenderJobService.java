@@ -0,0 +1,193 @@
+package com.viacerta.service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import com.viacerta.DTO.FileUploadForm;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Executa gerações fora da thread HTTP, com fila limitada: quando a fila enche o envio é rejeitado
+ * em vez de acumular requisições presas esperando o LibreOffice. Um job conta no limite de gerações
+ * simultâneas do tenant desde o envio até terminar, e converte como trabalho em segundo plano.
+ */
+@ApplicationScoped
+public class RenderJobService {
+    private static final Logger LOG = Logger.getLogger(RenderJobService.class);
+
+    @ConfigProperty(name = "jobs.threads", defaultValue = "2")
+    int threads;
+
+    @ConfigProperty(name = "jobs.queue-capacity", defaultValue = "50")
+    int queueCapacity;
+
+    @ConfigProperty(name = "jobs.retention", defaultValue = "PT30M")
+    Duration retention;
+
+    @ConfigProperty(name = "jobs.result-dir", defaultValue = "${java.io.tmpdir}/render-jobs")
+    String resultDir;
+
+    private ReportRenderService reportRenderService;
+    private RenderMetrics renderMetrics;
+    private TenantScheduler tenantScheduler;
+
+    private final Map<String, RenderJob> jobs = new ConcurrentHashMap<>();
+    // Média móvel da duração dos jobs, usada para estimar o Retry-After
+    private final AtomicLong averageJobMillis = new AtomicLong(5000);
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService cleaner;
+
+    @Inject
+    public RenderJobService(ReportRenderService reportRenderService, RenderMetrics renderMetrics,
+            TenantScheduler tenantScheduler) {
+        this.reportRenderService = reportRenderService;
+        this.renderMetrics = renderMetrics;
+        this.tenantScheduler = tenantScheduler;
+    }
+
+    @PostConstruct
+    void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "render-job-" + counter.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "render-job-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleaner.scheduleWithFixedDelay(this::removeExpiredJobs, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        cleaner.shutdownNow();
+        executor.shutdownNow();
+        jobs.values().forEach(job -> LibreOfficeConverterService.deleteFile(job.getResultFile()));
+    }
+
+    /**
+     * Enfileira a geração do formulário, que passa a ser do job: os arquivos temporários do upload são
+     * apagados quando o job termina, ou já aqui se ele for recusado.
+     *
+     * @throws RejectedExecutionException quando a fila está cheia
+     * @throws TenantScheduler.TenantLimitExceededException quando o tenant já está no limite de gerações
+     */
+    public RenderJob submit(FileUploadForm form, ConverterEngine converter, OutputOptions output,
+            TenantScheduler.Caller caller) {
+        TenantScheduler.Permit permit;
+        try {
+            permit = tenantScheduler.enter(caller);
+        } catch (RuntimeException e) {
+            form.close();
+            throw e;
+        }
+        RenderJob job = new RenderJob(UUID.randomUUID().toString(), output.format(), renderMetrics.newTimings("job"));
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> {
+                try (permit; form) {
+                    run(job, ReportRenderService.parts(form.getDocFile(), form.getDocFileSubReport()),
+                            form.getFieldsJson(), form.getRulesJson(), converter, output, caller.background());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permit.close();
+            form.close();
+            jobs.remove(job.getId());
+            job.getTimings().finish();
+            throw e;
+        }
+        return job;
+    }
+
+    public RenderJob get(String id) {
+        return jobs.get(id);
+    }
+
+    public boolean remove(String id) {
+        RenderJob job = jobs.remove(id);
+        if (job == null) {
+            return false;
+        }
+        LibreOfficeConverterService.deleteFile(job.getResultFile());
+        return true;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveJobs() {
+        return executor.getActiveCount();
+    }
+
+    // Filas cheias esvaziam em lotes de "threads" jobs
+    public long estimateRetryAfterSeconds() {
+        long waves = getQueueDepth() / Math.max(1, threads) + 1;
+        return Math.max(1, averageJobMillis.get() * waves / 1000);
+    }
+
+    private void run(RenderJob job, List<TemplateSource> parts, Map<String, Object> fieldsJson,
+            Map<String, Boolean> rulesJson, ConverterEngine converter, OutputOptions output,
+            TenantScheduler.Caller caller) {
+        job.markRunning();
+        try {
+            Path directory = Path.of(resultDir);
+            Files.createDirectories(directory);
+            File result = directory.resolve(output.format().fileName(job.getId())).toFile();
+            RenderRequest request = new RenderRequest(parts, fieldsJson, rulesJson, converter, output, caller);
+            try (RenderedDocument rendered = reportRenderService.render(request, job.getTimings())) {
+                if (rendered instanceof ConversionResult conversion) {
+                    Files.move(conversion.getPdf(), result.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    try (OutputStream output = new BufferedOutputStream(new FileOutputStream(result))) {
+                        rendered.writeTo(output);
+                    }
+                }
+            }
+            job.markDone(result);
+            long elapsed = Duration.between(job.getStartedAt(), job.getFinishedAt()).toMillis();
+            averageJobMillis.updateAndGet(average -> (average * 7 + elapsed) / 8);
+        } catch (Exception e) {
+            LOG.errorf(e, "Falha no job de geração %s", job.getId());
+            job.markFailed(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    private void removeExpiredJobs() {
+        Instant limit = Instant.now().minus(retention);
+        for (RenderJob job : jobs.values()) {
+            if (job.getFinishedAt() != null && job.getFinishedAt().isBefore(limit)) {
+                remove(job.getId());
+            }
+        }
+    }
+}
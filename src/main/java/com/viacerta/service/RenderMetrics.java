@@ -0,0 +1,177 @@
+package com.viacerta.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Métricas Micrometer do pipeline de geração (expostas em /q/metrics) e spans OpenTelemetry por etapa.
+ * Cada geração usa um StageTimings criado aqui: as etapas viram o timer report.render.stage
+ * e a geração inteira, do início da leitura ao fim do envio, o timer report.render.total.
+ */
+@ApplicationScoped
+public class RenderMetrics {
+    // O tamanho do diretório de trabalho é recalculado no máximo a cada 10 segundos
+    private static final long WORK_DIR_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private MeterRegistry registry;
+    private Tracer tracer;
+    private LibreOfficeWorkerPool workerPool;
+    private LibreOfficeConverterService libreOfficeConverterService;
+    private RenderCacheService renderCacheService;
+    private ProcessDocumentWithFreemarkerService serviceFreemarker;
+    private PdfBoxConverterService pdfBoxConverterService;
+    private RenderQueueService renderQueue;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+    private volatile long workDirBytes;
+    private volatile long workDirMeasuredAt;
+
+    @Inject
+    public RenderMetrics(MeterRegistry registry, Tracer tracer, LibreOfficeWorkerPool workerPool,
+            LibreOfficeConverterService libreOfficeConverterService, RenderCacheService renderCacheService,
+            ProcessDocumentWithFreemarkerService serviceFreemarker, PdfBoxConverterService pdfBoxConverterService,
+            RenderQueueService renderQueue) {
+        this.registry = registry;
+        this.tracer = tracer;
+        this.workerPool = workerPool;
+        this.libreOfficeConverterService = libreOfficeConverterService;
+        this.renderCacheService = renderCacheService;
+        this.serviceFreemarker = serviceFreemarker;
+        this.pdfBoxConverterService = pdfBoxConverterService;
+        this.renderQueue = renderQueue;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        Gauge.builder("report.render.in.flight", inFlight, AtomicInteger::get).register(registry);
+
+        Gauge.builder("converter.pool.size", workerPool, LibreOfficeWorkerPool::getSize).register(registry);
+        Gauge.builder("converter.pool.busy", workerPool, LibreOfficeWorkerPool::getBusyWorkers).register(registry);
+        Gauge.builder("converter.pool.idle", workerPool, LibreOfficeWorkerPool::getIdleWorkers).register(registry);
+        Gauge.builder("converter.pool.queue", workerPool, LibreOfficeWorkerPool::getQueueDepth).register(registry);
+        Gauge.builder("converter.pool.utilisation", workerPool,
+                pool -> pool.getSize() == 0 ? 0 : (double) pool.getBusyWorkers() / pool.getSize()).register(registry);
+        FunctionCounter.builder("converter.pool.conversions", workerPool, LibreOfficeWorkerPool::getCompletedConversions)
+                .register(registry);
+        FunctionCounter.builder("converter.pool.restarts", workerPool, LibreOfficeWorkerPool::getRestarts)
+                .register(registry);
+        Gauge.builder("converter.workdir.usage", this, RenderMetrics::workDirectoryBytes)
+                .baseUnit("bytes")
+                .register(registry);
+
+        FunctionCounter.builder("pdf.merge.input", libreOfficeConverterService,
+                LibreOfficeConverterService::getMergedInputBytes).baseUnit("bytes").register(registry);
+        FunctionCounter.builder("pdf.merge.output", libreOfficeConverterService,
+                LibreOfficeConverterService::getMergedOutputBytes).baseUnit("bytes").register(registry);
+        Gauge.builder("pdf.merge.peak.buffer", libreOfficeConverterService,
+                LibreOfficeConverterService::getPeakMergeBufferBytes).baseUnit("bytes").register(registry);
+
+        FunctionCounter.builder("render.cache.hits", renderCacheService, RenderCacheService::getHits).register(registry);
+        FunctionCounter.builder("render.cache.misses", renderCacheService, RenderCacheService::getMisses)
+                .register(registry);
+        FunctionCounter.builder("render.cache.evictions", renderCacheService, RenderCacheService::getEvictions)
+                .register(registry);
+        Gauge.builder("render.cache.disk.usage", renderCacheService, RenderCacheService::getDiskBytes)
+                .baseUnit("bytes")
+                .register(registry);
+
+        FunctionCounter.builder("freemarker.plan.cache.hits", serviceFreemarker,
+                ProcessDocumentWithFreemarkerService::getPlanCacheHits).register(registry);
+        FunctionCounter.builder("freemarker.plan.cache.misses", serviceFreemarker,
+                ProcessDocumentWithFreemarkerService::getPlanCacheMisses).register(registry);
+
+        FunctionCounter.builder("converter.pdfbox.conversions", pdfBoxConverterService,
+                PdfBoxConverterService::getConversions).register(registry);
+        FunctionCounter.builder("converter.pdfbox.fallbacks", pdfBoxConverterService,
+                PdfBoxConverterService::getFallbacks).register(registry);
+
+        Gauge.builder("render.queue.depth", renderQueue, RenderQueueService::getQueueDepth).register(registry);
+    }
+
+    /**
+     * Início de uma geração. O chamador encerra com finish() depois do envio ou em caso de falha.
+     */
+    public StageTimings newTimings(String operation) {
+        inFlight.incrementAndGet();
+        // Spans das etapas ficam sob o span da requisição, mesmo quando executadas em outra thread
+        Context parent = Context.current();
+        return new StageTimings(new StageTimings.Listener() {
+            @Override
+            public AutoCloseable stageStarted(String stage) {
+                Span span = tracer.spanBuilder("render." + stage).setParent(parent).startSpan();
+                return span::end;
+            }
+
+            @Override
+            public void stageRecorded(String stage, long nanos) {
+                timer("report.render.stage", operation, stage).record(nanos, TimeUnit.NANOSECONDS);
+            }
+
+            @Override
+            public void counted(String name, long amount) {
+                summary("report.document." + name, operation).record(amount);
+            }
+
+            @Override
+            public void finished(long totalNanos) {
+                inFlight.decrementAndGet();
+                timer("report.render.total", operation, null).record(totalNanos, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private Timer timer(String name, String operation, String stage) {
+        return timers.computeIfAbsent(name + '|' + operation + '|' + stage, key -> {
+            Timer.Builder builder = Timer.builder(name).tag("operation", operation).publishPercentileHistogram();
+            if (stage != null) {
+                builder.tag("stage", stage);
+            }
+            return builder.register(registry);
+        });
+    }
+
+    private DistributionSummary summary(String name, String operation) {
+        return summaries.computeIfAbsent(name + '|' + operation, key -> DistributionSummary.builder(name)
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    private double workDirectoryBytes() {
+        long now = System.nanoTime();
+        if (now - workDirMeasuredAt > WORK_DIR_REFRESH_NANOS) {
+            workDirMeasuredAt = now;
+            try (Stream<Path> files = Files.walk(libreOfficeConverterService.getWorkDirectory())) {
+                workDirBytes = files.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+            } catch (IOException | UncheckedIOException e) {
+                // diretório ainda não existe ou arquivos removidos durante a varredura: mantém a última medição
+            }
+        }
+        return workDirBytes;
+    }
+}
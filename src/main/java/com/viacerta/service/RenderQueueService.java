@@ -0,0 +1,234 @@
+package com.viacerta.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viacerta.queue.BlobStore;
+import com.viacerta.queue.FileSystemJobQueue;
+import com.viacerta.queue.InMemoryJobQueue;
+import com.viacerta.queue.JobOutcome;
+import com.viacerta.queue.JobQueue;
+import com.viacerta.queue.LocalBlobStore;
+import com.viacerta.queue.QueuedJob;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Ligação entre os nós de API e os workers: a fila de jobs (render.queue.type=memory, no próprio
+ * processo, ou filesystem, num diretório compartilhado) e o BlobStore com os templates e os resultados.
+ * No papel API, o ReportRenderService entrega aqui a geração inteira: os templates vão para o BlobStore
+ * pelo SHA-256 (uma vez por template, não por requisição), o job vai para a fila e a resposta é o
+ * documento que o worker gravou. Quando o prazo esgota, o job é cancelado na fila.
+ * Em segundo plano, as reservas deste processo são renovadas enquanto a geração roda e os resultados e
+ * cancelamentos que ninguém consumiu são apagados depois de render.queue.retention; os templates, depois de
+ * render.blobs.template-retention sem uso.
+ */
+@ApplicationScoped
+public class RenderQueueService {
+    private static final Logger LOG = Logger.getLogger(RenderQueueService.class);
+
+    private final Set<RenderRole> roles;
+    private final JobQueue queue;
+    private final BlobStore blobs;
+    private final Duration remoteTimeout;
+    private final Duration claimTimeout;
+    private final Duration retention;
+    private final Duration templateRetention;
+    private ScheduledExecutorService maintenance;
+
+    @Inject
+    public RenderQueueService(ObjectMapper objectMapper, TenantScheduler tenantScheduler,
+            @ConfigProperty(name = "render.role", defaultValue = "all") List<String> roles,
+            @ConfigProperty(name = "render.queue.type", defaultValue = "memory") String queueType,
+            @ConfigProperty(name = "render.queue.dir", defaultValue = "${java.io.tmpdir}/render-queue") String queueDir,
+            @ConfigProperty(name = "render.queue.poll-interval", defaultValue = "PT0.2S") Duration pollInterval,
+            @ConfigProperty(name = "render.queue.claim-timeout", defaultValue = "PT10M") Duration claimTimeout,
+            @ConfigProperty(name = "render.blobs.dir", defaultValue = "${java.io.tmpdir}/render-blobs") String blobsDir,
+            @ConfigProperty(name = "render.remote.timeout", defaultValue = "PT5M") Duration remoteTimeout,
+            @ConfigProperty(name = "render.queue.retention", defaultValue = "PT1H") Duration retention,
+            @ConfigProperty(name = "render.blobs.template-retention", defaultValue = "PT24H")
+            Duration templateRetention) {
+        this.roles = RenderRole.fromValues(roles);
+        this.blobs = new LocalBlobStore(Path.of(blobsDir));
+        this.remoteTimeout = remoteTimeout;
+        this.claimTimeout = claimTimeout;
+        this.retention = retention;
+        this.templateRetention = templateRetention;
+        this.queue = switch (queueType.trim().toLowerCase(Locale.ROOT)) {
+            case "memory" -> new InMemoryJobQueue();
+            case "filesystem" -> {
+                try {
+                    yield new FileSystemJobQueue(Path.of(queueDir), objectMapper, pollInterval, claimTimeout,
+                            tenantScheduler::weightOf);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            default -> throw new IllegalArgumentException(
+                    "render.queue.type inválido '" + queueType + "': use memory ou filesystem");
+        };
+        if (isDispatching() && !isWorking() && queue instanceof InMemoryJobQueue) {
+            LOG.warn("render.role=api com fila em memória: nenhum worker de outro processo receberá os jobs");
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        if (!isDispatching() && !isWorking()) {
+            return;
+        }
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "render-queue-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (isWorking()) {
+            long renewal = Math.max(1000, claimTimeout.toMillis() / 4);
+            maintenance.scheduleWithFixedDelay(this::renewClaims, renewal, renewal, TimeUnit.MILLISECONDS);
+        }
+        maintenance.scheduleWithFixedDelay(this::purge, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+    }
+
+    // Papel API: as gerações vão para a fila em vez de converter neste processo
+    public boolean isDispatching() {
+        return roles.contains(RenderRole.API);
+    }
+
+    public boolean isWorking() {
+        return roles.contains(RenderRole.WORKER);
+    }
+
+    public int getQueueDepth() {
+        return queue.depth();
+    }
+
+    /**
+     * Publica a geração e espera o worker, até render.remote.timeout. O tempo entre a publicação e o
+     * resultado é a etapa "remote"; as etapas medidas no worker voltam como "worker.&lt;etapa&gt;".
+     *
+     * @throws IllegalArgumentException quando o worker recusou os dados da requisição
+     */
+    public RenderedDocument render(RenderRequest request, StageTimings timings) throws Exception {
+        String id = UUID.randomUUID().toString();
+        List<String> templates = new ArrayList<>();
+        for (TemplateSource part : request.parts()) {
+            String key = templateKey(part.getFingerprint());
+            // Template já publicado: renova a data para que a limpeza não o apague enquanto está em uso
+            if (!blobs.touch(key)) {
+                blobs.write(key, output -> {
+                    try (InputStream input = part.openStream()) {
+                        input.transferTo(output);
+                    }
+                });
+            }
+            templates.add(part.getFingerprint());
+        }
+        TenantScheduler.Caller caller = request.caller();
+        OutputOptions output = request.output();
+        QueuedJob job = new QueuedJob(id, caller.tenant(), caller.interactive(), templates, request.fieldsJson(),
+                request.rulesJson(), request.converter() != null ? request.converter().name() : null,
+                output.format().value(), output.compression() != null ? output.compression().name() : null);
+
+        JobOutcome outcome;
+        try {
+            outcome = timings.time("remote", () -> {
+                queue.submit(job);
+                return queue.awaitOutcome(id, remoteTimeout);
+            });
+        } catch (InterruptedException e) {
+            cancel(id);
+            throw e;
+        }
+        if (outcome == null) {
+            cancel(id);
+            throw new IOException("Nenhum worker concluiu a geração " + id + " em " + remoteTimeout);
+        }
+        if (outcome.stageMillis() != null) {
+            outcome.stageMillis().forEach(
+                    (stage, millis) -> timings.record("worker." + stage, TimeUnit.MILLISECONDS.toNanos(millis)));
+        }
+        if (!outcome.isSuccess()) {
+            queue.remove(id);
+            if (outcome.invalidInput()) {
+                throw new IllegalArgumentException(outcome.error());
+            }
+            throw new IOException("Falha na geração pelo worker: " + outcome.error());
+        }
+        return new BlobDocument(blobs, outcome.resultKey(), () -> {
+            try {
+                queue.remove(id);
+            } catch (IOException e) {
+                LOG.warnf(e, "Falha ao remover o resultado do job %s", id);
+            }
+        });
+    }
+
+    // Sem ninguém para ler o resultado: o worker descarta o job e um resultado já gravado é apagado
+    private void cancel(String id) {
+        try {
+            queue.cancel(id);
+            blobs.delete(resultKey(id));
+        } catch (IOException e) {
+            LOG.warnf(e, "Falha ao cancelar o job %s; a limpeza periódica remove o que sobrar", id);
+        }
+    }
+
+    private void renewClaims() {
+        try {
+            queue.renewClaims();
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Falha ao renovar as reservas da fila de geração", e);
+        }
+    }
+
+    private void purge() {
+        try {
+            queue.purge(retention);
+            blobs.purge("results", retention);
+            blobs.purge("templates", templateRetention);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Falha na limpeza da fila de geração", e);
+        }
+    }
+
+    JobQueue getQueue() {
+        return queue;
+    }
+
+    BlobStore getBlobs() {
+        return blobs;
+    }
+
+    static String templateKey(String fingerprint) {
+        return "templates/" + fingerprint + ".docx";
+    }
+
+    static String resultKey(String jobId) {
+        return "results/" + jobId;
+    }
+}
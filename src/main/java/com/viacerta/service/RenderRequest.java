@@ -0,0 +1,23 @@
+package com.viacerta.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uma geração: as partes (a primeira é o relatório principal), os dados e as opções da requisição.
+ * rulesJson e converter podem ser null (sem regras; conversor do template ou o padrão); output e caller
+ * nulos viram o PDF padrão e o tenant padrão.
+ */
+public record RenderRequest(List<TemplateSource> parts, Map<String, Object> fieldsJson,
+        Map<String, Boolean> rulesJson, ConverterEngine converter, OutputOptions output,
+        TenantScheduler.Caller caller) {
+
+    public RenderRequest {
+        output = output != null ? output : OutputOptions.PDF;
+        caller = caller != null ? caller : TenantScheduler.Caller.DEFAULT;
+    }
+
+    public static RenderRequest of(List<TemplateSource> parts, Map<String, Object> fieldsJson) {
+        return new RenderRequest(parts, fieldsJson, null, null, null, null);
+    }
+}
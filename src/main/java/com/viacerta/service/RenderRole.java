@@ -0,0 +1,39 @@
+package com.viacerta.service;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Papel do nó (render.role). ALL é o processo único de sempre, que recebe as requisições e converte
+ * sem passar pela fila. API publica as gerações na fila e espera o resultado, sem converter; WORKER
+ * consome a fila. "api,worker" faz os dois papéis no mesmo processo, através da fila.
+ */
+public enum RenderRole {
+    ALL, API, WORKER;
+
+    /**
+     * @throws IllegalArgumentException para papel desconhecido ou "all" combinado com outro papel
+     */
+    public static Set<RenderRole> fromValues(List<String> values) {
+        Set<RenderRole> roles = EnumSet.noneOf(RenderRole.class);
+        for (String value : values) {
+            if (value.isBlank()) {
+                continue;
+            }
+            try {
+                roles.add(valueOf(value.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("render.role inválido '" + value + "': use all, api ou worker");
+            }
+        }
+        if (roles.isEmpty()) {
+            return EnumSet.of(ALL);
+        }
+        if (roles.contains(ALL) && roles.size() > 1) {
+            throw new IllegalArgumentException("render.role: all não se combina com api ou worker");
+        }
+        return roles;
+    }
+}
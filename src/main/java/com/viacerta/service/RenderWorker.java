@@ -0,0 +1,136 @@
+package com.viacerta.service;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import com.viacerta.queue.JobOutcome;
+import com.viacerta.queue.JobQueue;
+import com.viacerta.queue.QueuedJob;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Papel WORKER: threads que reservam jobs da fila, geram pelo pipeline local e gravam o documento no
+ * BlobStore. Há uma thread por conversor (tamanho do pool LibreOffice, ou número de processadores na
+ * linha de comando), então o nó só reserva o que consegue converter e o restante fica na fila para os
+ * outros workers; mais capacidade de conversão é só mais nós neste papel.
+ */
+@ApplicationScoped
+public class RenderWorker {
+    private static final Logger LOG = Logger.getLogger(RenderWorker.class);
+
+    @ConfigProperty(name = "render.worker.threads", defaultValue = "0")
+    int threads;
+
+    @ConfigProperty(name = "render.worker.poll-timeout", defaultValue = "PT1S")
+    Duration pollTimeout;
+
+    @ConfigProperty(name = "converter.pool.enabled", defaultValue = "false")
+    boolean poolEnabled;
+
+    @ConfigProperty(name = "converter.pool.size", defaultValue = "2")
+    int poolSize;
+
+    private RenderQueueService renderQueue;
+    private ReportRenderService reportRenderService;
+    private RenderMetrics renderMetrics;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    @Inject
+    public RenderWorker(RenderQueueService renderQueue, ReportRenderService reportRenderService,
+            RenderMetrics renderMetrics) {
+        this.renderQueue = renderQueue;
+        this.reportRenderService = reportRenderService;
+        this.renderMetrics = renderMetrics;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!renderQueue.isWorking()) {
+            return;
+        }
+        int count = threads > 0 ? threads : poolEnabled ? poolSize : Runtime.getRuntime().availableProcessors();
+        running = true;
+        for (int i = 1; i <= count; i++) {
+            Thread worker = new Thread(this::loop, "render-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        LOG.infof("%d workers de geração consumindo a fila", count);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void loop() {
+        JobQueue queue = renderQueue.getQueue();
+        while (running) {
+            try {
+                QueuedJob job = queue.take(pollTimeout);
+                if (job == null) {
+                    continue;
+                }
+                // Cancelado antes de começar (ex.: devolvido à fila depois que quem publicou desistiu)
+                queue.complete(queue.isCancelled(job.id()) ? cancelled(job, Map.of()) : process(job));
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                // Fila indisponível: tenta de novo na próxima volta sem derrubar a thread
+                LOG.errorf(e, "Falha ao consumir a fila de geração");
+            }
+        }
+    }
+
+    private JobOutcome process(QueuedJob job) {
+        StageTimings timings = renderMetrics.newTimings("worker");
+        try {
+            List<TemplateSource> parts = new ArrayList<>();
+            for (String fingerprint : job.templates()) {
+                String key = RenderQueueService.templateKey(fingerprint);
+                try (InputStream input = renderQueue.getBlobs().open(key)) {
+                    parts.add(new TemplateSource(input.readAllBytes(), fingerprint));
+                }
+            }
+            String resultKey = RenderQueueService.resultKey(job.id());
+            RenderRequest request = new RenderRequest(parts, job.fieldsJson(), job.rulesJson(),
+                    ConverterEngine.fromValue(job.converter()), OutputOptions.of(job.output(), job.compression()),
+                    new TenantScheduler.Caller(job.tenant(), job.interactive()));
+            try (RenderedDocument rendered = reportRenderService.renderLocally(request, timings)) {
+                // Quem publicou desistiu durante a geração: o documento não seria lido
+                if (renderQueue.getQueue().isCancelled(job.id())) {
+                    return cancelled(job, timings.toMillis());
+                }
+                renderQueue.getBlobs().write(resultKey, rendered::writeTo);
+            }
+            return JobOutcome.done(job.id(), resultKey, timings.toMillis());
+        } catch (IllegalArgumentException e) {
+            return JobOutcome.failed(job.id(), e.getMessage(), true, timings.toMillis());
+        } catch (Exception e) {
+            LOG.errorf(e, "Falha no job de geração %s", job.id());
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return JobOutcome.failed(job.id(), message, false, timings.toMillis());
+        } finally {
+            timings.finish();
+        }
+    }
+
+    // Descartado pela fila em complete: serve só para liberar a reserva
+    private static JobOutcome cancelled(QueuedJob job, Map<String, Long> stageMillis) {
+        return JobOutcome.failed(job.id(), "Job cancelado", false, stageMillis);
+    }
+}
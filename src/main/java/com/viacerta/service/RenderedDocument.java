@@ -0,0 +1,20 @@
+package com.viacerta.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Resultado de uma geração pronto para ser enviado. Fechar libera os arquivos temporários.
+ */
+public interface RenderedDocument extends AutoCloseable {
+
+    void writeTo(OutputStream output) throws IOException;
+
+    /**
+     * Tamanho em bytes, ou -1 quando só é conhecido depois da escrita.
+     */
+    long size() throws IOException;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,250 @@
+package com.viacerta.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.poi.xwpf.usermodel.IBodyElement;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRow;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTc;
+
+/**
+ * Linhas de tabela e parágrafos do corpo repetidos por uma lista do fieldsJson. Uma linha (ou parágrafo)
+ * com ${itens[].campo} é copiada uma vez por elemento de "itens", com ${itens[].campo} resolvido no
+ * elemento (${itens[]} para listas de textos ou números) e os demais placeholders simples no fieldsJson.
+ * Lista vazia ou ausente remove a linha.
+ * O texto do modelo é lido uma vez; cada cópia duplica só as propriedades e os runs da linha (sem
+ * serializar e reler o XML) e recebe os textos já resolvidos.
+ */
+final class RepeatingSections {
+    private static final Pattern LIST_PLACEHOLDER =
+            Pattern.compile("\\$\\{\\s*([A-Za-z_]\\w*(?:\\.[A-Za-z_]\\w*)*)\\[\\]");
+
+    private final PlaceholderEngine placeholderEngine;
+    private final Locale locale;
+
+    RepeatingSections(PlaceholderEngine placeholderEngine, Locale locale) {
+        this.placeholderEngine = placeholderEngine;
+        this.locale = locale;
+    }
+
+    // Só parágrafos do corpo e linhas de tabelas do corpo são repetidos
+    static boolean isRepeating(DocumentWalker.Location location, String text) {
+        return location.part() == DocumentWalker.Part.BODY && !location.isEmbedded() && location.tableDepth() <= 1
+                && listPath(text) != null;
+    }
+
+    /**
+     * Recusa a lista em cabeçalhos, rodapés, caixas de texto e tabelas dentro de tabelas, que não são
+     * repetidos: o FreeMarker não aceita "[]" e a geração falharia sem dizer o motivo.
+     *
+     * @throws IllegalArgumentException quando o texto usa ${lista[]...} fora dos lugares repetidos
+     */
+    static void checkListLocation(DocumentWalker.Location location, String text) {
+        String listPath = listPath(text);
+        if (listPath != null && !isRepeating(location, text)) {
+            throw new IllegalArgumentException("Lista ${" + listPath + "[]...} só é aceita em parágrafos e linhas"
+                    + " de tabela do corpo do documento, não em cabeçalhos, rodapés, caixas de texto ou tabelas"
+                    + " dentro de tabelas");
+        }
+    }
+
+    /**
+     * @return quantidade de linhas e parágrafos criados
+     */
+    int expand(XWPFDocument document, Map<String, Object> fieldsJson) {
+        return expand(document, 0, document.getBodyElements().size(), fieldsJson);
+    }
+
+    /**
+     * Como expand(document, fieldsJson), só nos elementos do corpo de firstElement (inclusive) a
+     * lastElement (exclusive): uma das cópias do corpo num documento em lote. Os elementos antes de
+     * firstElement não mudam de posição.
+     *
+     * @return quantidade de linhas e parágrafos criados
+     */
+    int expand(XWPFDocument document, int firstElement, int lastElement, Map<String, Object> fieldsJson) {
+        ModelValueResolver resolver = new ModelValueResolver(fieldsJson, locale);
+        int created = 0;
+        // Cópia da lista: inserções e remoções mudam os elementos do corpo
+        for (IBodyElement element : new ArrayList<>(document.getBodyElements().subList(firstElement, lastElement))) {
+            if (element instanceof XWPFParagraph paragraph) {
+                String listPath = listPath(paragraph.getText());
+                if (listPath != null) {
+                    created += expandParagraph(document, paragraph, listPath, resolver);
+                }
+            } else if (element instanceof XWPFTable table) {
+                // Do fim para o início: as linhas anteriores mantêm a posição
+                for (int r = table.getRows().size() - 1; r >= 0; r--) {
+                    String listPath = listPath(rowText(table.getRow(r)));
+                    if (listPath != null) {
+                        created += expandRow(table, r, listPath, resolver);
+                    }
+                }
+                if (table.getRows().isEmpty()) {
+                    document.removeBodyElement(document.getPosOfTable(table));
+                }
+            }
+        }
+        return created;
+    }
+
+    private int expandRow(XWPFTable table, int rowIndex, String listPath, ModelValueResolver resolver) {
+        XWPFTableRow template = table.getRow(rowIndex);
+        List<XWPFParagraph> templateParagraphs = new ArrayList<>();
+        for (XWPFTableCell cell : template.getTableCells()) {
+            templateParagraphs.addAll(cell.getParagraphs());
+        }
+        List<String[]> templateTexts = runTexts(templateParagraphs);
+
+        List<?> elements = list(resolver, listPath);
+        for (int i = 0; i < elements.size(); i++) {
+            XWPFTableRow copy = table.insertNewTableRow(rowIndex + 1 + i);
+            List<XWPFParagraph> paragraphs = copyRow(template, copy);
+            bind(paragraphs, templateTexts, elementResolver(listPath, elements.get(i), resolver));
+        }
+        table.removeRow(rowIndex);
+        return elements.size();
+    }
+
+    private int expandParagraph(XWPFDocument document, XWPFParagraph template, String listPath,
+            ModelValueResolver resolver) {
+        List<String[]> templateTexts = runTexts(List.of(template));
+        XmlObject next = nextSibling(template.getCTP());
+
+        List<?> elements = list(resolver, listPath);
+        for (Object element : elements) {
+            XWPFParagraph copy;
+            if (next != null) {
+                // Inserir sempre antes do elemento seguinte ao modelo mantém as cópias em ordem
+                XmlCursor cursor = next.newCursor();
+                try {
+                    copy = document.insertNewParagraph(cursor);
+                } finally {
+                    cursor.dispose();
+                }
+            } else {
+                copy = document.createParagraph();
+            }
+            copyParagraph(template, copy);
+            bind(List.of(copy), templateTexts, elementResolver(listPath, element, resolver));
+        }
+        document.removeBodyElement(document.getPosOfParagraph(template));
+        return elements.size();
+    }
+
+    private void bind(List<XWPFParagraph> paragraphs, List<String[]> templateTexts,
+            Function<String, String> resolver) {
+        for (int p = 0; p < paragraphs.size(); p++) {
+            String[] texts = templateTexts.get(p);
+            if (texts != null) {
+                placeholderEngine.substitute(texts, resolver, false).applyTo(paragraphs.get(p));
+            }
+        }
+    }
+
+    // Propriedades da linha e das células, parágrafos e runs; tabelas aninhadas não são copiadas
+    private static List<XWPFParagraph> copyRow(XWPFTableRow source, XWPFTableRow target) {
+        CTRow sourceRow = source.getCtRow();
+        if (sourceRow.isSetTrPr()) {
+            target.getCtRow().setTrPr(sourceRow.getTrPr());
+        }
+        List<XWPFParagraph> paragraphs = new ArrayList<>();
+        for (XWPFTableCell sourceCell : source.getTableCells()) {
+            XWPFTableCell cell = target.addNewTableCell();
+            CTTc sourceTc = sourceCell.getCTTc();
+            if (sourceTc.isSetTcPr()) {
+                cell.getCTTc().setTcPr(sourceTc.getTcPr());
+            }
+            List<XWPFParagraph> sourceParagraphs = sourceCell.getParagraphs();
+            for (int p = 0; p < sourceParagraphs.size(); p++) {
+                // A célula nova já vem com um parágrafo vazio
+                XWPFParagraph paragraph = p == 0 ? cell.getParagraphs().get(0) : cell.addParagraph();
+                copyParagraph(sourceParagraphs.get(p), paragraph);
+                paragraphs.add(paragraph);
+            }
+        }
+        return paragraphs;
+    }
+
+    // Runs de hiperlinks e campos viram runs simples, na mesma ordem de getRuns()
+    private static void copyParagraph(XWPFParagraph source, XWPFParagraph target) {
+        if (source.getCTP().isSetPPr()) {
+            target.getCTP().setPPr(source.getCTP().getPPr());
+        }
+        for (XWPFRun run : source.getRuns()) {
+            target.createRun().getCTR().set(run.getCTR());
+        }
+    }
+
+    // Textos dos runs de cada parágrafo, ou null para parágrafos sem placeholder
+    private static List<String[]> runTexts(List<XWPFParagraph> paragraphs) {
+        List<String[]> texts = new ArrayList<>();
+        for (XWPFParagraph paragraph : paragraphs) {
+            String text = paragraph.getText();
+            texts.add(text.contains("${") ? PlaceholderEngine.runTexts(paragraph) : null);
+        }
+        return texts;
+    }
+
+    private static Function<String, String> elementResolver(String listPath, Object element,
+            ModelValueResolver resolver) {
+        String prefix = listPath + "[]";
+        return key -> {
+            if (!key.startsWith(prefix)) {
+                // Placeholder de outra lista fica intacto
+                return key.contains("[]") ? null : resolver.apply(key);
+            }
+            String rest = key.substring(prefix.length());
+            String value = null;
+            if (rest.isEmpty()) {
+                value = resolver.format(element);
+            } else if (rest.startsWith(".")) {
+                value = resolver.resolve(element, rest.substring(1));
+            }
+            // Campo ausente no elemento fica em branco, como uma célula vazia
+            return value != null ? value : "";
+        };
+    }
+
+    private static List<?> list(ModelValueResolver resolver, String listPath) {
+        return resolver.value(listPath) instanceof List<?> list ? list : List.of();
+    }
+
+    private static String listPath(String text) {
+        if (text == null || !text.contains("[]")) {
+            return null;
+        }
+        Matcher matcher = LIST_PLACEHOLDER.matcher(text);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static String rowText(XWPFTableRow row) {
+        StringBuilder text = new StringBuilder();
+        for (XWPFTableCell cell : row.getTableCells()) {
+            text.append(cell.getText());
+        }
+        return text.toString();
+    }
+
+    private static XmlObject nextSibling(XmlObject element) {
+        XmlCursor cursor = element.newCursor();
+        try {
+            return cursor.toNextSibling() ? cursor.getObject() : null;
+        } finally {
+            cursor.dispose();
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.viacerta.service;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.poi.ooxml.POIXMLProperties;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.openxmlformats.schemas.officeDocument.x2006.customProperties.CTProperty;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Pipeline de geração: leitura do .docx, seções condicionais, processamento FreeMarker, conversão
+ * e junção dos subrelatórios.
+ * O relatório principal e os subrelatórios são independentes até a junção e, por isso, são gerados
+ * em paralelo em virtual threads; a falha de qualquer parte cancela as demais.
+ * O conversor é o da requisição, senão o da propriedade personalizada "converter" do template,
+ * senão o de converter.engine; PDF/A e compressão de imagens sempre usam o LibreOffice.
+ * Cada conversão espera um slot do TenantScheduler, com custo pelo número de parágrafos do documento.
+ * No papel API (render.role) a geração inteira vai para os workers pelo RenderQueueService.
+ */
+@ApplicationScoped
+public class ReportRenderService {
+    private ProcessDocumentWithFreemarkerService serviceFreemarker;
+    private LibreOfficeConverterService libreOfficeConverterService;
+    private PdfBoxConverterService pdfBoxConverterService;
+    private RuleEvaluatorService ruleEvaluator;
+    private TenantScheduler tenantScheduler;
+    private RenderQueueService renderQueue;
+    private final boolean parallel;
+    private final ConverterEngine defaultEngine;
+    private final ExecutorService partExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    // Etapas de CPU da geração assíncrona (leitura, regras, FreeMarker), limitadas ao número de processadores
+    private final ExecutorService cpuExecutor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), Thread.ofPlatform().name("render-cpu-", 0).daemon().factory());
+
+    @Inject
+    public ReportRenderService(ProcessDocumentWithFreemarkerService serviceFreemarker,
+            LibreOfficeConverterService libreOfficeConverterService, PdfBoxConverterService pdfBoxConverterService,
+            RuleEvaluatorService ruleEvaluator, TenantScheduler tenantScheduler, RenderQueueService renderQueue,
+            @ConfigProperty(name = "render.parallel-parts", defaultValue = "true") boolean parallel,
+            @ConfigProperty(name = "converter.engine", defaultValue = "libreoffice") String defaultEngine) {
+        this.serviceFreemarker = serviceFreemarker;
+        this.libreOfficeConverterService = libreOfficeConverterService;
+        this.pdfBoxConverterService = pdfBoxConverterService;
+        this.ruleEvaluator = ruleEvaluator;
+        this.tenantScheduler = tenantScheduler;
+        this.renderQueue = renderQueue;
+        this.parallel = parallel;
+        ConverterEngine engine = ConverterEngine.fromValue(defaultEngine);
+        this.defaultEngine = engine != null ? engine : ConverterEngine.LIBREOFFICE;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        partExecutor.shutdownNow();
+        cpuExecutor.shutdownNow();
+    }
+
+    public static List<TemplateSource> parts(byte[] templateBytes, byte[] subReportBytes) {
+        List<TemplateSource> parts = new ArrayList<>();
+        parts.add(TemplateSource.of(templateBytes));
+        if (subReportBytes != null && subReportBytes.length > 0) {
+            parts.add(TemplateSource.of(subReportBytes));
+        }
+        return parts;
+    }
+
+    // Arquivos do upload: os maiores são lidos do arquivo temporário, sem passar por um byte[]
+    public static List<TemplateSource> parts(UploadedFile template, UploadedFile subReport) {
+        List<TemplateSource> parts = new ArrayList<>();
+        parts.add(TemplateSource.of(template));
+        if (subReport != null) {
+            parts.add(TemplateSource.of(subReport));
+        }
+        return parts;
+    }
+
+    /**
+     * Gera cada parte com as seções condicionais do rulesJson e o conversor pedido, e as conversões na
+     * fila do tenant de quem chama. Com mais de uma parte, a junção dos PDFs na ordem recebida acontece
+     * na escrita do resultado. A saída docx devolve o documento preenchido sem conversão. Docx e PDF/A
+     * não aceitam subrelatórios: não há junção de .docx, e a junção de PDFs não preserva a conformidade
+     * PDF/A. O chamador deve fechar o resultado depois de enviá-lo.
+     */
+    public RenderedDocument render(RenderRequest request, StageTimings timings) throws Exception {
+        checkParts(request);
+        if (renderQueue.isDispatching()) {
+            return renderQueue.render(request, timings);
+        }
+        return renderLocally(request, timings);
+    }
+
+    // Pipeline neste processo, também usado pelo RenderWorker para os jobs da fila
+    RenderedDocument renderLocally(RenderRequest request, StageTimings timings) throws Exception {
+        checkParts(request);
+        List<TemplateSource> parts = request.parts();
+        if (request.output().format() == OutputFormat.DOCX) {
+            return new DocxDocument(prepare(parts.get(0), request, timings).document(), timings);
+        }
+        ConversionResult[] results = parallel && parts.size() > 1
+                ? renderPartsInParallel(request, timings)
+                : renderPartsSequentially(request, timings);
+        if (results.length == 1) {
+            return results[0];
+        }
+        return new MergedDocument(List.of(results), libreOfficeConverterService, timings);
+    }
+
+    /**
+     * Como render(request, timings), sem bloquear quem chama: as etapas de CPU de cada parte rodam no
+     * pool render-cpu e nem a espera pelo slot de conversão nem a conversão na linha de comando ocupam thread.
+     * Se alguma parte falhar, as demais são apagadas quando terminarem.
+     */
+    public CompletableFuture<RenderedDocument> renderAsync(RenderRequest request, StageTimings timings) {
+        try {
+            checkParts(request);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (renderQueue.isDispatching()) {
+            // A espera pelo worker fica numa virtual thread
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return renderQueue.render(request, timings);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, partExecutor);
+        }
+        if (request.output().format() == OutputFormat.DOCX) {
+            return CompletableFuture.<RenderedDocument>supplyAsync(() -> {
+                try {
+                    return new DocxDocument(prepare(request.parts().get(0), request, timings).document(), timings);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, cpuExecutor);
+        }
+        List<CompletableFuture<ConversionResult>> futures = new ArrayList<>();
+        for (TemplateSource part : request.parts()) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return prepare(part, request, timings);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, cpuExecutor).thenCompose(prepared -> tenantScheduler
+                    .acquireSlot(request.caller(), prepared.paragraphs(), timings)
+                    // Fora da thread que liberou o slot, que pode ser a de outra conversão
+                    .thenComposeAsync(slot -> {
+                        try {
+                            XWPFDocument document = prepared.document();
+                            CompletableFuture<ConversionResult> conversion =
+                                    engineFor(document, request) == ConverterEngine.PDFBOX
+                                            ? pdfBoxConverterService.convertAsync(document, timings)
+                                            : libreOfficeConverterService.convertAsync(document, request.output(),
+                                                    timings);
+                            return conversion.whenComplete((result, failure) -> slot.close());
+                        } catch (Exception e) {
+                            slot.close();
+                            throw new CompletionException(e);
+                        }
+                    }, cpuExecutor)));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).handle((ignored, failure) -> {
+            if (failure != null) {
+                for (CompletableFuture<ConversionResult> future : futures) {
+                    if (!future.isCompletedExceptionally()) {
+                        future.join().close();
+                    }
+                }
+                throw failure instanceof CompletionException completion ? completion : new CompletionException(failure);
+            }
+            List<ConversionResult> results = futures.stream().map(CompletableFuture::join).toList();
+            if (results.size() == 1) {
+                return results.get(0);
+            }
+            return new MergedDocument(results, libreOfficeConverterService, timings);
+        });
+    }
+
+    private ConversionResult[] renderPartsSequentially(RenderRequest request, StageTimings timings) throws Exception {
+        List<TemplateSource> parts = request.parts();
+        ConversionResult[] results = new ConversionResult[parts.size()];
+        try {
+            for (int i = 0; i < results.length; i++) {
+                results[i] = renderToPdf(parts.get(i), request, timings);
+            }
+            return results;
+        } catch (Exception e) {
+            closeAll(results);
+            throw e;
+        }
+    }
+
+    private ConversionResult[] renderPartsInParallel(RenderRequest request, StageTimings timings) throws Exception {
+        ExecutorCompletionService<ConversionResult> completion = new ExecutorCompletionService<>(partExecutor);
+        List<Future<ConversionResult>> futures = new ArrayList<>();
+        for (TemplateSource part : request.parts()) {
+            futures.add(completion.submit(() -> renderToPdf(part, request, timings)));
+        }
+
+        ConversionResult[] results = new ConversionResult[futures.size()];
+        try {
+            // Consome na ordem de término para detectar a primeira falha sem esperar as outras partes
+            for (int done = 0; done < results.length; done++) {
+                Future<ConversionResult> future = completion.take();
+                results[futures.indexOf(future)] = future.get();
+            }
+            return results;
+        } catch (ExecutionException | InterruptedException e) {
+            for (Future<ConversionResult> future : futures) {
+                future.cancel(true);
+            }
+            closeAll(results);
+            // Partes que terminaram sem serem consumidas também precisam ser apagadas
+            for (Future<ConversionResult> future : futures) {
+                if (future.isDone() && !future.isCancelled()) {
+                    try {
+                        future.get().close();
+                    } catch (ExecutionException ignored) {
+                        // parte que falhou não deixou arquivo
+                    }
+                }
+            }
+            if (e instanceof ExecutionException && e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private ConversionResult renderToPdf(TemplateSource source, RenderRequest request, StageTimings timings)
+            throws Exception {
+        Prepared prepared = prepare(source, request, timings);
+        XWPFDocument document = prepared.document();
+        ConversionResult result;
+        try (TenantScheduler.Slot slot = tenantScheduler.awaitSlot(request.caller(), prepared.paragraphs(),
+                timings)) {
+            result = engineFor(document, request) == ConverterEngine.PDFBOX
+                    ? pdfBoxConverterService.convert(document, timings)
+                    : libreOfficeConverterService.convert(document, request.output(), timings);
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            // Parte cancelada após a conversão: o resultado não será usado
+            result.close();
+            throw new InterruptedException("Geração cancelada");
+        }
+        return result;
+    }
+
+    // Documento pronto para a conversão e o número de parágrafos, que estima o custo da conversão
+    private record Prepared(XWPFDocument document, int paragraphs) {
+    }
+
+    // Leitura do .docx, seções condicionais e FreeMarker: o documento pronto para a conversão
+    private Prepared prepare(TemplateSource source, RenderRequest request, StageTimings timings) throws Exception {
+        Map<String, Object> fieldsJson = request.fieldsJson();
+        Map<String, Boolean> rulesJson = request.rulesJson();
+        XWPFDocument document = timings.time("parse", () -> {
+            try (InputStream input = source.openStream()) {
+                return new XWPFDocument(input);
+            }
+        });
+        // As regras mudam a estrutura; o plano FreeMarker fica em cache por template e resultado das regras
+        String planKey = timings.time("rules", () -> ruleEvaluator.apply(document, source.getFingerprint(), rulesJson));
+        DocumentPlan plan = timings.time("freemarker",
+                () -> serviceFreemarker.processDocumentWithFreemarker(document, fieldsJson, planKey));
+        timings.count("paragraphs", plan.getParagraphCount());
+        timings.count("placeholders", plan.getPlaceholderCount());
+        return new Prepared(document, plan.getParagraphCount());
+    }
+
+    private static void checkParts(RenderRequest request) {
+        OutputFormat format = request.output().format();
+        if (request.parts().size() > 1 && format != OutputFormat.PDF) {
+            throw new IllegalArgumentException("Saída " + format.value() + " não aceita subrelatórios");
+        }
+    }
+
+    private ConverterEngine engineFor(XWPFDocument document, RenderRequest request) {
+        // Só o LibreOffice aplica o FilterData de PDF/A e compressão
+        if (request.output().requiresLibreOffice()) {
+            return ConverterEngine.LIBREOFFICE;
+        }
+        if (request.converter() != null) {
+            return request.converter();
+        }
+        POIXMLProperties.CustomProperties properties = document.getProperties().getCustomProperties();
+        CTProperty property = properties.getProperty("converter");
+        ConverterEngine fromTemplate = property != null && property.isSetLpwstr()
+                ? ConverterEngine.fromValue(property.getLpwstr())
+                : null;
+        return fromTemplate != null ? fromTemplate : defaultEngine;
+    }
+
+    private static void closeAll(ConversionResult[] results) {
+        for (ConversionResult result : results) {
+            if (result != null) {
+                result.close();
+            }
+        }
+    }
+}
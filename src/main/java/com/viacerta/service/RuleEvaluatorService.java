@@ -0,0 +1,262 @@
+package com.viacerta.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.poi.xwpf.usermodel.IBodyElement;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import com.viacerta.cache.BoundedCache;
+import com.viacerta.cache.Fingerprint;
+import com.viacerta.rules.RuleExpression;
+import com.viacerta.rules.RuleParser;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Seções condicionais do rulesJson. Um parágrafo (ou linha de tabela) contendo apenas ${if(condição)}
+ * abre um bloco que vai até ${endif}, podendo atravessar parágrafos e linhas; ${if(...)} junto com
+ * texto vale só para aquele parágrafo. As condições são compiladas uma vez por template e cada
+ * requisição apenas as avalia.
+ */
+@ApplicationScoped
+public class RuleEvaluatorService {
+    private static final Pattern BLOCK_START = Pattern.compile("\\$\\{\\s*if\\s*\\((.*)\\)\\s*\\}");
+    private static final Pattern BLOCK_END = Pattern.compile("\\$\\{\\s*(endif|/if)\\s*\\}");
+    private static final Pattern INLINE_CONDITION = Pattern.compile("\\$\\{\\s*if\\s*\\((.*?)\\)\\s*\\}");
+
+    // Marcadores mantidos são apagados do texto pelo PlaceholderEngine, preservando a formatação
+    private static final Function<String, String> MARKER_REMOVER = key -> key.startsWith("if") && key.contains("(")
+            || key.equals("endif") || key.equals("/if") ? "" : null;
+
+    private final BoundedCache<String, ConditionalPlan> planCache;
+    private PlaceholderEngine placeholderEngine;
+
+    @Inject
+    public RuleEvaluatorService(PlaceholderEngine placeholderEngine,
+            @ConfigProperty(name = "rules.plan-cache.max-size", defaultValue = "64") int planCacheSize,
+            @ConfigProperty(name = "rules.plan-cache.ttl", defaultValue = "PT1H") Duration planCacheTtl) {
+        this.placeholderEngine = placeholderEngine;
+        this.planCache = new BoundedCache<>(planCacheSize, planCacheTtl);
+    }
+
+    /**
+     * Aplica as regras ao documento recém-lido do template.
+     *
+     * @return chave para o plano FreeMarker do documento resultante: a própria impressão digital
+     *         quando nada muda, ou a impressão digital combinada com o resultado das regras
+     */
+    public String apply(XWPFDocument document, String templateFingerprint, Map<String, Boolean> rules) {
+        ConditionalPlan plan = templateFingerprint != null ? planCache.get(templateFingerprint) : null;
+        List<Unit> units = null;
+        if (plan == null) {
+            units = units(document);
+            plan = compile(units);
+            if (templateFingerprint != null) {
+                planCache.put(templateFingerprint, plan);
+            }
+        }
+        if (!plan.hasConditions() && !hasFalseRule(rules)) {
+            return templateFingerprint;
+        }
+
+        ConditionalPlan.Outcome outcome = plan.evaluate(rules);
+        if (units == null) {
+            units = units(document);
+        }
+        apply(document, units, plan, outcome);
+        if (templateFingerprint == null || outcome.isEmpty() && !plan.hasConditions()) {
+            return templateFingerprint;
+        }
+        return templateFingerprint + ":"
+                + Fingerprint.sha256(outcome.signature().getBytes(StandardCharsets.US_ASCII)).substring(0, 16);
+    }
+
+    ConditionalPlan compile(List<Unit> units) {
+        List<String> paragraphTexts = new ArrayList<>();
+        List<Integer> paragraphUnits = new ArrayList<>();
+        List<ConditionalPlan.Block> blocks = new ArrayList<>();
+        BitSet markerUnits = new BitSet();
+        BitSet markerParagraphs = new BitSet();
+        List<RuleExpression> inlineConditions = new ArrayList<>();
+        Deque<OpenBlock> openBlocks = new ArrayDeque<>();
+
+        for (int u = 0; u < units.size(); u++) {
+            Unit unit = units.get(u);
+            int firstParagraph = paragraphTexts.size();
+            StringBuilder unitText = new StringBuilder();
+            for (XWPFParagraph paragraph : unit.paragraphs) {
+                String text = paragraph.getText();
+                paragraphTexts.add(text);
+                paragraphUnits.add(u);
+                inlineConditions.add(null);
+                unitText.append(text);
+            }
+
+            String trimmed = unitText.toString().trim();
+            Matcher start = BLOCK_START.matcher(trimmed);
+            if (start.matches() && !trimmed.substring(2).contains("${")) {
+                openBlocks.push(new OpenBlock(u, firstParagraph, RuleParser.parse(start.group(1))));
+                continue;
+            }
+            if (BLOCK_END.matcher(trimmed).matches()) {
+                markerUnits.set(u);
+                if (!openBlocks.isEmpty()) {
+                    OpenBlock open = openBlocks.pop();
+                    blocks.add(new ConditionalPlan.Block(open.unit, u, open.condition));
+                    markerUnits.set(open.unit);
+                }
+                continue;
+            }
+
+            for (int p = firstParagraph; p < paragraphTexts.size(); p++) {
+                compileInline(paragraphTexts.get(p), p, inlineConditions, markerParagraphs);
+            }
+        }
+
+        // ${if(...)} sem ${endif}: vale apenas para o próprio parágrafo, como no formato antigo
+        while (!openBlocks.isEmpty()) {
+            OpenBlock open = openBlocks.pop();
+            for (int p = open.firstParagraph; p < paragraphTexts.size() && paragraphUnits.get(p) == open.unit; p++) {
+                inlineConditions.set(p, open.condition);
+                markerParagraphs.set(p);
+            }
+        }
+
+        int[] paragraphUnit = paragraphUnits.stream().mapToInt(Integer::intValue).toArray();
+        return new ConditionalPlan(units.size(), paragraphUnit, paragraphTexts.toArray(new String[0]), blocks,
+                markerUnits, inlineConditions.toArray(new RuleExpression[0]), markerParagraphs);
+    }
+
+    private void compileInline(String text, int paragraph, List<RuleExpression> inlineConditions,
+            BitSet markerParagraphs) {
+        if (!text.contains("${")) {
+            return;
+        }
+        RuleExpression condition = null;
+        Matcher matcher = INLINE_CONDITION.matcher(text);
+        while (matcher.find()) {
+            RuleExpression next = RuleParser.parse(matcher.group(1));
+            RuleExpression previous = condition;
+            condition = previous == null ? next : rules -> previous.evaluate(rules) && next.evaluate(rules);
+        }
+        if (condition != null) {
+            inlineConditions.set(paragraph, condition);
+            markerParagraphs.set(paragraph);
+        } else if (BLOCK_END.matcher(text).find()) {
+            markerParagraphs.set(paragraph);
+        }
+    }
+
+    private void apply(XWPFDocument document, List<Unit> units, ConditionalPlan plan, ConditionalPlan.Outcome outcome) {
+        if (units.size() != plan.getUnitCount()) {
+            throw new IllegalStateException("Estrutura do documento não corresponde às regras compiladas");
+        }
+
+        int paragraphIndex = 0;
+        for (int u = 0; u < units.size(); u++) {
+            Unit unit = units.get(u);
+            for (XWPFParagraph paragraph : unit.paragraphs) {
+                if (!outcome.isUnitRemoved(u)) {
+                    if (outcome.isParagraphCleared(paragraphIndex)) {
+                        while (paragraph.getRuns().size() > 0) {
+                            paragraph.removeRun(0);
+                        }
+                    } else if (plan.isMarkerParagraph(paragraphIndex)) {
+                        placeholderEngine.replace(paragraph, MARKER_REMOVER, false);
+                    }
+                }
+                paragraphIndex++;
+            }
+        }
+
+        // Do fim para o início: as posições guardadas das unidades anteriores continuam válidas
+        for (int u = units.size() - 1; u >= 0; u--) {
+            Unit unit = units.get(u);
+            if (outcome.isUnitRemoved(u)) {
+                if (unit.table == null) {
+                    document.removeBodyElement(unit.bodyPosition);
+                } else {
+                    unit.table.removeRow(unit.rowIndex);
+                }
+            }
+            if (unit.table != null && unit.rowIndex == 0 && unit.table.getRows().isEmpty()) {
+                document.removeBodyElement(unit.bodyPosition);
+            }
+        }
+    }
+
+    private static boolean hasFalseRule(Map<String, Boolean> rules) {
+        if (rules != null) {
+            for (Boolean value : rules.values()) {
+                if (!Boolean.TRUE.equals(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Parágrafos do corpo e linhas de tabela, na ordem do documento
+    private static List<Unit> units(XWPFDocument document) {
+        List<Unit> units = new ArrayList<>();
+        List<IBodyElement> elements = document.getBodyElements();
+        for (int position = 0; position < elements.size(); position++) {
+            IBodyElement element = elements.get(position);
+            if (element instanceof XWPFParagraph paragraph) {
+                units.add(new Unit(position, null, -1, List.of(paragraph)));
+            } else if (element instanceof XWPFTable table) {
+                List<XWPFTableRow> rows = table.getRows();
+                for (int r = 0; r < rows.size(); r++) {
+                    List<XWPFParagraph> paragraphs = new ArrayList<>();
+                    for (XWPFTableCell cell : rows.get(r).getTableCells()) {
+                        paragraphs.addAll(cell.getParagraphs());
+                    }
+                    units.add(new Unit(position, table, r, paragraphs));
+                }
+            }
+        }
+        return units;
+    }
+
+    private static final class OpenBlock {
+        private final int unit;
+        private final int firstParagraph;
+        private final RuleExpression condition;
+
+        private OpenBlock(int unit, int firstParagraph, RuleExpression condition) {
+            this.unit = unit;
+            this.firstParagraph = firstParagraph;
+            this.condition = condition;
+        }
+    }
+
+    static final class Unit {
+        private final int bodyPosition;
+        private final XWPFTable table;
+        private final int rowIndex;
+        private final List<XWPFParagraph> paragraphs;
+
+        Unit(int bodyPosition, XWPFTable table, int rowIndex, List<XWPFParagraph> paragraphs) {
+            this.bodyPosition = bodyPosition;
+            this.table = table;
+            this.rowIndex = rowIndex;
+            this.paragraphs = paragraphs;
+        }
+    }
+}
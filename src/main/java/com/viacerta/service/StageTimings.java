@@ -0,0 +1,85 @@
+package com.viacerta.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tempo acumulado, em milissegundos, de cada etapa do pipeline de geração.
+ * Com um Listener, cada etapa também é publicada como métrica e span.
+ */
+public class StageTimings {
+    private static final Listener NO_LISTENER = new Listener() {
+    };
+
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+    private final Listener listener;
+    private final long startedAt = System.nanoTime();
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    public StageTimings() {
+        this(NO_LISTENER);
+    }
+
+    public StageTimings(Listener listener) {
+        this.listener = listener;
+    }
+
+    public <T> T time(String stage, Callable<T> action) throws Exception {
+        long start = System.nanoTime();
+        AutoCloseable scope = listener.stageStarted(stage);
+        try {
+            return action.call();
+        } finally {
+            record(stage, System.nanoTime() - start);
+            if (scope != null) {
+                scope.close();
+            }
+        }
+    }
+
+    public void record(String stage, long nanos) {
+        synchronized (this) {
+            stageNanos.merge(stage, nanos, Long::sum);
+        }
+        listener.stageRecorded(stage, nanos);
+    }
+
+    /**
+     * Grandeza da geração (ex.: parágrafos, placeholders) publicada junto com os tempos.
+     */
+    public void count(String name, long amount) {
+        listener.counted(name, amount);
+    }
+
+    /**
+     * Encerra a geração, depois do envio da resposta ou de uma falha; chamadas repetidas são ignoradas.
+     */
+    public void finish() {
+        if (finished.compareAndSet(false, true)) {
+            listener.finished(System.nanoTime() - startedAt);
+        }
+    }
+
+    public synchronized Map<String, Long> toMillis() {
+        Map<String, Long> millis = new LinkedHashMap<>();
+        stageNanos.forEach((stage, nanos) -> millis.put(stage, nanos / 1_000_000));
+        return millis;
+    }
+
+    public interface Listener {
+        default AutoCloseable stageStarted(String stage) {
+            return null;
+        }
+
+        default void stageRecorded(String stage, long nanos) {
+        }
+
+        default void counted(String name, long amount) {
+        }
+
+        default void finished(long totalNanos) {
+        }
+    }
+}
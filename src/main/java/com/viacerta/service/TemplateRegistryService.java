@@ -0,0 +1,99 @@
+package com.viacerta.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import com.viacerta.cache.BoundedCache;
+import com.viacerta.cache.Fingerprint;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Registro de templates .docx endereçado por conteúdo: o ID é o SHA-256 dos bytes.
+ * Os arquivos ficam em disco e os mais usados são mantidos em memória; o plano FreeMarker
+ * compilado no registro fica no cache do ProcessDocumentWithFreemarkerService sob a mesma chave
+ * (ou, com seções condicionais, sob a chave do documento sem nenhuma regra ligada).
+ */
+@ApplicationScoped
+public class TemplateRegistryService {
+    private static final Pattern ID_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path directory;
+    private final BoundedCache<String, byte[]> memoryCache;
+    private ProcessDocumentWithFreemarkerService serviceFreemarker;
+    private RuleEvaluatorService ruleEvaluator;
+
+    @Inject
+    public TemplateRegistryService(ProcessDocumentWithFreemarkerService serviceFreemarker,
+            RuleEvaluatorService ruleEvaluator,
+            @ConfigProperty(name = "templates.registry.dir", defaultValue = "${java.io.tmpdir}/template-registry") String directory,
+            @ConfigProperty(name = "templates.registry.memory-cache-size", defaultValue = "32") int memoryCacheSize,
+            @ConfigProperty(name = "templates.registry.memory-cache-ttl", defaultValue = "PT6H") Duration memoryCacheTtl) {
+        this.serviceFreemarker = serviceFreemarker;
+        this.ruleEvaluator = ruleEvaluator;
+        this.directory = Path.of(directory);
+        this.memoryCache = new BoundedCache<>(memoryCacheSize, memoryCacheTtl);
+    }
+
+    public String register(byte[] templateBytes) throws Exception {
+        String id = Fingerprint.sha256(templateBytes);
+        Path target = pathOf(id);
+        if (!Files.exists(target)) {
+            // Valida e pré-compila antes de aceitar: um .docx inválido falha aqui e não no render
+            XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(templateBytes));
+            // Marcadores ${if(...)}/${endif} não são FreeMarker: saem do documento antes de compilar
+            String planKey = ruleEvaluator.apply(document, id, Map.of());
+            serviceFreemarker.precompile(document, planKey);
+
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, id, ".tmp");
+            Files.write(temp, templateBytes);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        memoryCache.put(id, templateBytes);
+        return id;
+    }
+
+    public byte[] load(String id) throws IOException {
+        if (!isValidId(id)) {
+            return null;
+        }
+        byte[] templateBytes = memoryCache.get(id);
+        if (templateBytes != null) {
+            return templateBytes;
+        }
+        Path path = pathOf(id);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        templateBytes = Files.readAllBytes(path);
+        memoryCache.put(id, templateBytes);
+        return templateBytes;
+    }
+
+    public boolean delete(String id) throws IOException {
+        if (!isValidId(id)) {
+            return false;
+        }
+        memoryCache.invalidate(id);
+        return Files.deleteIfExists(pathOf(id));
+    }
+
+    public static boolean isValidId(String id) {
+        return id != null && ID_PATTERN.matcher(id).matches();
+    }
+
+    private Path pathOf(String id) {
+        return directory.resolve(id + ".docx");
+    }
+}
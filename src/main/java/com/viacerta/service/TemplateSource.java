@@ -0,0 +1,46 @@
+package com.viacerta.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.viacerta.cache.Fingerprint;
+
+/**
+ * Template .docx com a sua impressão digital: bytes em memória, com a impressão calculada sob demanda
+ * quando não informada, ou um arquivo do upload, com o SHA-256 calculado na leitura.
+ */
+public class TemplateSource {
+    private final byte[] bytes;
+    private final UploadedFile upload;
+    private String fingerprint;
+
+    public TemplateSource(byte[] bytes, String fingerprint) {
+        this(bytes, null, fingerprint);
+    }
+
+    private TemplateSource(byte[] bytes, UploadedFile upload, String fingerprint) {
+        this.bytes = bytes;
+        this.upload = upload;
+        this.fingerprint = fingerprint;
+    }
+
+    public static TemplateSource of(byte[] bytes) {
+        return new TemplateSource(bytes, null);
+    }
+
+    public static TemplateSource of(UploadedFile upload) {
+        return new TemplateSource(null, upload, upload.getSha256());
+    }
+
+    public InputStream openStream() throws IOException {
+        return upload != null ? upload.openStream() : new ByteArrayInputStream(bytes);
+    }
+
+    public synchronized String getFingerprint() {
+        if (fingerprint == null) {
+            fingerprint = Fingerprint.sha256(bytes);
+        }
+        return fingerprint;
+    }
+}
@@ -0,0 +1,347 @@
+package com.viacerta.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Isola os tenants no acesso aos conversores. Cada tenant tem um limite de gerações em andamento
+ * (acima dele a requisição é recusada com 429) e as conversões disputam um número fixo de slots numa
+ * fila justa ponderada por marcas de tempo virtual: cada conversão custa o número de parágrafos do
+ * documento dividido pelo peso do tenant, começa no maior entre o tempo virtual e o término da conversão
+ * anterior do mesmo tenant, e a fila atende pela menor marca de término (início + custo), como no
+ * weighted fair queuing. O tempo virtual não simula o escalonador ideal: avança para a marca de início
+ * da última conversão liberada, e volta a zero quando a fila fica ociosa. Assim um
+ * tenant com um lote de milhares de documentos não passa na frente dos demais, e documentos pequenos de
+ * requisições interativas saem antes dos grandes; jobs e lotes pagam um custo maior por parágrafo.
+ * O tempo na fila é publicado por tenant (converter.queue.wait) e como etapa "queue" da geração.
+ */
+@ApplicationScoped
+public class TenantScheduler {
+    public static final String DEFAULT_TENANT = "default";
+    public static final String TENANT_HEADER = "X-Tenant-Id";
+    public static final String API_KEY_HEADER = "X-Api-Key";
+
+    private final MeterRegistry registry;
+    private final int maxInFlight;
+    private final int slots;
+    private final int backgroundCostFactor;
+    private final Duration slotTimeout;
+    private final Map<String, Integer> weights;
+    private final Map<String, String> apiKeys;
+
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Timer> queueWaits = new ConcurrentHashMap<>();
+
+    // Estado da fila, sempre acessado com o lock do objeto
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>();
+    private final Map<String, Double> lastFinish = new HashMap<>();
+    private double virtualTime;
+    private int freeSlots;
+    private long sequence;
+
+    @Inject
+    public TenantScheduler(MeterRegistry registry,
+            @ConfigProperty(name = "tenants.max-in-flight", defaultValue = "4") int maxInFlight,
+            @ConfigProperty(name = "tenants.converter-slots", defaultValue = "0") int slots,
+            @ConfigProperty(name = "converter.pool.enabled", defaultValue = "false") boolean poolEnabled,
+            @ConfigProperty(name = "converter.pool.size", defaultValue = "2") int poolSize,
+            @ConfigProperty(name = "tenants.background-cost-factor", defaultValue = "4") int backgroundCostFactor,
+            @ConfigProperty(name = "tenants.slot-timeout", defaultValue = "PT120S") Duration slotTimeout,
+            @ConfigProperty(name = "tenants.weights") Optional<List<String>> weights,
+            @ConfigProperty(name = "tenants.api-keys") Optional<List<String>> apiKeys) {
+        this.registry = registry;
+        this.maxInFlight = maxInFlight;
+        // 0: um slot por worker do pool, ou por processador na conversão pela linha de comando
+        this.slots = slots > 0 ? slots : poolEnabled ? poolSize : Runtime.getRuntime().availableProcessors();
+        this.freeSlots = this.slots;
+        this.backgroundCostFactor = Math.max(1, backgroundCostFactor);
+        this.slotTimeout = slotTimeout;
+        Map<String, Integer> tenantWeights = new HashMap<>();
+        parsePairs("tenants.weights", weights.orElse(List.of()))
+                .forEach((tenant, weight) -> tenantWeights.put(tenant, parseWeight(tenant, weight)));
+        this.weights = Map.copyOf(tenantWeights);
+        this.apiKeys = Map.copyOf(parsePairs("tenants.api-keys", apiKeys.orElse(List.of())));
+
+        Gauge.builder("converter.slots.queue", this, TenantScheduler::getQueueDepth).register(registry);
+        Gauge.builder("converter.slots.busy", this, TenantScheduler::getBusySlots).register(registry);
+    }
+
+    /**
+     * Quem gera e com que prioridade: requisições interativas ou em segundo plano (jobs e lotes).
+     */
+    public record Caller(String tenant, boolean interactive) {
+        public static final Caller DEFAULT = new Caller(DEFAULT_TENANT, true);
+
+        public Caller background() {
+            return new Caller(tenant, false);
+        }
+    }
+
+    /**
+     * Tenant da requisição. Com tenants.api-keys configurado, a chave de API (X-Api-Key) é obrigatória e
+     * define o tenant; o cabeçalho X-Tenant-Id é ignorado. Sem chaves configuradas, vale o X-Tenant-Id
+     * apenas para tenants listados em tenants.weights; qualquer outro valor usa o tenant padrão, para que
+     * identificadores inventados não escapem do limite por tenant nem criem métricas novas.
+     *
+     * @throws IllegalArgumentException para chave de API ausente ou desconhecida
+     */
+    public Caller caller(String tenantId, String apiKey) {
+        if (!apiKeys.isEmpty()) {
+            if (apiKey == null || apiKey.isBlank()) {
+                throw new IllegalArgumentException("Chave de API obrigatória (cabeçalho " + API_KEY_HEADER + ")");
+            }
+            String tenant = apiKeys.get(apiKey.trim());
+            if (tenant == null) {
+                throw new IllegalArgumentException("Chave de API inválida");
+            }
+            return new Caller(tenant, true);
+        }
+        if (tenantId == null || !weights.containsKey(tenantId.trim())) {
+            return Caller.DEFAULT;
+        }
+        return new Caller(tenantId.trim(), true);
+    }
+
+    /**
+     * Registra uma geração em andamento do tenant; o chamador fecha a permissão quando ela termina.
+     *
+     * @throws TenantLimitExceededException quando o tenant já está no limite
+     */
+    public Permit enter(Caller caller) {
+        AtomicInteger count = inFlight.computeIfAbsent(caller.tenant(), tenant -> {
+            AtomicInteger counter = new AtomicInteger();
+            Gauge.builder("tenant.in.flight", counter, AtomicInteger::get).tag("tenant", tenant).register(registry);
+            return counter;
+        });
+        if (count.incrementAndGet() > maxInFlight) {
+            count.decrementAndGet();
+            throw new TenantLimitExceededException("Limite de " + maxInFlight
+                    + " gerações simultâneas atingido para o tenant " + caller.tenant());
+        }
+        return new Permit(count);
+    }
+
+    /**
+     * Espera um slot de conversão. O custo é o número de parágrafos do documento.
+     *
+     * @throws IOException quando nenhum slot fica livre em tenants.slot-timeout
+     */
+    public Slot awaitSlot(Caller caller, int paragraphs, StageTimings timings)
+            throws IOException, InterruptedException {
+        CompletableFuture<Slot> granted = enqueue(caller, paragraphs, timings);
+        try {
+            return granted.get(slotTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Desistência: a fila descarta o pedido ao chegar nele; se o slot acabou de ser concedido, ele vale
+            if (!granted.cancel(false)) {
+                return granted.join();
+            }
+            throw timeout();
+        } catch (InterruptedException e) {
+            if (!granted.cancel(false)) {
+                granted.join().close();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Como awaitSlot, sem bloquear: o futuro é concluído quando o slot é concedido.
+     */
+    public CompletableFuture<Slot> acquireSlot(Caller caller, int paragraphs, StageTimings timings) {
+        return enqueue(caller, paragraphs, timings)
+                .orTimeout(slotTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionallyCompose(failure -> CompletableFuture.failedFuture(
+                        failure instanceof TimeoutException ? timeout() : failure));
+    }
+
+    /**
+     * Peso do tenant em tenants.weights; 1 para os que não estão lá.
+     */
+    public int weightOf(String tenant) {
+        return weights.getOrDefault(tenant, 1);
+    }
+
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    public synchronized int getBusySlots() {
+        return slots - freeSlots;
+    }
+
+    private CompletableFuture<Slot> enqueue(Caller caller, int paragraphs, StageTimings timings) {
+        double cost = (double) Math.max(1, paragraphs) * (caller.interactive() ? 1 : backgroundCostFactor)
+                / weightOf(caller.tenant());
+        Waiter waiter;
+        synchronized (this) {
+            if (queue.isEmpty() && freeSlots == slots) {
+                // Fila ociosa: as marcas antigas não influenciam mais a ordem
+                lastFinish.clear();
+                virtualTime = 0;
+            }
+            double start = Math.max(virtualTime, lastFinish.getOrDefault(caller.tenant(), 0.0));
+            waiter = new Waiter(caller.tenant(), start, start + cost, sequence++, System.nanoTime(), timings);
+            lastFinish.put(caller.tenant(), waiter.finish);
+            queue.add(waiter);
+        }
+        dispatch();
+        return waiter.granted;
+    }
+
+    // Concede os slots livres fora do lock: completar o futuro executa quem estava esperando por ele
+    private void dispatch() {
+        while (true) {
+            Waiter next;
+            synchronized (this) {
+                if (freeSlots == 0 || queue.isEmpty()) {
+                    return;
+                }
+                next = queue.poll();
+                virtualTime = next.start;
+                freeSlots--;
+            }
+            if (next.granted.complete(new Slot())) {
+                long waited = System.nanoTime() - next.enqueuedAt;
+                queueWait(next.tenant).record(waited, TimeUnit.NANOSECONDS);
+                next.timings.record("queue", waited);
+            } else {
+                // Pedido cancelado ou expirado enquanto esperava
+                synchronized (this) {
+                    freeSlots++;
+                }
+            }
+        }
+    }
+
+    private void release() {
+        synchronized (this) {
+            freeSlots++;
+        }
+        dispatch();
+    }
+
+    private Timer queueWait(String tenant) {
+        return queueWaits.computeIfAbsent(tenant, key -> Timer.builder("converter.queue.wait")
+                .tag("tenant", key)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    private IOException timeout() {
+        return new IOException("Nenhum conversor livre após " + slotTimeout);
+    }
+
+    private static Map<String, String> parsePairs(String property, List<String> entries) {
+        Map<String, String> pairs = new HashMap<>();
+        for (String entry : entries) {
+            int separator = entry.indexOf('=');
+            if (separator <= 0 || separator == entry.length() - 1) {
+                throw new IllegalArgumentException(property + ": use chave=valor, recebido '" + entry + "'");
+            }
+            pairs.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+        }
+        return pairs;
+    }
+
+    private static int parseWeight(String tenant, String value) {
+        try {
+            int weight = Integer.parseInt(value);
+            if (weight > 0) {
+                return weight;
+            }
+        } catch (NumberFormatException e) {
+            // cai na mensagem abaixo
+        }
+        throw new IllegalArgumentException("tenants.weights: peso inválido para " + tenant + ": " + value);
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+        final String tenant;
+        final double start;
+        final double finish;
+        final long sequence;
+        final long enqueuedAt;
+        final StageTimings timings;
+        final CompletableFuture<Slot> granted = new CompletableFuture<>();
+
+        Waiter(String tenant, double start, double finish, long sequence, long enqueuedAt, StageTimings timings) {
+            this.tenant = tenant;
+            this.start = start;
+            this.finish = finish;
+            this.sequence = sequence;
+            this.enqueuedAt = enqueuedAt;
+            this.timings = timings;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int byFinish = Double.compare(finish, other.finish);
+            return byFinish != 0 ? byFinish : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Slot de conversão concedido; fechar devolve o slot à fila.
+     */
+    public final class Slot implements AutoCloseable {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Slot() {
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release();
+            }
+        }
+    }
+
+    /**
+     * Geração em andamento de um tenant; fechar libera a vaga.
+     */
+    public static final class Permit implements AutoCloseable {
+        private final AtomicInteger count;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(AtomicInteger count) {
+            this.count = count;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                count.decrementAndGet();
+            }
+        }
+    }
+
+    public static class TenantLimitExceededException extends RuntimeException {
+        public TenantLimitExceededException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.viacerta.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Arquivo recebido no multipart. Os pequenos ficam em memória; acima de upload.memory-threshold o
+ * conteúdo fica num arquivo temporário no diretório de trabalho da instância, apagado em close.
+ * O SHA-256 é calculado durante a leitura, sem uma segunda passada pelos bytes.
+ */
+public final class UploadedFile implements AutoCloseable {
+    private final byte[] bytes;
+    private final Path file;
+    private final long size;
+    private final String sha256;
+
+    private UploadedFile(byte[] bytes, Path file, long size, String sha256) {
+        this.bytes = bytes;
+        this.file = file;
+        this.size = size;
+        this.sha256 = sha256;
+    }
+
+    public static UploadedFile inMemory(byte[] bytes, String sha256) {
+        return new UploadedFile(bytes, null, bytes.length, sha256);
+    }
+
+    public static UploadedFile onDisk(Path file, long size, String sha256) {
+        return new UploadedFile(null, file, size, sha256);
+    }
+
+    public InputStream openStream() throws IOException {
+        return file != null ? new BufferedInputStream(Files.newInputStream(file)) : new ByteArrayInputStream(bytes);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    @Override
+    public void close() {
+        if (file != null) {
+            LibreOfficeConverterService.deleteFile(file.toFile());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.viacerta.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.pdfbox.pdmodel.font.FontMappers;
+import org.apache.poi.wp.usermodel.HeaderFooterType;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Aquecimento opcional na inicialização: carrega os schemas do XMLBeans, o índice de fontes do PDFBox
+ * e exercita o pipeline completo com um template de exemplo, inclusive uma conversão pelo LibreOffice
+ * (que também inicializa o worker do pool). Roda fora da thread de boot; a readiness fica DOWN até terminar.
+ * A conversão é sempre local, nunca pela fila; num nó só de API (render.role=api), que não converte,
+ * ficam apenas as passadas do lado Java.
+ */
+@ApplicationScoped
+public class WarmUpService {
+    private static final Logger LOG = Logger.getLogger(WarmUpService.class);
+
+    private ProcessDocumentWithFreemarkerService serviceFreemarker;
+    private RuleEvaluatorService ruleEvaluator;
+    private ReportRenderService reportRenderService;
+    private RenderMetrics renderMetrics;
+    private RenderQueueService renderQueue;
+    private MeterRegistry registry;
+
+    @ConfigProperty(name = "render.warm-up.enabled", defaultValue = "false")
+    boolean enabled;
+
+    // Passadas só do lado Java (leitura, regras, FreeMarker e escrita do .docx) para o JIT, antes da conversão
+    @ConfigProperty(name = "render.warm-up.iterations", defaultValue = "20")
+    int iterations;
+
+    private volatile boolean completed;
+    private volatile String failure;
+    private volatile long durationMillis = -1;
+
+    @Inject
+    public WarmUpService(ProcessDocumentWithFreemarkerService serviceFreemarker, RuleEvaluatorService ruleEvaluator,
+            ReportRenderService reportRenderService, RenderMetrics renderMetrics, RenderQueueService renderQueue,
+            MeterRegistry registry) {
+        this.serviceFreemarker = serviceFreemarker;
+        this.ruleEvaluator = ruleEvaluator;
+        this.reportRenderService = reportRenderService;
+        this.renderMetrics = renderMetrics;
+        this.renderQueue = renderQueue;
+        this.registry = registry;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            completed = true;
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "render-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void warmUp() {
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            byte[] templateBytes = sampleTemplate();
+            Map<String, Object> fieldsJson = sampleFields();
+            Map<String, Boolean> rulesJson = Map.of("detalhes", true);
+
+            // Primeira busca de fonte dispara a varredura das fontes do sistema (cache em pdfbox.fontcache)
+            FontMappers.instance().getFontBoxFont("Helvetica", null);
+
+            String fingerprint = TemplateSource.of(templateBytes).getFingerprint();
+            for (int i = 0; i < iterations; i++) {
+                try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(templateBytes))) {
+                    String planKey = ruleEvaluator.apply(document, fingerprint, rulesJson);
+                    serviceFreemarker.processDocumentWithFreemarker(document, fieldsJson, planKey);
+                    document.write(OutputStream.nullOutputStream());
+                }
+            }
+
+            if (renderQueue.isDispatching() && !renderQueue.isWorking()) {
+                // Pela fila a geração esperaria um worker até render.remote.timeout, com a readiness DOWN
+                LOG.info("Nó só de API: aquecimento sem a etapa de conversão");
+            } else {
+                // Duas partes: conversão e junção dos PDFs, como numa requisição com subrelatório
+                List<TemplateSource> parts = ReportRenderService.parts(templateBytes, templateBytes);
+                StageTimings timings = renderMetrics.newTimings("warmUp");
+                RenderRequest request = new RenderRequest(parts, fieldsJson, rulesJson, null, null, null);
+                try (RenderedDocument rendered = reportRenderService.renderLocally(request, timings)) {
+                    rendered.writeTo(OutputStream.nullOutputStream());
+                } finally {
+                    timings.finish();
+                }
+            }
+        } catch (Exception e) {
+            outcome = "failure";
+            failure = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            LOG.error("Falha no aquecimento do pipeline de geração", e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            Timer.builder("render.warmup.duration")
+                    .tag("outcome", outcome)
+                    .register(registry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            durationMillis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+            completed = true;
+            LOG.infof("Aquecimento do pipeline concluído em %d ms", durationMillis);
+        }
+    }
+
+    private static byte[] sampleTemplate() throws IOException {
+        try (XWPFDocument document = new XWPFDocument()) {
+            document.createHeader(HeaderFooterType.DEFAULT).createParagraph().createRun()
+                    .setText("Relatório ${titulo}");
+            document.createParagraph().createRun().setText("Cliente: ${cliente}");
+            document.createParagraph().createRun()
+                    .setText("<#if valor??>Valor: ${valor}<#else>Sem valor</#if>");
+            document.createParagraph().createRun().setText("${if(detalhes)}");
+            document.createParagraph().createRun().setText("Emitido em ${data}");
+            document.createParagraph().createRun().setText("${endif}");
+
+            XWPFTable table = document.createTable(2, 2);
+            table.getRow(0).getCell(0).setText("Item");
+            table.getRow(0).getCell(1).setText("Quantidade");
+            table.getRow(1).getCell(0).setText("${item}");
+            table.getRow(1).getCell(1).setText("${quantidade}");
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.write(output);
+            return output.toByteArray();
+        }
+    }
+
+    private static Map<String, Object> sampleFields() {
+        return Map.of("titulo", "Aquecimento", "cliente", "Cliente de exemplo", "valor", 1234.5,
+                "data", "01/01/2024", "item", "Produto", "quantidade", 3);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+}
@@ -0,0 +1,60 @@
+package com.viacerta.rules;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class KeywordMatcherTest {
+
+    @Test
+    void semPalavrasNaoEncontraNada() {
+        KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("", null));
+        assertTrue(matcher.isEmpty());
+        assertFalse(matcher.containsAny("qualquer texto"));
+    }
+
+    @Test
+    void textoNuloOuVazio() {
+        KeywordMatcher matcher = new KeywordMatcher(List.of("regra"));
+        assertFalse(matcher.containsAny(null));
+        assertFalse(matcher.containsAny(""));
+    }
+
+    @Test
+    void encontraQualquerPalavraNoMeioDoTexto() {
+        KeywordMatcher matcher = new KeywordMatcher(List.of("desconto", "frete"));
+        assertTrue(matcher.containsAny("Valor do frete: R$ 10"));
+        assertTrue(matcher.containsAny("descontoEspecial"));
+        assertFalse(matcher.containsAny("Desconto"));
+        assertFalse(matcher.containsAny("descont"));
+    }
+
+    @Test
+    void palavrasSobrepostas() {
+        KeywordMatcher matcher = new KeywordMatcher(List.of("he", "she", "his", "hers"));
+        assertTrue(matcher.containsAny("ushers"));
+        assertTrue(matcher.containsAny("xxhis"));
+        assertFalse(matcher.containsAny("hi s"));
+    }
+
+    @Test
+    void palavraContidaEmOutraMaisLonga() {
+        // "bc" só aparece como sufixo de um prefixo de "abcd": precisa da ligação de falha
+        KeywordMatcher matcher = new KeywordMatcher(List.of("abcd", "bc"));
+        assertTrue(matcher.containsAny("xabcx"));
+        assertTrue(matcher.containsAny("bc"));
+        assertFalse(matcher.containsAny("abxd"));
+    }
+
+    @Test
+    void prefixoRepetidoVoltaPelaLigacaoDeFalha() {
+        KeywordMatcher matcher = new KeywordMatcher(List.of("aab"));
+        assertTrue(matcher.containsAny("aaab"));
+        assertTrue(matcher.containsAny("aaaaab"));
+        assertFalse(matcher.containsAny("abab"));
+    }
+}
@@ -0,0 +1,89 @@
+package com.viacerta.rules;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class RuleParserTest {
+
+    private static boolean eval(String condition, Map<String, Boolean> rules) {
+        return RuleParser.parse(condition).evaluate(rules);
+    }
+
+    @Test
+    void chaveSozinhaValeARegra() {
+        assertTrue(eval("mostrarDesconto", Map.of("mostrarDesconto", true)));
+        assertFalse(eval("mostrarDesconto", Map.of("mostrarDesconto", false)));
+        assertFalse(eval("mostrarDesconto", Map.of()));
+        assertFalse(eval("mostrarDesconto", null));
+    }
+
+    @Test
+    void igualComparaComBooleano() {
+        assertTrue(eval("ativo = true", Map.of("ativo", true)));
+        assertFalse(eval("ativo = true", Map.of("ativo", false)));
+        assertTrue(eval("ativo == false", Map.of("ativo", false)));
+        // Regra ausente vale false
+        assertTrue(eval("ativo = false", Map.of()));
+        assertTrue(eval("ativo = TRUE", Map.of("ativo", true)));
+    }
+
+    @Test
+    void diferenteComparaComBooleano() {
+        assertTrue(eval("ativo <> false", Map.of("ativo", true)));
+        assertFalse(eval("ativo <> true", Map.of("ativo", true)));
+        assertTrue(eval("ativo != true", Map.of()));
+    }
+
+    @Test
+    void comparacaoComTextoIndicaCampoPreenchido() {
+        assertTrue(eval("campo <> \"\"", Map.of("campo", true)));
+        assertFalse(eval("campo <> \"\"", Map.of("campo", false)));
+        assertTrue(eval("campo = \"\"", Map.of("campo", false)));
+        assertFalse(eval("campo = ''", Map.of("campo", true)));
+        // Aspas tipográficas do Word
+        assertTrue(eval("campo <> “”", Map.of("campo", true)));
+    }
+
+    @Test
+    void andTemPrecedenciaSobreOr() {
+        Map<String, Boolean> rules = Map.of("a", true, "b", false, "c", false);
+        assertTrue(eval("a or b and c", rules));
+        assertFalse(eval("(a or b) and c", rules));
+        assertTrue(eval("b and c or a", rules));
+    }
+
+    @Test
+    void operadoresSimbolicosEMaiusculas() {
+        Map<String, Boolean> rules = Map.of("a", true, "b", false);
+        assertTrue(eval("a && !b", rules));
+        assertTrue(eval("b || a", rules));
+        assertFalse(eval("a AND b", rules));
+        assertTrue(eval("NOT b", rules));
+    }
+
+    @Test
+    void parentesesAninhados() {
+        Map<String, Boolean> rules = Map.of("a", true, "b", false, "c", true);
+        assertTrue(eval("a and (b or (c and not b))", rules));
+        assertFalse(eval("not (a and (b or c))", rules));
+        assertTrue(eval("((a))", rules));
+    }
+
+    @Test
+    void condicoesInvalidas() {
+        assertThrows(IllegalArgumentException.class, () -> RuleParser.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> RuleParser.parse("   "));
+        assertThrows(IllegalArgumentException.class, () -> RuleParser.parse("(a and b"));
+        assertThrows(IllegalArgumentException.class, () -> RuleParser.parse("a and b)"));
+        assertThrows(IllegalArgumentException.class, () -> RuleParser.parse("a and"));
+        assertThrows(IllegalArgumentException.class, () -> RuleParser.parse("a ="));
+        assertThrows(IllegalArgumentException.class, () -> RuleParser.parse("a = and"));
+        assertThrows(IllegalArgumentException.class, () -> RuleParser.parse("= true"));
+        assertThrows(IllegalArgumentException.class, () -> RuleParser.parse("a # b"));
+    }
+}
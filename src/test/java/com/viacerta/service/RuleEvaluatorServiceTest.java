@@ -0,0 +1,117 @@
+package com.viacerta.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.junit.jupiter.api.Test;
+
+class RuleEvaluatorServiceTest {
+    private final RuleEvaluatorService service = new RuleEvaluatorService(new PlaceholderEngine(), 16,
+            Duration.ofMinutes(1));
+
+    private static XWPFDocument document(String... paragraphs) {
+        XWPFDocument document = new XWPFDocument();
+        for (String text : paragraphs) {
+            document.createParagraph().createRun().setText(text);
+        }
+        return document;
+    }
+
+    private static List<String> texts(XWPFDocument document) {
+        return document.getParagraphs().stream().map(XWPFParagraph::getText).toList();
+    }
+
+    private List<String> apply(Map<String, Boolean> rules, String... paragraphs) {
+        XWPFDocument document = document(paragraphs);
+        service.apply(document, null, rules);
+        return texts(document);
+    }
+
+    @Test
+    void blocoRemovidoQuandoACondicaoEFalsa() {
+        assertEquals(List.of("Início", "Fim"),
+                apply(Map.of("mostrarBloco", false), "Início", "${if(mostrarBloco)}", "Dentro", "${endif}", "Fim"));
+        assertEquals(List.of("Início", "Dentro", "Fim"),
+                apply(Map.of("mostrarBloco", true), "Início", "${if(mostrarBloco)}", "Dentro", "${endif}", "Fim"));
+    }
+
+    @Test
+    void blocosAninhados() {
+        String[] template = { "${if(externo)}", "A", "${if(interno)}", "B", "${endif}", "C", "${endif}", "Z" };
+        assertEquals(List.of("A", "B", "C", "Z"), apply(Map.of("externo", true, "interno", true), template));
+        assertEquals(List.of("A", "C", "Z"), apply(Map.of("externo", true, "interno", false), template));
+        assertEquals(List.of("Z"), apply(Map.of("externo", false, "interno", true), template));
+    }
+
+    @Test
+    void condicaoComOperadores() {
+        String[] template = { "${if(cliente <> \"\" and (vip or not restrito))}", "Oferta", "${endif}" };
+        assertEquals(List.of("Oferta"), apply(Map.of("cliente", true, "vip", false, "restrito", false), template));
+        assertEquals(List.of(), apply(Map.of("cliente", true, "vip", false, "restrito", true), template));
+        assertEquals(List.of(), apply(Map.of("cliente", false, "vip", true), template));
+    }
+
+    @Test
+    void ifSemEndifValeSoParaOProprioParagrafo() {
+        // O bloco aberto não engole os parágrafos seguintes
+        assertEquals(List.of("", "Depois"), apply(Map.of("mostrar", false), "${if(mostrar)}", "Depois"));
+        assertEquals(List.of("", "Depois"), apply(Map.of("mostrar", true), "${if(mostrar)}", "Depois"));
+    }
+
+    @Test
+    void endifSemIfEhRemovido() {
+        assertEquals(List.of("Antes", "Depois"), apply(Map.of(), "Antes", "${endif}", "Depois"));
+    }
+
+    @Test
+    void condicaoDentroDoParagrafo() {
+        assertEquals(List.of("", "Total"),
+                apply(Map.of("temDesconto", false), "Desconto: 10% ${if(temDesconto)}", "Total"));
+        assertEquals(List.of("Desconto: 10% ", "Total"),
+                apply(Map.of("temDesconto", true), "Desconto: 10% ${if(temDesconto)}", "Total"));
+    }
+
+    @Test
+    void regraFalsaCitadaNoTextoEsvaziaOParagrafo() {
+        assertEquals(List.of("", "Outro"), apply(Map.of("observacao", false), "Campo observacao aqui", "Outro"));
+    }
+
+    @Test
+    void blocoEmLinhasDeTabela() {
+        XWPFDocument document = new XWPFDocument();
+        document.createParagraph().createRun().setText("Antes");
+        XWPFTable table = document.createTable(3, 1);
+        table.getRow(0).getCell(0).setText("${if(linhas)}");
+        table.getRow(1).getCell(0).setText("Item");
+        table.getRow(2).getCell(0).setText("${endif}");
+        document.createParagraph().createRun().setText("Depois");
+
+        service.apply(document, null, Map.of("linhas", false));
+
+        assertTrue(document.getTables().isEmpty());
+        assertEquals(List.of("Antes", "Depois"), texts(document));
+    }
+
+    @Test
+    void chaveDoPlanoMudaSoQuandoAsRegrasMudamODocumento() {
+        assertEquals("abc", service.apply(document("Sem condições"), "abc", Map.of()));
+        String key = service.apply(document("${if(mostrar)}", "X", "${endif}"), "def", Map.of("mostrar", false));
+        assertTrue(key.startsWith("def:"));
+    }
+
+    @Test
+    void condicaoInvalida() {
+        assertThrows(IllegalArgumentException.class,
+                () -> apply(Map.of(), "${if(a and)}", "Texto", "${endif}"));
+        assertThrows(IllegalArgumentException.class,
+                () -> apply(Map.of(), "Parágrafo ${if((a)} com condição"));
+    }
+}